@@ -2,12 +2,17 @@ package io.github.syst3ms.skriptparser;
 
 import io.github.syst3ms.skriptparser.log.LogEntry;
 import io.github.syst3ms.skriptparser.log.LogType;
+import io.github.syst3ms.skriptparser.parsing.ScriptLoadResult;
 import io.github.syst3ms.skriptparser.parsing.ScriptLoader;
+import io.github.syst3ms.skriptparser.profiling.Profiler;
 import io.github.syst3ms.skriptparser.registration.DefaultRegistration;
 import io.github.syst3ms.skriptparser.registration.SkriptAddon;
 import io.github.syst3ms.skriptparser.registration.SkriptRegistration;
 import io.github.syst3ms.skriptparser.util.ConsoleColors;
 import io.github.syst3ms.skriptparser.util.FileUtils;
+import io.github.syst3ms.skriptparser.util.ThreadUtils;
+import io.github.syst3ms.skriptparser.variables.FileVariableStorage;
+import io.github.syst3ms.skriptparser.variables.Variables;
 
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
@@ -34,6 +39,9 @@ public class Parser {
     public static void main(String[] args) {
         boolean debug = false;
         boolean tipsEnabled = true;
+        boolean parallel = false;
+        boolean watch = false;
+        boolean saveVariables = false;
         String scriptName = "";
         String[] programArgs = new String[0];
         if (args.length == 0) {
@@ -47,6 +55,23 @@ public class Parser {
                     debug = true;
                 } else if (s.equalsIgnoreCase("--no-tips") || s.equalsIgnoreCase("--nt")) {
                     tipsEnabled = false;
+                } else if (s.equalsIgnoreCase("--parallel")) {
+                    parallel = true;
+                } else if (s.equalsIgnoreCase("--watch")) {
+                    watch = true;
+                } else if (s.equalsIgnoreCase("--save-variables")) {
+                    saveVariables = true;
+                } else if (s.equalsIgnoreCase("--cache")) {
+                    ScriptLoader.setCacheDirectory(Paths.get(".skript-cache"));
+                } else if (s.equalsIgnoreCase("--profile")) {
+                    Profiler.setEnabled(true);
+                    Profiler.writeAtShutdown(Paths.get("profile.txt"), Paths.get("profile.folded"));
+                } else if (s.equalsIgnoreCase("--virtual-threads")) {
+                    if (ThreadUtils.supportsVirtualThreads()) {
+                        ThreadUtils.setVirtualThreads(true);
+                    } else {
+                        System.err.println("Virtual threads require Java 21 or later, ignoring --virtual-threads");
+                    }
                 } else {
                     j = i;
                     break;
@@ -56,7 +81,13 @@ public class Parser {
             programArgs = Arrays.copyOfRange(args, j + 1, args.length);
         }
         init(new String[0], new String[0], programArgs, true);
-        run(scriptName, debug, tipsEnabled);
+        if (saveVariables) {
+            saveVariables(Paths.get("variables"));
+        }
+        run(scriptName, debug, tipsEnabled, parallel);
+        if (watch) {
+            watch(scriptName, debug, tipsEnabled);
+        }
     }
 
     /**
@@ -138,9 +169,33 @@ public class Parser {
     }
 
     public static void run(String scriptName, boolean debug, boolean tipsEnabled) {
+        run(scriptName, debug, tipsEnabled, false);
+    }
+
+    /**
+     * Loads a script, or all the scripts inside of a directory, and then lets addons know loading is done.
+     * @param scriptName the path of the script or of the directory
+     * @param debug whether debug is enabled
+     * @param tipsEnabled whether tips are printed alongside errors
+     * @param parallel whether the triggers of each script are loaded in parallel. Scripts inside of a directory are
+     *                 always loaded concurrently, regardless of this.
+     */
+    public static void run(String scriptName, boolean debug, boolean tipsEnabled, boolean parallel) {
         Calendar time = Calendar.getInstance();
         Path scriptPath = Paths.get(scriptName);
-        logs = ScriptLoader.loadScript(scriptPath, debug);
+        if (Files.isDirectory(scriptPath)) {
+            logs = new ArrayList<>();
+            try {
+                for (ScriptLoadResult result : ScriptLoader.loadScripts(scriptPath, debug, parallel, Runtime.getRuntime().availableProcessors())) {
+                    logs.addAll(result.getLogs());
+                }
+            } catch (IOException e) {
+                System.err.println("Error while loading scripts:");
+                e.printStackTrace();
+            }
+        } else {
+            logs = ScriptLoader.loadScript(scriptPath, debug, parallel);
+        }
         if (!logs.isEmpty()) {
             System.out.print(ConsoleColors.PURPLE);
             System.out.println("Parsing log:");
@@ -149,6 +204,52 @@ public class Parser {
         SkriptAddon.getAddons().forEach(SkriptAddon::finishedLoading);
     }
 
+    /**
+     * Reloads scripts as they are changed. If the given path is a script rather than a directory, the directory
+     * containing it is watched.
+     * @param scriptName the path of the script or of the directory
+     * @param debug whether debug is enabled
+     * @param tipsEnabled whether tips are printed alongside errors
+     */
+    public static void watch(String scriptName, boolean debug, boolean tipsEnabled) {
+        Path scriptPath = Paths.get(scriptName).toAbsolutePath();
+        Path directory = Files.isDirectory(scriptPath) ? scriptPath : scriptPath.getParent();
+        try {
+            ScriptLoader.watchScripts(directory, debug, Runtime.getRuntime().availableProcessors(), result -> {
+                System.out.print(ConsoleColors.PURPLE);
+                System.out.printf("Reloaded %s in %d ms%n", result.getScriptPath().getFileName(), result.getLoadingTime().toMillis());
+                printLogs(result.getLogs(), Calendar.getInstance(), tipsEnabled);
+            });
+        } catch (IOException e) {
+            System.err.println("Error while watching scripts:");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Saves global variables to a directory until the JVM shuts down, and restores the ones that were saved there
+     * before. This must be called after {@link #init(String[], String[], String[], boolean)}, so that the types of
+     * the saved values are known.
+     * @param directory the directory holding the saved variables
+     * @see FileVariableStorage
+     */
+    public static void saveVariables(Path directory) {
+        try {
+            Variables.setStorage(new FileVariableStorage(directory));
+        } catch (IOException e) {
+            System.err.println("Error while loading variables:");
+            e.printStackTrace();
+            return;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                Variables.setStorage(null);
+            } catch (IOException e) {
+                System.err.println("Couldn't save variables : " + e.getMessage());
+            }
+        }, "Variable saving"));
+    }
+
     public static void printLogs(List<LogEntry> logs, Calendar time, boolean tipsEnabled) {
         for (LogEntry log : logs) {
             ConsoleColors color = ConsoleColors.WHITE;
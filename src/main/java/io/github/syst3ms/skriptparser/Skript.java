@@ -4,15 +4,19 @@ import io.github.syst3ms.skriptparser.event.*;
 import io.github.syst3ms.skriptparser.lang.SkriptEvent;
 import io.github.syst3ms.skriptparser.lang.Statement;
 import io.github.syst3ms.skriptparser.lang.Trigger;
+import io.github.syst3ms.skriptparser.lang.TriggerContext;
 import io.github.syst3ms.skriptparser.lang.base.ExecutableExpression;
 import io.github.syst3ms.skriptparser.registration.SkriptAddon;
+import io.github.syst3ms.skriptparser.util.ScheduledTask;
 import io.github.syst3ms.skriptparser.util.ThreadUtils;
 import io.github.syst3ms.skriptparser.util.Time;
-import io.github.syst3ms.skriptparser.util.TimeUtils;
+import io.github.syst3ms.skriptparser.variables.ConditionWatcher;
 
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * The {@link SkriptAddon} representing Skript itself
@@ -22,53 +26,99 @@ public class Skript extends SkriptAddon {
     private final String[] mainArgs;
 
     private final List<Trigger> mainTriggers = new ArrayList<>();
-    private final List<Trigger> periodicalTriggers = new ArrayList<>();
-    private final List<Trigger> whenTriggers = new ArrayList<>();
-    private final List<Trigger> atTimeTriggers = new ArrayList<>();
+    // Triggers waiting for loading to finish before they start running
+    private final List<Trigger> pendingTriggers = new ArrayList<>();
+    // The timers running periodical and `at time` triggers, so that they can be stopped when the triggers are unloaded
+    private final Map<Trigger, ScheduledTask> scheduledTriggers = new HashMap<>();
+    // The `when` triggers are all checked by the same timer, and only when their condition may have changed
+    private final Map<Trigger, ConditionWatcher.Watch> watchedTriggers = new HashMap<>();
+    private boolean loadingFinished;
 
     public Skript(String[] mainArgs) {
         this.mainArgs = mainArgs;
     }
 
+    /**
+     * Triggers handled after loading has finished, like those of a reloaded script, start running right away, except
+     * for {@linkplain EvtScriptLoad script load} triggers, which only run when loading first finishes.
+     * @param trigger the trigger to be handled
+     */
     @Override
-    public void handleTrigger(Trigger trigger) {
+    public synchronized void handleTrigger(Trigger trigger) {
         SkriptEvent event = trigger.getEvent();
 
         if (!canHandleEvent(event))
             return;
 
         if (event instanceof EvtScriptLoad) {
-            mainTriggers.add(trigger);
-        } else if (event instanceof EvtPeriodical) {
-            periodicalTriggers.add(trigger);
-        } else if (event instanceof EvtWhen) {
-            whenTriggers.add(trigger);
-        } else if (event instanceof EvtAtTime) {
-            atTimeTriggers.add(trigger);
+            if (!loadingFinished)
+                mainTriggers.add(trigger);
+        } else if (event instanceof EvtPeriodical || event instanceof EvtWhen || event instanceof EvtAtTime) {
+            if (loadingFinished) {
+                start(trigger);
+            } else {
+                pendingTriggers.add(trigger);
+            }
         }
     }
 
+    @Override
+    public synchronized void unloadTrigger(Trigger trigger) {
+        mainTriggers.remove(trigger);
+        pendingTriggers.remove(trigger);
+        var task = scheduledTriggers.remove(trigger);
+        if (task != null)
+            task.cancel();
+        var watch = watchedTriggers.remove(trigger);
+        if (watch != null)
+            watch.cancel();
+    }
+
     @Override
     public void finishedLoading() {
-        for (Trigger trigger : mainTriggers) {
-            Statement.runAll(trigger, new ScriptLoadContext(mainArgs));
+        List<Trigger> toRun;
+        synchronized (this) {
+            loadingFinished = true;
+            toRun = new ArrayList<>(mainTriggers);
+            mainTriggers.clear();
+            pendingTriggers.forEach(this::start);
+            pendingTriggers.clear();
         }
-        for (Trigger trigger : periodicalTriggers) {
-            var ctx = new PeriodicalContext();
-            var dur = ((EvtPeriodical) trigger.getEvent()).getDuration().getSingle().orElseThrow(AssertionError::new);
-            ThreadUtils.runPeriodically(() -> Statement.runAll(trigger, ctx), dur);
-        }
-        for (Trigger trigger : whenTriggers) {
-            var ctx = new WhenContext();
-            ThreadUtils.runPeriodically(() -> Statement.runAll(trigger, ctx), TimeUtils.TICK);
+        for (Trigger trigger : toRun) {
+            Statement.runAll(trigger, new ScriptLoadContext(mainArgs));
         }
-        for (Trigger trigger : atTimeTriggers) {
-            var ctx = new AtTimeContext();
-            var time = ((EvtAtTime) trigger.getEvent()).getTime().getSingle().orElseThrow(AssertionError::new);
+    }
+
+    private void start(Trigger trigger) {
+        var event = trigger.getEvent();
+        if (event instanceof EvtPeriodical) {
+            var dur = ((EvtPeriodical) event).getDuration().getSingle().orElseThrow(AssertionError::new);
+            scheduledTriggers.put(trigger, ThreadUtils.runPeriodically(() -> run(trigger, new PeriodicalContext()), dur));
+        } else if (event instanceof EvtWhen) {
+            var dependencies = ((EvtWhen) event).getDependencies();
+            watchedTriggers.put(trigger, ConditionWatcher.watch(dependencies, w -> run(trigger, new WhenContext())));
+        } else if (event instanceof EvtAtTime) {
+            var time = ((EvtAtTime) event).getTime().getSingle().orElseThrow(AssertionError::new);
             var initialDelay = (Time.now().getTime().isAfter(time.getTime())
                     ? Time.now().difference(Time.LATEST).plus(time.difference(Time.MIDNIGHT))
                     : Time.now().difference(time));
-            ThreadUtils.runPeriodically(() -> Statement.runAll(trigger, ctx), initialDelay, Duration.ofDays(1));
+            scheduledTriggers.put(
+                    trigger,
+                    ThreadUtils.runPeriodically(() -> run(trigger, new AtTimeContext()), initialDelay, Duration.ofDays(1))
+            );
+        }
+    }
+
+    /*
+     * Each run gets a new context, as it holds the local variables of that run.
+     * On a virtual thread, waiting blocks the trigger until it's done, which must not delay the next time the trigger
+     * runs : each run gets its own thread instead
+     */
+    private static void run(Trigger trigger, TriggerContext ctx) {
+        if (ThreadUtils.isVirtualThread()) {
+            ThreadUtils.runAsync(() -> Statement.runAll(trigger, ctx));
+        } else {
+            Statement.runAll(trigger, ctx);
         }
     }
 
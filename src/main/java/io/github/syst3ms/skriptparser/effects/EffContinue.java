@@ -10,7 +10,6 @@ import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Optional;
 
 /**
  * Skips the current looped value and continues to the next one in the list, if it exists.
@@ -58,9 +57,10 @@ public class EffContinue extends Effect {
     }
 
     @Override
-	public Optional<? extends Statement> walk(TriggerContext ctx) {
-        loop.walk(ctx);
-        return Optional.empty();
+	@Nullable
+	public Statement step(TriggerContext ctx) {
+        loop.step(ctx);
+        return null;
     }
 
     @Override
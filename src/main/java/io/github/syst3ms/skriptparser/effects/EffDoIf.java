@@ -3,6 +3,7 @@ package io.github.syst3ms.skriptparser.effects;
 import io.github.syst3ms.skriptparser.Parser;
 import io.github.syst3ms.skriptparser.lang.Effect;
 import io.github.syst3ms.skriptparser.lang.Expression;
+import io.github.syst3ms.skriptparser.lang.Statement;
 import io.github.syst3ms.skriptparser.lang.TriggerContext;
 import io.github.syst3ms.skriptparser.log.ErrorType;
 import io.github.syst3ms.skriptparser.parsing.ParseContext;
@@ -53,7 +54,7 @@ public class EffDoIf extends Effect {
     @Override
     public void execute(TriggerContext ctx) {
         if (condition.getSingle(ctx).filter(b -> b).isPresent())
-            effect.walk(ctx);
+            Statement.runStep(effect, ctx);
     }
 
     @Override
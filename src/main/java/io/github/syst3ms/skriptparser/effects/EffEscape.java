@@ -46,20 +46,21 @@ public class EffEscape extends Effect {
 
     @SuppressWarnings("unchecked")
     @Override
-    public Optional<? extends Statement> walk(TriggerContext ctx) {
+    @Nullable
+    public Statement step(TriggerContext ctx) {
         if (amount.getSingle(ctx).isEmpty())
-            return getNext();
+            return nextStatement();
         var am = amount.getSingle(ctx).get().intValue(); // BigInteger can convert to int.
 
         Optional<Statement> current = Optional.of(this);
         while (am > 0) {
             if (current.isEmpty()) {
-                return Optional.empty();
+                return null;
             }
             current = (Optional<Statement>) current.get().getNext();
             am--;
         }
-        return current.flatMap(Statement::getNext);
+        return current.map(Statement::nextStatement).orElse(null);
     }
 
     @Override
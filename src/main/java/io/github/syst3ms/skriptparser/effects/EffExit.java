@@ -61,20 +61,22 @@ public class EffExit extends Effect {
     }
 
     @Override
-    public Optional<? extends Statement> walk(TriggerContext ctx) {
+    @Nullable
+    public Statement step(TriggerContext ctx) {
         switch (pattern) {
             case 0:
-                return Optional.empty();
+                return null;
             case 1:
-                return escapeSections(1, this);
+                return escapeSections(1, this).orElse(null);
             case 2:
                 return amount.getSingle()
-                        .flatMap(sec -> escapeSections(sec.intValue(), this));
+                        .flatMap(sec -> escapeSections(sec.intValue(), this))
+                        .orElse(null);
             case 3:
                 // The current Trigger itself is also a part of the current sections!
-                return escapeSections(currentSections.size() - 1, this);
+                return escapeSections(currentSections.size() - 1, this).orElse(null);
         }
-        return Optional.empty();
+        return null;
     }
 
     @Override
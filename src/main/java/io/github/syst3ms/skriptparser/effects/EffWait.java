@@ -4,14 +4,13 @@ import io.github.syst3ms.skriptparser.Parser;
 import io.github.syst3ms.skriptparser.lang.*;
 import io.github.syst3ms.skriptparser.parsing.ParseContext;
 import io.github.syst3ms.skriptparser.util.ThreadUtils;
-import io.github.syst3ms.skriptparser.util.TimeUtils;
+import io.github.syst3ms.skriptparser.variables.ConditionWatcher;
 import org.jetbrains.annotations.Nullable;
 
 import java.time.Duration;
 import java.util.Optional;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.TimeUnit;
-import java.util.function.Consumer;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
 
 /**
  * Waits a certain duration and then executes all the code after this effect.
@@ -19,6 +18,8 @@ import java.util.function.Consumer;
  * When using the {@code wait while %=boolean%} effect, if the condition is never met,
  * the program could go to a recursive state, never escaping from an infinite loop.
  * This is why we advice you to give a limit.
+ * The condition is checked once per tick, or only after one of the variables it depends on changed if it only
+ * depends on global variables.
  *
  * @name Wait
  * @pattern (wait|halt) [for] %duration%
@@ -39,6 +40,8 @@ public class EffWait extends Effect {
     private Expression<Boolean> condition;
     private boolean isConditional;
     private boolean negated;
+    @Nullable
+    private Set<String> dependencies;
 
     @SuppressWarnings("unchecked")
     @Override
@@ -49,6 +52,7 @@ public class EffWait extends Effect {
             if (expressions.length == 2)
                 duration = (Literal<Duration>) expressions[1];
             negated = parseContext.getParseMark() == 0;
+            dependencies = ConditionWatcher.findDependencies(condition).orElse(null);
         } else {
             duration = (Expression<Duration>) expressions[0];
         }
@@ -60,57 +64,85 @@ public class EffWait extends Effect {
         throw new UnsupportedOperationException();
     }
 
-    @SuppressWarnings("unchecked")
     @Override
-    public Optional<? extends Statement> walk(TriggerContext ctx) {
-        if (getNext().isEmpty())
-            return Optional.empty();
+    @Nullable
+    public Statement step(TriggerContext ctx) {
+        if (nextStatement() == null)
+            return null;
+        if (ThreadUtils.isVirtualThread())
+            return block(ctx);
 
         if (isConditional) {
-            var cond = condition.getSingle(ctx);
-            // The code we want to run each check.
-            Consumer<ExecutorService> code = exec -> {
-                if (cond.filter(b -> negated == b).isPresent()) {
-                    Statement.runAll(getNext().get(), ctx);
-                    exec.shutdownNow();
-                }
-            };
-
-            if (duration == null) {
-                var thread = ThreadUtils.buildPeriodic();
-                thread.scheduleAtFixedRate(
-                        () -> code.accept(thread),
-                        0,
-                        TimeUtils.TICK.toMillis(),
-                        TimeUnit.MILLISECONDS
-                );
-            } else {
-                var dur = ((Optional<Duration>) ((Literal<Duration>) duration).getSingle()).orElse(Duration.ZERO);
-                long millis = dur.toMillis();
-                var thread = ThreadUtils.buildPeriodic();
-                thread.scheduleAtFixedRate(
-                        () -> code.accept(thread),
-                        0,
-                        TimeUtils.TICK.toMillis(),
-                        TimeUnit.MILLISECONDS
-                );
-                thread.schedule(
-                        () -> {
-                            Statement.runAll(getNext().get(), ctx);
-                            thread.shutdownNow();
-                        },
-                        millis,
-                        TimeUnit.MILLISECONDS
-                );
-            }
+            if (isMet(ctx))
+                return nextStatement();
+            // The code after this effect must only run once, either when the condition is met or after the limit
+            Runnable resume = () -> ThreadUtils.runAsync(() -> Statement.runAll(getNext().get(), ctx));
+            ConditionWatcher.watch(
+                    Optional.ofNullable(dependencies),
+                    watch -> {
+                        if (isMet(ctx) && watch.cancel())
+                            resume.run();
+                    },
+                    getLimit(),
+                    resume
+            );
         } else {
             Optional<? extends Duration> dur = duration.getSingle(ctx);
             if (dur.isEmpty())
-                return getNext();
+                return nextStatement();
 
             ThreadUtils.runAfter(() -> Statement.runAll(getNext().get(), ctx), dur.get());
         }
-        return Optional.empty();
+        return null;
+    }
+
+    // The condition is evaluated again each time, as its value may have changed since the last check
+    private boolean isMet(TriggerContext ctx) {
+        return condition.getSingle(ctx).filter(b -> negated == b).isPresent();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Nullable
+    private Duration getLimit() {
+        return duration == null
+                ? null
+                : ((Optional<Duration>) ((Literal<Duration>) duration).getSingle()).orElse(Duration.ZERO);
+    }
+
+    /*
+     * Blocking a virtual thread is cheap, so the code after this effect can simply run on the same thread afterwards,
+     * instead of being scheduled to run later
+     */
+    @Nullable
+    private Statement block(TriggerContext ctx) {
+        try {
+            if (isConditional && !isMet(ctx)) {
+                var latch = new CountDownLatch(1);
+                var watch = ConditionWatcher.watch(
+                        Optional.ofNullable(dependencies),
+                        w -> {
+                            if (isMet(ctx) && w.cancel())
+                                latch.countDown();
+                        },
+                        getLimit(),
+                        latch::countDown
+                );
+                try {
+                    latch.await();
+                } finally {
+                    watch.cancel();
+                }
+            } else if (!isConditional) {
+                Optional<? extends Duration> dur = duration.getSingle(ctx);
+                if (dur.isPresent())
+                    Thread.sleep(dur.get().toMillis());
+            }
+        } catch (InterruptedException e) {
+            // The trigger is being stopped
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        return nextStatement();
     }
 
     @Override
@@ -5,11 +5,16 @@ import io.github.syst3ms.skriptparser.lang.Expression;
 import io.github.syst3ms.skriptparser.lang.SkriptEvent;
 import io.github.syst3ms.skriptparser.lang.TriggerContext;
 import io.github.syst3ms.skriptparser.parsing.ParseContext;
+import io.github.syst3ms.skriptparser.variables.ConditionWatcher;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Optional;
+import java.util.Set;
+
 /**
  * This event will check against a certain condition and will trigger when the condition is met.
- * Note that this condition is checked each tick, which is defined as 50ms.
+ * If the condition only depends on global variables, it is checked again whenever one of these variables changes,
+ * at most once per tick, which is defined as 50ms. Otherwise, it is checked each tick.
  *
  * @name When
  * @type EVENT
@@ -27,19 +32,31 @@ public class EvtWhen extends SkriptEvent {
     }
 
     private Expression<Boolean> condition;
+    @Nullable
+    private Set<String> dependencies;
 
     @SuppressWarnings("unchecked")
     @Override
     public boolean init(Expression<?>[] expressions, int matchedPattern, ParseContext parseContext) {
         condition = (Expression<Boolean>) expressions[0];
+        dependencies = ConditionWatcher.findDependencies(condition).orElse(null);
         return true;
     }
 
     @Override
     public boolean check(TriggerContext ctx) {
-        if (condition.getSingle(ctx).isEmpty())
-            return false;
-        return ctx instanceof WhenContext && condition.getSingle(ctx).get();
+        return ctx instanceof WhenContext && condition.getSingle(ctx).filter(b -> b).isPresent();
+    }
+
+    /**
+     * Finds out what the condition of this event depends on. If it only depends on global variables, it only needs
+     * to be checked again when one of them changes.
+     * @return the first part of the names of the global variables the condition depends on, or an empty
+     *         {@link Optional} if it depends on something else, and must be checked each tick
+     * @see ConditionWatcher#findDependencies(Expression)
+     */
+    public Optional<Set<String>> getDependencies() {
+        return Optional.ofNullable(dependencies);
     }
 
     @Override
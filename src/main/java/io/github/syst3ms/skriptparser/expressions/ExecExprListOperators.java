@@ -3,6 +3,7 @@ package io.github.syst3ms.skriptparser.expressions;
 import io.github.syst3ms.skriptparser.Parser;
 import io.github.syst3ms.skriptparser.lang.Expression;
 import io.github.syst3ms.skriptparser.lang.TriggerContext;
+import io.github.syst3ms.skriptparser.lang.Variable;
 import io.github.syst3ms.skriptparser.lang.base.ExecutableExpression;
 import io.github.syst3ms.skriptparser.log.ErrorType;
 import io.github.syst3ms.skriptparser.parsing.ParseContext;
@@ -120,6 +121,12 @@ public class ExecExprListOperators extends ExecutableExpression<Object> {
 
 	@Override
 	public Object[] getAppliedValues(TriggerContext ctx) {
+		if ((type == 0 || type == 1) && list instanceof Variable) {
+			// Most lists can give away their first or last element without being rebuilt
+			var polled = ((Variable<?>) list).poll(ctx, type == 1);
+			if (polled != null)
+				return polled.length == 0 ? new Object[0] : new Object[] {polled[0]};
+		}
 		var values = list.getValues(ctx);
 		if (values.length == 0)
 			return new Object[0];
@@ -207,7 +207,7 @@ public class ExprArithmeticOperators implements Expression<Number> {
 
     @Override
     public Expression<? extends Number> simplify() {
-        if (first instanceof Literal && second instanceof Literal)
+        if (Literal.isConstant(first) && Literal.isConstant(second))
             return new SimpleLiteral<>(Number.class, getValues(TriggerContext.DUMMY));
         return this;
     }
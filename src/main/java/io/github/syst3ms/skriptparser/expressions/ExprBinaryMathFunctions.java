@@ -2,6 +2,8 @@ package io.github.syst3ms.skriptparser.expressions;
 
 import io.github.syst3ms.skriptparser.Parser;
 import io.github.syst3ms.skriptparser.lang.Expression;
+import io.github.syst3ms.skriptparser.lang.Literal;
+import io.github.syst3ms.skriptparser.lang.SimpleLiteral;
 import io.github.syst3ms.skriptparser.lang.TriggerContext;
 import io.github.syst3ms.skriptparser.parsing.ParseContext;
 import io.github.syst3ms.skriptparser.registration.PatternInfos;
@@ -72,6 +74,13 @@ public class ExprBinaryMathFunctions implements Expression<Number> {
 		return args.mapToOptional((f, s) -> new Number[] {operator.apply(f, s)}).orElse(new Number[0]);
 	}
 
+	@Override
+	public Expression<? extends Number> simplify() {
+		if (Literal.isConstant(first) && Literal.isConstant(second))
+			return new SimpleLiteral<>(Number.class, getValues(TriggerContext.DUMMY));
+		return this;
+	}
+
 	@Override
 	public String toString(@Nullable TriggerContext ctx, boolean debug) {
 		if (pattern == 0) {
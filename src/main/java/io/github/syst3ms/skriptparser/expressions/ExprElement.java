@@ -3,6 +3,7 @@ package io.github.syst3ms.skriptparser.expressions;
 import io.github.syst3ms.skriptparser.Parser;
 import io.github.syst3ms.skriptparser.lang.Expression;
 import io.github.syst3ms.skriptparser.lang.TriggerContext;
+import io.github.syst3ms.skriptparser.lang.Variable;
 import io.github.syst3ms.skriptparser.parsing.ParseContext;
 import io.github.syst3ms.skriptparser.util.math.NumberMath;
 import org.jetbrains.annotations.Nullable;
@@ -77,6 +78,21 @@ public class ExprElement implements Expression<Object> {
 
 	@Override
 	public Object[] getValues(TriggerContext ctx) {
+		if (expr instanceof Variable && !expr.isSingle() && (pattern == 0 && parseMark != 2 || pattern == 3)) {
+			// Most lists can give a single element without going through all of them
+			long position;
+			if (pattern == 0 && parseMark != 3) {
+				position = parseMark == 0 ? 1 : -1;
+			} else {
+				var r = range.getSingle(ctx);
+				if (r.isEmpty() || r.get().signum() <= 0)
+					return new Object[0];
+				position = r.get().bitLength() < 64 ? r.get().longValue() : Long.MAX_VALUE;
+			}
+			var element = ((Variable<?>) expr).getElement(ctx, position);
+			if (element != null)
+				return element.length == 0 ? new Object[0] : new Object[] {element[0]};
+		}
 		Object[] values = expr.getValues(ctx);
 		if (values.length == 0)
 			return new Object[0];
@@ -2,6 +2,8 @@ package io.github.syst3ms.skriptparser.expressions;
 
 import io.github.syst3ms.skriptparser.Parser;
 import io.github.syst3ms.skriptparser.lang.Expression;
+import io.github.syst3ms.skriptparser.lang.Literal;
+import io.github.syst3ms.skriptparser.lang.SimpleLiteral;
 import io.github.syst3ms.skriptparser.lang.TriggerContext;
 import io.github.syst3ms.skriptparser.log.ErrorType;
 import io.github.syst3ms.skriptparser.log.SkriptLogger;
@@ -15,6 +17,7 @@ import io.github.syst3ms.skriptparser.util.CollectionUtils;
 import io.github.syst3ms.skriptparser.util.DoubleOptional;
 import org.jetbrains.annotations.Nullable;
 
+import java.math.BigDecimal;
 import java.util.function.BiFunction;
 
 /**
@@ -26,6 +29,9 @@ import java.util.function.BiFunction;
  * @author Syst3ms
  */
 public class ExprRange implements Expression<Object> {
+    // Larger ranges aren't worth keeping in memory
+    private static final int MAX_SIMPLIFIED_SIZE = 1024;
+
     private Expression<?> from, to;
     private RangeInfo<?, ?> range;
 
@@ -73,6 +79,22 @@ public class ExprRange implements Expression<Object> {
         return range.getTo();
     }
 
+    @SuppressWarnings("unchecked")
+    @Override
+    public Expression<?> simplify() {
+        if (!Literal.isConstant(from) || !Literal.isConstant(to))
+            return this;
+        var numericSize = DoubleOptional.ofOptional(from.getSingle(TriggerContext.DUMMY), to.getSingle(TriggerContext.DUMMY))
+                .filter((f, t) -> f instanceof Number && t instanceof Number)
+                .mapToOptional((f, t) -> new BigDecimal(f.toString()).subtract(new BigDecimal(t.toString())).abs());
+        if (numericSize.filter(s -> s.compareTo(BigDecimal.valueOf(MAX_SIMPLIFIED_SIZE)) >= 0).isPresent())
+            return this;
+        var values = getValues(TriggerContext.DUMMY);
+        if (values.length > MAX_SIMPLIFIED_SIZE)
+            return this;
+        return new SimpleLiteral<>((Class<Object>) getReturnType(), values);
+    }
+
     @Override
     public String toString(@Nullable TriggerContext ctx, boolean debug) {
         return "range from " + from.toString(ctx, debug) + " to " + to.toString(ctx, debug);
@@ -2,6 +2,8 @@ package io.github.syst3ms.skriptparser.expressions;
 
 import io.github.syst3ms.skriptparser.Parser;
 import io.github.syst3ms.skriptparser.lang.Expression;
+import io.github.syst3ms.skriptparser.lang.Literal;
+import io.github.syst3ms.skriptparser.lang.SimpleLiteral;
 import io.github.syst3ms.skriptparser.lang.TriggerContext;
 import io.github.syst3ms.skriptparser.parsing.ParseContext;
 import io.github.syst3ms.skriptparser.util.StringUtils;
@@ -140,6 +142,13 @@ public class ExprStringCase implements Expression<String> {
 				.toArray(String[]::new);
 	}
 
+	@Override
+	public Expression<? extends String> simplify() {
+		if (Literal.isConstant(expr))
+			return new SimpleLiteral<>(String.class, getValues(TriggerContext.DUMMY));
+		return this;
+	}
+
 	@Override
 	public String toString(@Nullable TriggerContext ctx, boolean debug) {
 		switch (type) {
@@ -2,6 +2,8 @@ package io.github.syst3ms.skriptparser.expressions;
 
 import io.github.syst3ms.skriptparser.Parser;
 import io.github.syst3ms.skriptparser.lang.Expression;
+import io.github.syst3ms.skriptparser.lang.Literal;
+import io.github.syst3ms.skriptparser.lang.SimpleLiteral;
 import io.github.syst3ms.skriptparser.lang.TriggerContext;
 import io.github.syst3ms.skriptparser.parsing.ParseContext;
 import io.github.syst3ms.skriptparser.registration.PatternInfos;
@@ -86,6 +88,13 @@ public class ExprUnaryMathFunctions implements Expression<Number> {
 				.orElse(new Number[0]);
 	}
 
+	@Override
+	public Expression<? extends Number> simplify() {
+		if (Literal.isConstant(number))
+			return new SimpleLiteral<>(Number.class, getValues(TriggerContext.DUMMY));
+		return this;
+	}
+
 	@Override
 	public String toString(@Nullable TriggerContext ctx, boolean debug) {
 		/*
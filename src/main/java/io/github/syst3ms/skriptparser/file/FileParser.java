@@ -3,6 +3,7 @@ package io.github.syst3ms.skriptparser.file;
 import io.github.syst3ms.skriptparser.log.ErrorType;
 import io.github.syst3ms.skriptparser.log.SkriptLogger;
 import io.github.syst3ms.skriptparser.util.FileUtils;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -30,14 +31,8 @@ public class FileParser {
         List<FileElement> elements = new ArrayList<>();
         for (var i = 0; i < lines.size(); i++) {
             var line = lines.get(i);
-            String content;
-            var m = LINE_PATTERN.matcher(line);
-            if (m.matches()) {
-                content = m.group(1).replace("##", "#").strip();
-            } else {
-                content = line.replace("##", "#").strip();
-            }
-            if (content.matches("[\\s#]*")) {
+            var content = getContent(line);
+            if (content == null) {
                 elements.add(new VoidElement(fileName, lastLine + i, expectedIndentation));
                 continue;
             }
@@ -73,6 +68,40 @@ public class FileParser {
         return elements;
     }
 
+    /*
+     * Equivalent to matching LINE_PATTERN, unescaping "##" and stripping the result. A comment starts at the last '#'
+     * of the first run of an odd amount of '#'. Returns null if only whitespace and '#' are left.
+     */
+    @Nullable
+    private static String getContent(String line) {
+        var end = line.length();
+        var escaped = false;
+        for (var i = 0; i < line.length(); i++) {
+            if (line.charAt(i) != '#')
+                continue;
+            var runEnd = i + 1;
+            while (runEnd < line.length() && line.charAt(runEnd) == '#')
+                runEnd++;
+            if (runEnd - i > 1)
+                escaped = true;
+            if ((runEnd - i) % 2 == 1) {
+                end = runEnd - 1;
+                break;
+            }
+            i = runEnd - 1;
+        }
+        var content = line.substring(0, end);
+        if (escaped)
+            content = content.replace("##", "#");
+        content = content.strip();
+        for (var i = 0; i < content.length(); i++) {
+            var c = content.charAt(i);
+            if (c != '#' && !FileUtils.isWhitespace(c))
+                return content;
+        }
+        return null;
+    }
+
     private int count(List<FileElement> elements) {
         var count = 0;
         for (var element : elements) {
@@ -26,15 +26,17 @@ public class FileSection extends FileElement {
     public int length() {
         if (length >= 0)
             return length;
-        length = 0;
+        // Only publish the final result, this may be called from multiple threads
+        var result = 0;
         for (var e : elements) {
             if (e instanceof FileSection) {
-                length += ((FileSection) e).length() + 1;
+                result += ((FileSection) e).length() + 1;
             } else {
-                length++;
+                result++;
             }
         }
-        return length;
+        length = result;
+        return result;
     }
 
     @Override
@@ -10,6 +10,7 @@ import io.github.syst3ms.skriptparser.parsing.ScriptLoader;
 import io.github.syst3ms.skriptparser.sections.SecLoop;
 import io.github.syst3ms.skriptparser.sections.SecWhile;
 import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.Collections;
 import java.util.List;
@@ -32,6 +33,15 @@ public abstract class CodeSection extends Statement {
     protected Statement first;
     protected Statement last;
 
+    /**
+     * @throws IllegalStateException if this section overrides neither {@link #step(TriggerContext)} nor
+     *                               {@link #walk(TriggerContext)}, in which case it couldn't run its contents
+     */
+    protected CodeSection() {
+        if (hasDefaultStep(getClass()))
+            throw new IllegalStateException(getClass().getName() + " must override either step or walk");
+    }
+
     /**
      * This methods determines the logic of what is being done to the elements inside of this section.
      * By default, this simply parses all items inside it, but this can be overridden.
@@ -57,9 +67,6 @@ public abstract class CodeSection extends Statement {
         throw new UnsupportedOperationException();
     }
 
-    @Override
-    public abstract Optional<? extends Statement> walk(TriggerContext ctx);
-
     /**
      * Sets the items inside this lists, and also modifies other fields, reflected through the outputs of {@link #getFirst()},
      * {@link #getLast()} and {@link Statement#getParent()}.
@@ -89,7 +96,17 @@ public abstract class CodeSection extends Statement {
      * no item after this section, in the latter case
      */
     public final Optional<? extends Statement> getFirst() {
-        return Optional.ofNullable(first).or(this::getNext);
+        return Optional.ofNullable(firstStatement());
+    }
+
+    /**
+     * Same as {@link #getFirst()}, without wrapping the result in an {@link Optional}
+     * @return the first item of this section, or the item after the section if it's empty, or {@code null} if there is
+     * no item after this section, in the latter case
+     */
+    @Nullable
+    public final Statement firstStatement() {
+        return first != null ? first : nextStatement();
     }
 
     /**
@@ -0,0 +1,147 @@
+package io.github.syst3ms.skriptparser.lang;
+
+import io.github.syst3ms.skriptparser.registration.SkriptAddon;
+import io.github.syst3ms.skriptparser.sections.SecWhile;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link Trigger} flattened into an array of instructions, where the statement that runs after each instruction
+ * is resolved once, when the trigger is loaded, instead of being looked up through the tree on every step.
+ *
+ * Plain statements, {@link Conditional}s and {@link SecWhile}s are understood directly. Any other statement is run
+ * through {@link Statement#step(TriggerContext)}, and execution carries on at whatever it returns.
+ */
+class CompiledTrigger {
+    // Calls the walking addons, then Statement#run
+    private static final byte RUN = 0;
+    // Tests a condition, then jumps to the first target if it's true, and to the second otherwise
+    private static final byte CONDITION = 1;
+    // Jumps to the first target
+    private static final byte JUMP = 2;
+    // Calls Statement#step
+    private static final byte STEP = 3;
+
+    private final Statement[] statements;
+    private final byte[] opcodes;
+    private final Expression<?>[] conditions;
+    private final int[] targets;
+    private final int[] alternatives;
+    private final Map<Statement, Integer> indices = new IdentityHashMap<>();
+
+    CompiledTrigger(Trigger trigger) {
+        List<Statement> flattened = new ArrayList<>();
+        flatten(trigger, flattened);
+        var size = flattened.size();
+        statements = flattened.toArray(new Statement[0]);
+        opcodes = new byte[size];
+        conditions = new Expression<?>[size];
+        targets = new int[size];
+        alternatives = new int[size];
+        for (var i = 0; i < size; i++)
+            indices.put(statements[i], i);
+        for (var i = 0; i < size; i++) {
+            var statement = statements[i];
+            if (statement.getClass() == Conditional.class) {
+                var conditional = (Conditional) statement;
+                var condition = conditional.getCondition();
+                var first = conditional.firstStatement();
+                if (condition == null) {
+                    opcodes[i] = JUMP;
+                    targets[i] = indexOf(first);
+                } else {
+                    var fallingClause = conditional.getFallingClause();
+                    opcodes[i] = CONDITION;
+                    conditions[i] = condition;
+                    targets[i] = indexOf(first);
+                    alternatives[i] = indexOf(fallingClause != null ? fallingClause : conditional.nextStatement());
+                }
+            } else if (statement.getClass() == SecWhile.class) {
+                var loop = (SecWhile) statement;
+                opcodes[i] = CONDITION;
+                conditions[i] = loop.getCondition();
+                targets[i] = indexOf(loop.firstStatement());
+                alternatives[i] = indexOf(loop.getActualNext().orElse(null));
+            } else if (Statement.hasDefaultStep(statement.getClass())) {
+                opcodes[i] = RUN;
+                targets[i] = indexOf(statement.nextStatement());
+                alternatives[i] = statement.parent != null ? indexOf(statement.parent.nextStatement()) : -1;
+            } else {
+                opcodes[i] = STEP;
+            }
+        }
+    }
+
+    private static void flatten(Statement statement, List<Statement> flattened) {
+        flattened.add(statement);
+        if (statement instanceof CodeSection) {
+            var items = ((CodeSection) statement).items;
+            if (items != null) {
+                for (var item : items)
+                    flatten(item, flattened);
+            }
+            if (statement instanceof Conditional) {
+                var fallingClause = ((Conditional) statement).getFallingClause();
+                if (fallingClause != null)
+                    flatten(fallingClause, flattened);
+            }
+        }
+    }
+
+    /**
+     * @param statement a Statement
+     * @return the index of the instruction corresponding to the given Statement, or {@code -1} if it isn't part of
+     *         this trigger
+     */
+    int indexOf(@Nullable Statement statement) {
+        if (statement == null)
+            return -1;
+        var index = indices.get(statement);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Runs the instructions of this trigger, starting with the given Statement
+     * @param start the Statement to run first, which must be part of this trigger
+     * @param ctx the context
+     */
+    @SuppressWarnings("unchecked")
+    void execute(Statement start, TriggerContext ctx) {
+        var pc = indexOf(start);
+        assert pc != -1;
+        var walkingAddons = SkriptAddon.getWalkingAddons();
+        while (pc != -1) {
+            switch (opcodes[pc]) {
+                case RUN:
+                    for (var i = 0; i < walkingAddons.size(); i++) {
+                        walkingAddons.get(i).walkingForward();
+                    }
+                    pc = statements[pc].run(ctx) ? targets[pc] : alternatives[pc];
+                    break;
+                case CONDITION:
+                    var condition = ((Expression<Boolean>) conditions[pc]).getSingle(ctx);
+                    pc = condition.isPresent() && condition.get() ? targets[pc] : alternatives[pc];
+                    break;
+                case JUMP:
+                    pc = targets[pc];
+                    break;
+                default:
+                    var current = statements[pc];
+                    var next = current.proceed(ctx);
+                    if (next == current)
+                        break;
+                    pc = indexOf(next);
+                    if (pc == -1 && next != null) {
+                        // The statement jumped somewhere outside of this trigger, so we just follow along
+                        while (next != null)
+                            next = next.proceed(ctx);
+                    }
+                    break;
+            }
+        }
+    }
+}
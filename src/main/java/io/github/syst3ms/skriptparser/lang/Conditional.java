@@ -24,10 +24,12 @@ public class Conditional extends CodeSection {
     private final ConditionalMode mode;
     @Nullable
     private final Expression<Boolean> condition;
+    @Nullable
     private Conditional fallingClause;
 
     public Conditional(FileSection section, @Nullable Expression<Boolean> condition, ConditionalMode mode, ParserState parserState, SkriptLogger logger) {
         super.loadSection(section, parserState, logger);
+        setElement(section);
         this.condition = condition;
         this.mode = mode;
     }
@@ -40,19 +42,30 @@ public class Conditional extends CodeSection {
         return mode;
     }
 
+    @Nullable
+    Expression<Boolean> getCondition() {
+        return condition;
+    }
+
+    @Nullable
+    Conditional getFallingClause() {
+        return fallingClause;
+    }
+
     @Override
-    public Optional<? extends Statement> walk(TriggerContext ctx) {
+    @Nullable
+    public Statement step(TriggerContext ctx) {
         assert condition != null || mode == ConditionalMode.ELSE;
         if (mode == ConditionalMode.ELSE) {
-            return getFirst();
+            return firstStatement();
         }
         Optional<? extends Boolean> c = condition.getSingle(ctx);
-        if (c.filter(b -> b).isPresent()) {
-            return getFirst();
+        if (c.isPresent() && c.get()) {
+            return firstStatement();
         } else if (fallingClause != null) {
-            return Optional.of(fallingClause);
+            return fallingClause;
         } else {
-            return getNext();
+            return nextStatement();
         }
     }
 
@@ -84,12 +84,10 @@ public interface Expression<T> extends SyntaxElement {
      * be overriden.
      */
     default boolean isSingle() {
-        for (var info : SyntaxManager.getAllExpressions()) {
-            if (info.getSyntaxClass() == getClass()) {
-                return info.getReturnType().isSingle();
-            }
-        }
-        throw new SkriptParserException("Unregistered expression class : " + getClass().getName());
+        return SyntaxManager.getExpressionExact(getClass())
+                .orElseThrow(() -> new SkriptParserException("Unregistered expression class : " + getClass().getName()))
+                .getReturnType()
+                .isSingle();
     }
 
     /**
@@ -146,8 +144,12 @@ public interface Expression<T> extends SyntaxElement {
         return this;
     }
 
-    /*
-     * Maybe later.
+    /**
+     * Simplifies this expression, which is typically done by replacing it with a {@link SimpleLiteral} when all of
+     * its inputs are {@linkplain Literal#isConstant(Expression) constant}. This is called right after the expression
+     * is initialized, and since inner expressions are parsed first, they were already simplified by then.
+     * The simplified expression should return the same values as this one, in all contexts.
+     * @return the simplified expression, or this expression if it can't be simplified
      */
     default Expression<? extends T> simplify() {
         return this;
@@ -21,4 +21,13 @@ public interface Literal<T> extends Expression<T> {
     static boolean isLiteral(Expression<?> exp) {
         return exp instanceof Literal || exp instanceof VariableString && ((VariableString) exp).isSimple();
     }
+
+    /**
+     * @param exp the expression
+     * @return whether the expression always returns the same values, which isn't the case for 'or' lists of
+     * literals, whose value is picked at random
+     */
+    static boolean isConstant(Expression<?> exp) {
+        return isLiteral(exp) && (exp.isSingle() || exp.isAndList());
+    }
 }
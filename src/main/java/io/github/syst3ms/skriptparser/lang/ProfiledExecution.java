@@ -0,0 +1,108 @@
+package io.github.syst3ms.skriptparser.lang;
+
+import io.github.syst3ms.skriptparser.profiling.ExecutionMetrics;
+import io.github.syst3ms.skriptparser.profiling.Profiler;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * Runs statements one after the other like {@link Statement#runAll(Statement, TriggerContext)} does, while measuring
+ * each of them for the {@link Profiler}. A trigger is measured from the moment it starts until it's done or waits,
+ * and isn't run through its {@link CompiledTrigger}, so that time is attributed to each statement.
+ *
+ * The time of a statement includes the statements it runs itself, like the contents of a loop, but these aren't
+ * counted as its self time.
+ */
+class ProfiledExecution {
+    private static final ThreadLocal<Frames> frames = ThreadLocal.withInitial(Frames::new);
+
+    private ProfiledExecution() {}
+
+    static void execute(Statement start, TriggerContext ctx) {
+        var top = start;
+        while (top.parent != null)
+            top = top.parent;
+        // A trigger is measured as a whole here, as it only checks its event when stepping
+        var trigger = top instanceof Trigger ? metricsOf(top, null) : null;
+        var allocated = Profiler.getAllocatedBytes();
+        var time = System.nanoTime();
+        try {
+            Statement item = start;
+            while (item != null)
+                item = step(item, ctx);
+        } catch (RuntimeException | Error e) {
+            if (trigger != null)
+                trigger.recordException();
+            throw e;
+        } finally {
+            if (trigger != null && start == top)
+                trigger.record(System.nanoTime() - time, Profiler.getAllocatedBytes() - allocated);
+        }
+    }
+
+    @Nullable
+    static Statement step(Statement statement, TriggerContext ctx) {
+        var frames = ProfiledExecution.frames.get();
+        var metrics = metricsOf(statement, frames.current());
+        var depth = frames.push(metrics);
+        var allocated = Profiler.getAllocatedBytes();
+        var time = System.nanoTime();
+        var measured = !(statement instanceof Trigger);
+        try {
+            return statement.proceed(ctx);
+        } catch (RuntimeException | Error e) {
+            if (measured)
+                metrics.recordException();
+            throw e;
+        } finally {
+            var elapsed = System.nanoTime() - time;
+            metrics.addSelfTime(elapsed - frames.nested[depth]);
+            if (measured)
+                metrics.record(elapsed, Profiler.getAllocatedBytes() - allocated);
+            frames.pop(elapsed);
+        }
+    }
+
+    /*
+     * The contents of some sections, like loops, aren't linked to the section, which is only known as the statement
+     * running them
+     */
+    private static ExecutionMetrics metricsOf(Statement statement, @Nullable ExecutionMetrics running) {
+        var metrics = statement.metrics;
+        if (metrics == null)
+            statement.metrics = metrics = Profiler.getMetrics(statement, running);
+        return metrics;
+    }
+
+    /*
+     * The statements being measured on a thread, each running the next one, along with how long the statements they
+     * ran took so far
+     */
+    private static class Frames {
+        private ExecutionMetrics[] running = new ExecutionMetrics[16];
+        private long[] nested = new long[16];
+        private int depth = -1;
+
+        @Nullable
+        ExecutionMetrics current() {
+            return depth >= 0 ? running[depth] : null;
+        }
+
+        int push(ExecutionMetrics metrics) {
+            if (++depth == nested.length) {
+                running = Arrays.copyOf(running, depth * 2);
+                nested = Arrays.copyOf(nested, depth * 2);
+            }
+            running[depth] = metrics;
+            nested[depth] = 0;
+            return depth;
+        }
+
+        void pop(long elapsed) {
+            running[depth] = null;
+            if (--depth >= 0)
+                nested[depth] += elapsed;
+        }
+    }
+}
@@ -1,6 +1,9 @@
 package io.github.syst3ms.skriptparser.lang;
 
+import io.github.syst3ms.skriptparser.file.FileElement;
 import io.github.syst3ms.skriptparser.lang.base.ExecutableExpression;
+import io.github.syst3ms.skriptparser.profiling.ExecutionMetrics;
+import io.github.syst3ms.skriptparser.profiling.Profiler;
 import io.github.syst3ms.skriptparser.registration.SkriptAddon;
 import org.jetbrains.annotations.Nullable;
 
@@ -12,10 +15,55 @@ import java.util.Optional;
  * @see Effect
  */
 public abstract class Statement implements SyntaxElement {
+    /*
+     * Whether a class overrides walk on top of the class its step comes from, in which case it has to be run through
+     * walk, as running step would skip that override
+     */
+    private static final ClassValue<Boolean> WALK_OVERRIDDEN = new ClassValue<>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            try {
+                var walkClass = type.getMethod("walk", TriggerContext.class).getDeclaringClass();
+                var stepClass = type.getMethod("step", TriggerContext.class).getDeclaringClass();
+                return walkClass != Statement.class && walkClass != stepClass && stepClass.isAssignableFrom(walkClass);
+            } catch (NoSuchMethodException e) {
+                throw new AssertionError(e);
+            }
+        }
+    };
+    // Whether a class inherits the default implementation of step
+    private static final ClassValue<Boolean> STEP_INHERITED = new ClassValue<>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            try {
+                return type.getMethod("step", TriggerContext.class).getDeclaringClass() == Statement.class;
+            } catch (NoSuchMethodException e) {
+                throw new AssertionError(e);
+            }
+        }
+    };
+    // Whether a class overrides neither walk nor step
+    private static final ClassValue<Boolean> DEFAULT_STEP = new ClassValue<>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            try {
+                return type.getMethod("walk", TriggerContext.class).getDeclaringClass() == Statement.class
+                        && type.getMethod("step", TriggerContext.class).getDeclaringClass() == Statement.class;
+            } catch (NoSuchMethodException e) {
+                throw new AssertionError(e);
+            }
+        }
+    };
+
     @Nullable
     protected CodeSection parent;
     @Nullable
     protected Statement next;
+    @Nullable
+    private FileElement element;
+    // The metrics of this Statement, once it has run while profiling was enabled
+    @Nullable
+    ExecutionMetrics metrics;
 
     /**
      * Runs all code starting at a given point sequentially
@@ -24,10 +72,22 @@ public abstract class Statement implements SyntaxElement {
      * @return {@code true} if the code ran normally, and {@code false} if any exception occurred
      */
     public static boolean runAll(Statement start, TriggerContext context) {
-        Optional<? extends Statement> item = Optional.of(start);
+        Statement item = start;
         try {
-            while (item.isPresent())
-                item = item.flatMap(i -> i.walk(context));
+            if (Profiler.isEnabled()) {
+                ProfiledExecution.execute(start, context);
+                return true;
+            }
+            var top = start;
+            while (top.parent != null)
+                top = top.parent;
+            var program = top instanceof Trigger ? ((Trigger) top).getProgram() : null;
+            if (program != null && program.indexOf(start) != -1) {
+                program.execute(start, context);
+            } else {
+                while (item != null)
+                    item = item.proceed(context);
+            }
             return true;
         } catch (StackOverflowError so) {
             System.err.println("The script repeated itself infinitely !");
@@ -39,6 +99,19 @@ public abstract class Statement implements SyntaxElement {
         return false;
     }
 
+    /**
+     * Runs a single Statement through {@link #step(TriggerContext)}, measuring it if {@linkplain Profiler profiling}
+     * is enabled. Sections that run their contents by themselves, instead of returning the first of them, should use
+     * this rather than calling {@link #step(TriggerContext)} directly.
+     * @param statement the Statement
+     * @param context the context
+     * @return the next item to be ran, or {@code null} if this is the last item to be executed
+     */
+    @Nullable
+    public static Statement runStep(Statement statement, TriggerContext context) {
+        return Profiler.isEnabled() ? ProfiledExecution.step(statement, context) : statement.proceed(context);
+    }
+
     /**
      * Executes this Statement
      * @param ctx the event
@@ -62,18 +135,44 @@ public abstract class Statement implements SyntaxElement {
         return this;
     }
 
+    /**
+     * @return the line this Statement was parsed from, if it was parsed from a file
+     */
+    public Optional<FileElement> getElement() {
+        return Optional.ofNullable(element);
+    }
+
+    /**
+     * Sets the line this Statement was parsed from
+     * @param element the line
+     * @return this Statement
+     */
+    public Statement setElement(FileElement element) {
+        this.element = element;
+        return this;
+    }
+
     /**
      * @return the Statement after this one in the file. If this Statement is the last item of the section, returns the item after
      *         said section. If this Statement is the very last item of a trigger, returns {@code null}
      */
     public final Optional<? extends Statement> getNext() {
-        if (next != null) {
-            return Optional.of(next);
-        } else if (parent != null) {
-            return parent.getNext();
-        } else {
-            return Optional.empty();
+        return Optional.ofNullable(nextStatement());
+    }
+
+    /**
+     * Same as {@link #getNext()}, without wrapping the result in an {@link Optional}
+     * @return the Statement after this one, or {@code null} if this Statement is the very last item of a trigger
+     */
+    @Nullable
+    public final Statement nextStatement() {
+        var statement = this;
+        while (statement.next == null) {
+            statement = statement.parent;
+            if (statement == null)
+                return null;
         }
+        return statement.next;
     }
 
     /**
@@ -90,21 +189,65 @@ public abstract class Statement implements SyntaxElement {
      * By default, runs {@link #run(TriggerContext)} ; returns {@link #getNext()} if it returns true, or {@code null} otherwise.
      * Note that if this method is overridden, then the implementation of {@linkplain #run(TriggerContext)} doesn't matter.
      * <br>
-     * This method also calls {@link SkriptAddon#walkingForward()} for all registered addons. This
+     * This method also calls {@link SkriptAddon#walkingForward()} for all addons that override it. This
      * implementation is not particularly required, unless you are make extensive use of {@link ExecutableExpression}
      * and cache that needs to be cleared after each statement.
+     * <br>
+     * This method is a wrapper around {@link #step(TriggerContext)}, which is what code is usually run with.
+     * Overriding either of them is enough, but overriding {@link #step(TriggerContext)} avoids allocating an
+     * {@link Optional} on every step. An override of this method may call {@code super.walk(ctx)} to run the nearest
+     * implementation of {@link #step(TriggerContext)}, such as the one of a built-in section it extends. Statements
+     * overriding this method on top of such a class are run through this method rather than through
+     * {@link #step(TriggerContext)}.
      * @param ctx the event
      * @return the next item to be ran, or {@code null} if this is the last item to be executed
      */
     public Optional<? extends Statement> walk(TriggerContext ctx) {
-        SkriptAddon.getAddons().forEach(SkriptAddon::walkingForward);
+        // The default step would come back here
+        return Optional.ofNullable(STEP_INHERITED.get(getClass()) ? runDefault(ctx) : step(ctx));
+    }
+
+    /**
+     * Same as {@link #walk(TriggerContext)}, without wrapping the result in an {@link Optional}.
+     * @param ctx the event
+     * @return the next item to be ran, or {@code null} if this is the last item to be executed
+     */
+    @Nullable
+    public Statement step(TriggerContext ctx) {
+        if (WALK_OVERRIDDEN.get(getClass()))
+            return walk(ctx).orElse(null);
+        return runDefault(ctx);
+    }
+
+    /*
+     * Runs either step or walk, depending on which one the class of this Statement overrides last
+     */
+    @Nullable
+    final Statement proceed(TriggerContext ctx) {
+        return WALK_OVERRIDDEN.get(getClass()) ? walk(ctx).orElse(null) : step(ctx);
+    }
+
+    @Nullable
+    private Statement runDefault(TriggerContext ctx) {
+        var walkingAddons = SkriptAddon.getWalkingAddons();
+        for (var i = 0; i < walkingAddons.size(); i++) {
+            walkingAddons.get(i).walkingForward();
+        }
         var proceed = run(ctx);
         if (proceed) {
-            return getNext();
+            return nextStatement();
         } else if (parent != null) {
-            return parent.getNext();
+            return parent.nextStatement();
         } else {
-            return Optional.empty();
+            return null;
         }
     }
+
+    /**
+     * @param type a subclass of Statement
+     * @return whether the given class relies on the default implementation of {@link #step(TriggerContext)}
+     */
+    static boolean hasDefaultStep(Class<? extends Statement> type) {
+        return DEFAULT_STEP.get(type);
+    }
 }
@@ -6,14 +6,14 @@ import io.github.syst3ms.skriptparser.parsing.ParseContext;
 import io.github.syst3ms.skriptparser.parsing.ParserState;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.Optional;
-
 /**
  * A top-level section, that is not contained in code.
  * Usually declares an event.
  */
 public class Trigger extends CodeSection {
     private final SkriptEvent event;
+    @Nullable
+    private CompiledTrigger program;
 
     public Trigger(SkriptEvent event) {
         this.event = event;
@@ -26,17 +26,21 @@ public class Trigger extends CodeSection {
 
     @Override
     public boolean loadSection(FileSection section, ParserState parserState, SkriptLogger logger) {
+        setElement(section);
         parserState.setSyntaxRestrictions(event.getAllowedSyntaxes(), event.isRestrictingExpressions());
         parserState.addCurrentSection(this);
         setItems(event.loadSection(section, parserState, logger));
         parserState.removeCurrentSection();
         parserState.clearSyntaxRestrictions();
+        program = new CompiledTrigger(this);
         return true;
     }
 
     @Override
-    public Optional<? extends Statement> walk(TriggerContext ctx) {
-        return getFirst().filter(__ -> event.check(ctx));
+    @Nullable
+    public Statement step(TriggerContext ctx) {
+        var first = firstStatement();
+        return first != null && event.check(ctx) ? first : null;
     }
 
     @Override
@@ -47,4 +51,12 @@ public class Trigger extends CodeSection {
     public SkriptEvent getEvent() {
         return event;
     }
+
+    /**
+     * @return this trigger as a flat array of instructions, or {@code null} if it hasn't been loaded yet
+     */
+    @Nullable
+    CompiledTrigger getProgram() {
+        return program;
+    }
 }
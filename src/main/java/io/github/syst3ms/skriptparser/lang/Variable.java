@@ -11,6 +11,7 @@ import io.github.syst3ms.skriptparser.types.comparisons.Comparators;
 import io.github.syst3ms.skriptparser.types.comparisons.Relation;
 import io.github.syst3ms.skriptparser.types.conversions.Converters;
 import io.github.syst3ms.skriptparser.util.ClassUtils;
+import io.github.syst3ms.skriptparser.util.CollectionUtils;
 import io.github.syst3ms.skriptparser.util.Pair;
 import io.github.syst3ms.skriptparser.util.math.NumberMath;
 import io.github.syst3ms.skriptparser.variables.Variables;
@@ -31,6 +32,11 @@ public class Variable<T> implements Expression<T> {
     private final boolean list;
     private final Class<?> type;
     private final Class<?> supertype;
+    // The slot of this variable, if it's local and its name is known at parse time
+    private final int slot;
+    // The parts of the name of this variable, if it's known at parse time
+    @Nullable
+    private final String[] path;
 
     public Variable(VariableString name, boolean local, boolean list, Class<?> type) {
         this.name = name;
@@ -38,39 +44,33 @@ public class Variable<T> implements Expression<T> {
         this.list = list;
         this.type = type;
         this.supertype = ClassUtils.getCommonSuperclass(this.type);
+        if (name.isSimple()) {
+            var n = name.toString(TriggerContext.DUMMY);
+            this.slot = local && !list ? Variables.getLocalSlot(n) : -1;
+            this.path = Variables.splitPath(n);
+        } else {
+            this.slot = -1;
+            this.path = null;
+        }
     }
 
     public Optional<Object> getRaw(TriggerContext ctx) {
-        var n = name.toString(ctx);
-        if (n.endsWith(Variables.LIST_SEPARATOR + "*") != list) // prevents e.g. {%expr%} where "%expr%" ends with "::*" from returning a Map
-            return Optional.empty();
-        return Variables.getVariable(n, ctx, local)
-                .or(() -> Variables.getVariable(
-                        (local ? Variables.LOCAL_VARIABLE_TOKEN : "") + name.defaultVariableName(),
-                        ctx,
-                        false
-                    )
-                );
-    }
-
-    private Optional<Object> get(TriggerContext ctx) {
-        var val = getRaw(ctx);
-        if (!list)
-            return val;
-        if (val.isEmpty())
-            return Optional.of(Array.newInstance(type, 0));
-        List<Object> l = new ArrayList<>();
-        for (Map.Entry<String, ?> v : ((Map<String, ?>) val.get()).entrySet()) {
-            if (v.getKey() != null && v.getValue() != null) {
-                Object o;
-                if (v.getValue() instanceof Map)
-                    o = ((Map<String, ?>) v.getValue()).get(null);
-                else
-                    o = v.getValue();
-                l.add(o);
-            }
+        Optional<Object> value;
+        if (slot != -1) {
+            value = Variables.getLocalVariable(slot, ctx);
+        } else if (path != null) {
+            value = Variables.getVariable(path, ctx, local);
+        } else {
+            var n = name.toString(ctx);
+            if (n.endsWith(Variables.LIST_SEPARATOR + "*") != list) // prevents e.g. {%expr%} where "%expr%" ends with "::*" from returning a Map
+                return Optional.empty();
+            value = Variables.getVariable(n, ctx, local);
         }
-        return Optional.ofNullable(l.toArray());
+        return value.or(() -> Variables.getVariable(
+                (local ? Variables.LOCAL_VARIABLE_TOKEN : "") + name.defaultVariableName(),
+                ctx,
+                false
+        ));
     }
 
     @Override
@@ -87,12 +87,31 @@ public class Variable<T> implements Expression<T> {
     }
 
     private Optional<? extends T> getConverted(TriggerContext ctx) {
-        return (Optional<? extends T>) Converters.convert(get(ctx).orElse(null), type);
+        return (Optional<? extends T>) Converters.convert(getRaw(ctx).orElse(null), type);
     }
 
-    @SuppressWarnings("ConstantConditions")
+    /*
+     * Elements are converted as the list is read, instead of copying the list and then converting the copy. Elements
+     * that are lists themselves are replaced by their own value, which is null if they have none : such elements are
+     * only kept when no conversion is needed.
+     */
     private T[] getConvertedArray(TriggerContext ctx) {
-        return Converters.convertArray((Object[]) get(ctx).orElse(null), (Class<T>) type, (Class<T>) supertype);
+        var val = getRaw(ctx);
+        if (val.isEmpty())
+            return (T[]) Array.newInstance(supertype, 0);
+        var convert = !type.isAssignableFrom(Object.class);
+        List<T> l = new ArrayList<>();
+        for (Map.Entry<String, ?> v : ((Map<String, ?>) val.get()).entrySet()) {
+            if (v.getKey() == null)
+                continue;
+            var o = v.getValue() instanceof Map ? ((Map<String, ?>) v.getValue()).get(null) : v.getValue();
+            if (!convert) {
+                l.add((T) o);
+            } else if (o != null) {
+                Converters.convert(o, (Class<T>) type).ifPresent(l::add);
+            }
+        }
+        return l.toArray((T[]) Array.newInstance(supertype, l.size()));
     }
 
     @Override
@@ -110,41 +129,48 @@ public class Variable<T> implements Expression<T> {
         return s.equalsIgnoreCase("var") || s.equalsIgnoreCase("variable") || s.equalsIgnoreCase("value") || s.equalsIgnoreCase("index");
     }
 
+    /**
+     * @return whether this variable is local
+     */
+    public boolean isLocal() {
+        return local;
+    }
+
+    /**
+     * @return the name of this variable, which may contain expressions
+     */
+    public VariableString getName() {
+        return name;
+    }
+
     public boolean isIndexLoop(String s) {
         return s.equalsIgnoreCase("index");
     }
 
+    /**
+     * Iterates over the elements of this list as they are read, without copying the list first. The iteration stops
+     * at the last index the list had when it started, so that elements added to the end of the list, for example from
+     * a loop over the list itself, aren't iterated over. Elements changed before being reached are seen with their new
+     * value, and elements deleted before being reached aren't seen. Shifting the list renumbers the elements that are
+     * left without disturbing the iteration, but whether setting or deleting the whole list is seen by an iteration
+     * that already started is unspecified. Elements that are lists themselves are skipped.
+     * @param ctx the event
+     * @return an {@link Iterator} over the elements of this list, or over the value of this variable if it isn't a list
+     */
+    @Override
     public Iterator<T> iterator(TriggerContext ctx) {
         if (!list)
-            throw new SkriptRuntimeException("");
-        var n = this.name.toString(ctx);
-        var name = n.substring(0, n.length() - 1);
-        var val = Variables.getVariable(name + "*", ctx, local);
-        if (val.isEmpty())
-            return Collections.emptyIterator();
-        assert val.get() instanceof TreeMap;
-        // temporary list to prevent CMEs
-        var keys = new ArrayList<>(((Map<String, Object>) val.get()).keySet()).iterator();
+            return CollectionUtils.iterator(getValues(ctx));
+        var entries = entries(ctx);
         return new Iterator<>() {
-            @Nullable
-            private String key;
             @Nullable
             private T next;
 
             @Override
             public boolean hasNext() {
-                if (next != null)
-                    return true;
-                while (keys.hasNext()) {
-                    key = keys.next();
-                    if (key != null) {
-                        next = (T) Converters.convert(Variables.getVariable(name + key, ctx, local), type).orElse(null);
-                        if (next != null && !(next instanceof TreeMap))
-                            return true;
-                    }
-                }
-                next = null;
-                return false;
+                while (next == null && entries.hasNext())
+                    next = (T) Converters.convert(entries.next().getValue(), type).orElse(null);
+                return next != null;
             }
 
             @Override
@@ -156,66 +182,63 @@ public class Variable<T> implements Expression<T> {
                 next = null;
                 return n;
             }
-
-            @Override
-            public void remove() {
-                throw new UnsupportedOperationException();
-            }
         };
     }
 
     /**
+     * Iterates over the elements of this list along with their indices, in the same way as {@link #iterator(TriggerContext)}
      * @param ctx the event
      * @return an {@link Iterator} that iterates over pairs of indexes and values
      */
     public Iterator<Pair<String, Object>> variablesIterator(TriggerContext ctx) {
         if (!list)
             throw new SkriptRuntimeException("Looping a non-list variable");
+        var entries = entries(ctx);
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return entries.hasNext();
+            }
+
+            @Override
+            public Pair<String, Object> next() {
+                var entry = entries.next();
+                return new Pair<>(entry.getKey(), entry.getValue());
+            }
+        };
+    }
+
+    // The elements of this list that aren't lists themselves, read from the list directly
+    private Iterator<Map.Entry<String, Object>> entries(TriggerContext ctx) {
         var n = this.name.toString(ctx);
-        var name = n.substring(0, n.length() - 1);
-        var val = Variables.getVariable(name + "*", ctx, local);
+        var val = Variables.getVariable(n.substring(0, n.length() - 1) + "*", ctx, local);
         if (val.isEmpty())
             return Collections.emptyIterator();
         assert val.get() instanceof Map;
-        // temporary list to prevent CMEs
-        @SuppressWarnings("unchecked")
-        var keys = new ArrayList<>(((Map<String, Object>) val.get()).keySet()).iterator();
+        var entries = ((Map<String, Object>) val.get()).entrySet().iterator();
         return new Iterator<>() {
             @Nullable
-            private String key;
-            @Nullable
-            private Object next;
+            private Map.Entry<String, Object> next;
 
             @Override
             public boolean hasNext() {
-                if (next != null)
-                    return true;
-                while (keys.hasNext()) {
-                    key = keys.next();
-                    if (key != null) {
-                        next = Variables.getVariable(name + key, ctx, local).orElse(null);
-                        if (next != null && !(next instanceof TreeMap))
-                            return true;
-                    }
+                while (next == null && entries.hasNext()) {
+                    var entry = entries.next();
+                    if (entry.getKey() != null && entry.getValue() != null && !(entry.getValue() instanceof Map))
+                        next = entry;
                 }
-                next = null;
-                return false;
+                return next != null;
             }
 
             @Override
-            public Pair<String, Object> next() {
+            public Map.Entry<String, Object> next() {
                 if (!hasNext())
                     throw new NoSuchElementException();
-                assert next != null && key != null;
-                var n = new Pair<>(key, next);
+                var n = next;
+                assert n != null;
                 next = null;
                 return n;
             }
-
-            @Override
-            public void remove() {
-                throw new UnsupportedOperationException();
-            }
         };
     }
 
@@ -237,7 +260,61 @@ public class Variable<T> implements Expression<T> {
     }
 
     private void set(TriggerContext ctx, @Nullable Object value) {
-        Variables.setVariable(name.toString(ctx), value, ctx, local);
+        if (slot != -1) {
+            Variables.setLocalVariable(slot, value, ctx);
+        } else if (path != null) {
+            Variables.setVariable(path, value, ctx, local);
+        } else {
+            Variables.setVariable(name.toString(ctx), value, ctx, local);
+        }
+    }
+
+    /**
+     * Gets an element of this list from its position, without going through all the elements before it. This is only
+     * possible if the indices of the list are exactly 1 to its size, and if none of its elements are lists themselves.
+     * @param ctx the event
+     * @param position the position of the element, starting at 1. Negative positions start from the end of the list.
+     * @return the element inside an array, an empty array if there is no element at this position, or {@code null}
+     *         if the list doesn't have the required shape
+     */
+    @Nullable
+    public T[] getElement(TriggerContext ctx, long position) {
+        assert list;
+        var element = Variables.getListElement(getPath(ctx), position, ctx, local);
+        if (element == null || element.length == 0)
+            return element == null ? null : (T[]) Array.newInstance(supertype, 0);
+        var converted = Converters.convert(element[0], type);
+        if (converted.isEmpty())
+            return null; // It wouldn't have been part of the values of the list
+        var one = (T[]) Array.newInstance(supertype, 1);
+        one[0] = (T) converted.get();
+        return one;
+    }
+
+    /**
+     * Removes the first or the last element of this list, shifting the indices of the other elements if necessary,
+     * without going through all of them. This is only possible if the indices of the list are exactly 1 to its size,
+     * and if none of its elements are lists themselves.
+     * @param ctx the event
+     * @param first whether to remove the first element or the last one
+     * @return the removed element inside an array, an empty array if the list is empty, or {@code null} if the list
+     *         doesn't have the required shape, in which case it isn't changed
+     */
+    @Nullable
+    public T[] poll(TriggerContext ctx, boolean first) {
+        assert list;
+        if (type != Object.class)
+            return null; // The element may not be part of the values of the list, but we can't know before removing it
+        var element = Variables.pollList(getPath(ctx), first, ctx, local);
+        if (element == null)
+            return null;
+        var result = (T[]) Array.newInstance(supertype, element.length);
+        System.arraycopy(element, 0, result, 0, element.length);
+        return result;
+    }
+
+    private String[] getPath(TriggerContext ctx) {
+        return path != null ? path : Variables.splitPath(name.toString(ctx));
     }
 
     private void setIndex(TriggerContext ctx, String index, @Nullable Object value) {
@@ -252,9 +329,18 @@ public class Variable<T> implements Expression<T> {
         return Optional.of(new Class[]{Object[].class});
     }
 
-    @SuppressWarnings("rawtypes")
     @Override
     public void change(TriggerContext ctx, Object[] changeWith, ChangeMode mode) throws UnsupportedOperationException {
+        // Changes usually read the variable before setting it, which must not be interleaved with other changes
+        Variables.changeAtomically(
+                getPath(ctx),
+                local,
+                () -> changeUnsafely(ctx, changeWith, mode)
+        );
+    }
+
+    @SuppressWarnings("rawtypes")
+    private void changeUnsafely(TriggerContext ctx, Object[] changeWith, ChangeMode mode) {
         switch (mode) {
             case DELETE:
                 if (list) {
@@ -349,17 +435,16 @@ public class Variable<T> implements Expression<T> {
                         }
                     } else {
                         assert mode == ChangeMode.ADD;
-                        var i = 1;
+                        var path = getPath(ctx);
+                        var i = 1L;
                         for (var d : changeWith) {
-                            if (o.isPresent())
-                                while (o.get().containsKey(String.valueOf(i)))
-                                    i++;
+                            i = Variables.getFreeIndex(path, i, ctx, local);
                             setIndex(ctx, String.valueOf(i), d);
                             i++;
                         }
                     }
                 } else {
-                    Optional<Object> o = get(ctx);
+                    Optional<Object> o = getRaw(ctx);
                     var type = o.flatMap(ob -> (Optional<? extends Type<?>>) TypeManager.getByClass(ob.getClass()));
                     Optional<? extends Arithmetic> a = Optional.empty();
                     Optional<? extends Changer<?>> changer;
@@ -246,6 +246,26 @@ public class VariableString extends TaggedExpression {
         return sb.append("\"").toString();
     }
 
+    /**
+     * Turns this VariableString into a simple one if it contains no tags, and only constant expressions
+     */
+    @Override
+    public Expression<? extends String> simplify() {
+        if (simple)
+            return this;
+        var sb = new StringBuilder();
+        for (var o : data) {
+            if (o instanceof Tag || o instanceof Expression && !Literal.isConstant((Expression<?>) o)) {
+                return this;
+            } else if (o instanceof Expression) {
+                sb.append(TypeManager.toString(((Expression<?>) o).getValues(TriggerContext.DUMMY)));
+            } else {
+                sb.append(o);
+            }
+        }
+        return new VariableString(new Object[] {sb.toString()});
+    }
+
     /**
      * @return whether this VariableString is actually constant and whose value can be known at parse time
      */
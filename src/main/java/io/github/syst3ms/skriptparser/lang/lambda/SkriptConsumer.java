@@ -38,15 +38,15 @@ public class SkriptConsumer<S extends ArgumentSection> {
      */
     public void accept(TriggerContext ctx, Object... args) {
         this.section.setArguments(args);
-        var item = starterFunction.apply(section);
-        while (item.isPresent()) {
-            var cur = item.orElse(null);
-            item = item.flatMap(s -> s.walk(ctx));
+        Statement item = starterFunction.apply(section).orElse(null);
+        while (item != null) {
+            var cur = item;
+            item = Statement.runStep(item, ctx);
             if (stepFunction.test(section, cur)) {
                 break;
             }
         }
-        finisherFunction.accept(section, item.orElse(null));
+        finisherFunction.accept(section, item);
     }
 
     /**
@@ -42,17 +42,17 @@ public class SkriptFunction<S extends ReturnSection<T>, T> {
     public Optional<T[]> apply(TriggerContext ctx, Object... args) {
         this.section.setArguments(args);
         T[] result = null;
-        var item = starterFunction.apply(section);
-        while (item.isPresent()) {
-            var cur = item.orElse(null);
-            item = item.flatMap(s -> s.walk(ctx));
+        Statement item = starterFunction.apply(section).orElse(null);
+        while (item != null) {
+            var cur = item;
+            item = Statement.runStep(item, ctx);
             var stepResult = stepFunction.apply(section, cur);
             if (stepResult.isPresent()) {
                 result = stepResult.get();
                 break;
             }
         }
-        finisherFunction.accept(section, item.orElse(null));
+        finisherFunction.accept(section, item);
         return Optional.ofNullable(result);
     }
 
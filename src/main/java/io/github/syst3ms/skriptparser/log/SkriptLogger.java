@@ -82,6 +82,28 @@ public class SkriptLogger {
         this.fileElements = flatten(fileElements);
     }
 
+    /**
+     * Creates a new logger for the same file, positioned at the current line. Its entries can later be added back to
+     * this logger with {@link #merge(SkriptLogger)}. This allows different parts of a file to be parsed in parallel.
+     * @return the new logger
+     */
+    public SkriptLogger fork() {
+        var fork = new SkriptLogger(debug);
+        fork.fileName = fileName;
+        fork.fileElements = fileElements;
+        fork.line = line;
+        return fork;
+    }
+
+    /**
+     * Finishes a logger created by {@link #fork()}, and adds all of its final entries to this logger.
+     * @param fork the forked logger
+     */
+    public void merge(SkriptLogger fork) {
+        fork.finalizeLogs();
+        logged.addAll(fork.close());
+    }
+
     private List<FileElement> flatten(List<FileElement> fileElements) {
         List<FileElement> list = new ArrayList<>();
         for (var element : fileElements) {
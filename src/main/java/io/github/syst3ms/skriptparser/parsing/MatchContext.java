@@ -18,8 +18,10 @@ import java.util.regex.MatchResult;
  * An object that provides contextual information during syntax matching.
  */
 public class MatchContext {
-    private final String originalPattern;
     private final PatternElement originalElement;
+    // Only computed when needed, as this is costly for bigger patterns
+    @Nullable
+    private String originalPattern;
     // Provided to the syntax's class
     private final ParserState parserState;
     private final SkriptLogger logger;
@@ -35,7 +37,6 @@ public class MatchContext {
     }
 
     public MatchContext(PatternElement e, ParserState parserState, SkriptLogger logger, @Nullable MatchContext source) {
-        this.originalPattern = e.toString();
         this.originalElement = e;
         this.parserState = parserState;
         this.logger = logger;
@@ -53,6 +54,8 @@ public class MatchContext {
      * @return the string version of {@link #getOriginalElement()}
      */
     public String getOriginalPattern() {
+        if (originalPattern == null)
+            originalPattern = originalElement.toString();
         return originalPattern;
     }
 
@@ -144,7 +147,7 @@ public class MatchContext {
      * @return a {@link ParseContext} based on this {@link MatchContext}
      */
     public ParseContext toParseResult() {
-        return new ParseContext(parserState, originalElement, regexMatches, parseMark, originalPattern, logger);
+        return new ParseContext(parserState, originalElement, regexMatches, parseMark, getOriginalPattern(), logger);
     }
 
     public ParserState getParserState() {
@@ -0,0 +1,189 @@
+package io.github.syst3ms.skriptparser.parsing;
+
+import io.github.syst3ms.skriptparser.registration.ExpressionInfo;
+import io.github.syst3ms.skriptparser.registration.SyntaxManager;
+import io.github.syst3ms.skriptparser.types.PatternType;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A memoization table for the expressions parsed while matching a single line. While a line is being matched, the
+ * same substring is usually parsed with the same expected type many times, once for each candidate pattern and
+ * split point.
+ *
+ * Failures are remembered as such, so that later attempts fail straight away. Successes only remember which
+ * {@link ExpressionInfo} matched : the expression is still instantiated again for every attempt, because syntax
+ * elements may modify the expressions they receive during initialization.
+ *
+ * The table is owned by a {@link ParserState}, and is cleared whenever that state changes or a new line is parsed.
+ * It may also be backed by a {@link ScriptCache}, in which case results from previous loads of the same script are
+ * used, and new results are recorded.
+ */
+public class ParseCache {
+    /**
+     * Used in place of a conditional constant when an expression isn't parsed as a boolean
+     */
+    static final int NOT_BOOLEAN = -1;
+
+    private static final LongAdder hits = new LongAdder();
+    private static final LongAdder misses = new LongAdder();
+
+    private final Map<Key, Optional<? extends ExpressionInfo<?, ?>>> entries = new HashMap<>();
+    private int line = -1;
+    @Nullable
+    private ScriptCache scriptCache;
+
+    /**
+     * @param s the string to parse
+     * @param expectedType the expected type
+     * @param conditional the conditional constant, or {@link #NOT_BOOLEAN}
+     * @return whether parsing the given string was already attempted, and failed
+     */
+    boolean isKnownFailure(String s, PatternType<?> expectedType, int conditional) {
+        var entry = lookup(s, expectedType, conditional);
+        if (entry != null && entry.isEmpty()) {
+            hits.increment();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @param s the string to parse
+     * @param expectedType the expected type
+     * @param conditional the conditional constant, or {@link #NOT_BOOLEAN}
+     * @return the {@link ExpressionInfo} that was previously matched against the given string, if any
+     */
+    Optional<? extends ExpressionInfo<?, ?>> getKnownMatch(String s, PatternType<?> expectedType, int conditional) {
+        var entry = lookup(s, expectedType, conditional);
+        if (entry != null && entry.isPresent()) {
+            hits.increment();
+            return entry;
+        }
+        misses.increment();
+        return Optional.empty();
+    }
+
+    /**
+     * Remembers that the given string was successfully parsed using the given {@link ExpressionInfo}
+     * @param s the parsed string
+     * @param expectedType the expected type
+     * @param conditional the conditional constant, or {@link #NOT_BOOLEAN}
+     * @param info the info that matched
+     */
+    void success(String s, PatternType<?> expectedType, int conditional, ExpressionInfo<?, ?> info) {
+        entries.put(new Key(s, expectedType, conditional), Optional.of(info));
+        if (scriptCache != null && line >= 0) {
+            var index = SyntaxManager.getExpressionIndex().indexOf(info);
+            if (index != -1)
+                scriptCache.put(line, s, expectedType, conditional, index);
+        }
+    }
+
+    /**
+     * Remembers that the given string couldn't be parsed
+     * @param s the string
+     * @param expectedType the expected type
+     * @param conditional the conditional constant, or {@link #NOT_BOOLEAN}
+     */
+    void failure(String s, PatternType<?> expectedType, int conditional) {
+        entries.put(new Key(s, expectedType, conditional), Optional.empty());
+        if (scriptCache != null && line >= 0)
+            scriptCache.put(line, s, expectedType, conditional, ScriptCache.FAILURE);
+    }
+
+    /**
+     * Forgets about everything that was parsed so far
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Forgets about everything that was parsed so far, as a new line is about to be parsed
+     * @param line the index of the new line
+     */
+    public void nextLine(int line) {
+        clear();
+        this.line = line;
+    }
+
+    /**
+     * @param scriptCache the {@link ScriptCache} backing this cache, or {@literal null} if there shouldn't be any
+     */
+    public void setScriptCache(@Nullable ScriptCache scriptCache) {
+        this.scriptCache = scriptCache;
+    }
+
+    /*
+     * Returns null if nothing is known about the given string
+     */
+    @Nullable
+    private Optional<? extends ExpressionInfo<?, ?>> lookup(String s, PatternType<?> expectedType, int conditional) {
+        var key = new Key(s, expectedType, conditional);
+        var entry = entries.get(key);
+        if (entry == null && scriptCache != null && line >= 0) {
+            var stored = scriptCache.get(line, s, expectedType, conditional);
+            if (stored.isPresent()) {
+                var infos = SyntaxManager.getExpressionIndex().getInfos();
+                var index = stored.getAsInt();
+                if (index == ScriptCache.FAILURE) {
+                    entry = Optional.empty();
+                } else if (index < infos.size()) {
+                    entry = Optional.of(infos.get(index));
+                }
+                if (entry != null)
+                    entries.put(key, entry);
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * @return how many parsing attempts were answered by a {@link ParseCache} so far
+     */
+    public static long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return how many parsing attempts couldn't be answered by a {@link ParseCache} so far
+     */
+    public static long getMissCount() {
+        return misses.sum();
+    }
+
+    private static class Key {
+        private final String s;
+        private final PatternType<?> expectedType;
+        private final int conditional;
+
+        Key(String s, PatternType<?> expectedType, int conditional) {
+            this.s = s;
+            this.expectedType = expectedType;
+            this.conditional = conditional;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (!(obj instanceof Key)) {
+                return false;
+            } else {
+                var o = (Key) obj;
+                return s.equals(o.s) && expectedType.equals(o.expectedType) && conditional == o.conditional;
+            }
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(s, expectedType, conditional);
+        }
+    }
+}
@@ -16,6 +16,7 @@ public class ParserState {
     private final LinkedList<CodeSection> currentSections = new LinkedList<>();
     private List<Class<? extends SyntaxElement>> allowedSyntaxes = Collections.emptyList();
     private boolean restrictingExpressions = false;
+    private final ParseCache parseCache = new ParseCache();
 
     /**
      * @return the {@link TriggerContext}s handled by the currently parsed event
@@ -37,6 +38,7 @@ public class ParserState {
      */
     public void setCurrentContexts(Class<? extends TriggerContext>[] currentContexts) {
         this.currentContexts = currentContexts;
+        parseCache.clear();
     }
 
     /**
@@ -45,6 +47,7 @@ public class ParserState {
      */
     public void addCurrentSection(CodeSection section) {
         currentSections.addFirst(section);
+        parseCache.clear();
     }
 
     /**
@@ -52,6 +55,7 @@ public class ParserState {
      */
     public void removeCurrentSection() {
         currentSections.removeFirst();
+        parseCache.clear();
     }
 
     /**
@@ -62,6 +66,7 @@ public class ParserState {
     public void setSyntaxRestrictions(List<Class<? extends SyntaxElement>> allowedSyntaxes, boolean restrictingExpressions) {
         this.allowedSyntaxes = allowedSyntaxes;
         this.restrictingExpressions = restrictingExpressions;
+        parseCache.clear();
     }
 
     /**
@@ -70,6 +75,7 @@ public class ParserState {
     public void clearSyntaxRestrictions() {
         allowedSyntaxes = Collections.emptyList();
         restrictingExpressions = false;
+        parseCache.clear();
     }
 
     /**
@@ -86,4 +92,13 @@ public class ParserState {
     public boolean isRestrictingExpressions() {
         return restrictingExpressions;
     }
+
+    /**
+     * The results stored in this cache are only valid for this exact state, so it is cleared whenever this state
+     * is modified.
+     * @return the {@link ParseCache} memoizing expressions parsed on the current line
+     */
+    public ParseCache getParseCache() {
+        return parseCache;
+    }
 }
@@ -0,0 +1,140 @@
+package io.github.syst3ms.skriptparser.parsing;
+
+import io.github.syst3ms.skriptparser.registration.SyntaxManager;
+import io.github.syst3ms.skriptparser.types.PatternType;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The results of parsing the expressions of an entire script, which can be saved to a file and reused the next time
+ * the same script is loaded, so that the parser doesn't have to look for the right syntax all over again.
+ *
+ * Every result is identified by the line it was parsed on, the parsed string, the expected type and the conditional
+ * constant, and is either the index of the matching expression in {@link SyntaxManager#getExpressionIndex()}, or a
+ * failure. Results are only valid for the exact same script and the exact same registered syntaxes, which is why
+ * the file is keyed by a hash of the script and by {@link SyntaxManager#getFingerprint()}.
+ *
+ * Successful results are only hints : the expression is still matched against its pattern and initialized as usual,
+ * and the parser falls back to a regular search if that doesn't work anymore.
+ */
+public class ScriptCache {
+    /**
+     * Stands for a string that couldn't be parsed
+     */
+    static final int FAILURE = -1;
+
+    private static final int MAGIC = 0x534B4350; // "SKCP"
+    private static final int FORMAT_VERSION = 1;
+
+    private final String scriptHash;
+    private final String fingerprint;
+    private final Map<String, Integer> results = new ConcurrentHashMap<>();
+    private volatile boolean modified = false;
+
+    /**
+     * Creates an empty cache
+     * @param scriptHash the hash of the script's content
+     * @param fingerprint the fingerprint of the registered syntaxes
+     */
+    public ScriptCache(String scriptHash, String fingerprint) {
+        this.scriptHash = scriptHash;
+        this.fingerprint = fingerprint;
+    }
+
+    /**
+     * Reads a cache from a file, as long as it was written for the same script and the same registered syntaxes
+     * @param file the file to read from
+     * @param scriptHash the hash of the script's content
+     * @param fingerprint the fingerprint of the registered syntaxes
+     * @return the cache, or an empty {@link Optional} if the file doesn't exist, is invalid or is outdated
+     * @throws IOException if the file couldn't be read
+     */
+    public static Optional<ScriptCache> read(Path file, String scriptHash, String fingerprint) throws IOException {
+        try (var in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(file))))) {
+            if (in.readInt() != MAGIC
+                    || in.readInt() != FORMAT_VERSION
+                    || !in.readUTF().equals(scriptHash)
+                    || !in.readUTF().equals(fingerprint))
+                return Optional.empty();
+            var cache = new ScriptCache(scriptHash, fingerprint);
+            var size = in.readInt();
+            for (var i = 0; i < size; i++) {
+                var key = in.readUTF();
+                cache.results.put(key, in.readInt());
+            }
+            return Optional.of(cache);
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Writes this cache to a file, replacing it if it exists
+     * @param file the file to write to
+     * @throws IOException if the file couldn't be written
+     */
+    public void write(Path file) throws IOException {
+        var temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (var out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(temp))))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeUTF(scriptHash);
+            out.writeUTF(fingerprint);
+            var entries = results.entrySet().stream()
+                    // writeUTF only supports strings up to 65535 bytes
+                    .filter(e -> e.getKey().getBytes(StandardCharsets.UTF_8).length <= 65535)
+                    .collect(Collectors.toList());
+            out.writeInt(entries.size());
+            for (var entry : entries) {
+                out.writeUTF(entry.getKey());
+                out.writeInt(entry.getValue());
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        modified = false;
+    }
+
+    OptionalInt get(int line, String s, PatternType<?> expectedType, int conditional) {
+        var result = results.get(key(line, s, expectedType, conditional));
+        return result == null ? OptionalInt.empty() : OptionalInt.of(result);
+    }
+
+    void put(int line, String s, PatternType<?> expectedType, int conditional, int result) {
+        if (results.put(key(line, s, expectedType, conditional), result) == null)
+            modified = true;
+    }
+
+    /**
+     * @return whether results were added since this cache was read or last written
+     */
+    public boolean isModified() {
+        return modified;
+    }
+
+    /**
+     * @return the amount of stored results
+     */
+    public int size() {
+        return results.size();
+    }
+
+    private static String key(int line, String s, PatternType<?> expectedType, int conditional) {
+        return line + "\0" + expectedType + "\0" + conditional + "\0" + s;
+    }
+}
@@ -0,0 +1,43 @@
+package io.github.syst3ms.skriptparser.parsing;
+
+import io.github.syst3ms.skriptparser.log.LogEntry;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * The outcome of loading a single script, as returned by {@link ScriptLoader#loadScripts(List, boolean, int)}.
+ */
+public class ScriptLoadResult {
+    private final Path scriptPath;
+    private final List<LogEntry> logs;
+    private final Duration loadingTime;
+
+    public ScriptLoadResult(Path scriptPath, List<LogEntry> logs, Duration loadingTime) {
+        this.scriptPath = scriptPath;
+        this.logs = logs;
+        this.loadingTime = loadingTime;
+    }
+
+    /**
+     * @return the path of the loaded script
+     */
+    public Path getScriptPath() {
+        return scriptPath;
+    }
+
+    /**
+     * @return the log entries produced while loading the script
+     */
+    public List<LogEntry> getLogs() {
+        return logs;
+    }
+
+    /**
+     * @return how long it took to parse and load the script
+     */
+    public Duration getLoadingTime() {
+        return loadingTime;
+    }
+}
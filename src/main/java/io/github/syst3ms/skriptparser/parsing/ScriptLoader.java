@@ -5,27 +5,68 @@ import io.github.syst3ms.skriptparser.file.FileParser;
 import io.github.syst3ms.skriptparser.file.FileSection;
 import io.github.syst3ms.skriptparser.file.VoidElement;
 import io.github.syst3ms.skriptparser.lang.Conditional;
+import io.github.syst3ms.skriptparser.lang.SkriptEvent;
 import io.github.syst3ms.skriptparser.lang.Statement;
 import io.github.syst3ms.skriptparser.lang.Trigger;
 import io.github.syst3ms.skriptparser.lang.UnloadedTrigger;
 import io.github.syst3ms.skriptparser.log.ErrorContext;
 import io.github.syst3ms.skriptparser.log.ErrorType;
 import io.github.syst3ms.skriptparser.log.LogEntry;
+import io.github.syst3ms.skriptparser.log.LogType;
 import io.github.syst3ms.skriptparser.log.SkriptLogger;
+import io.github.syst3ms.skriptparser.registration.SkriptAddon;
+import io.github.syst3ms.skriptparser.registration.SyntaxManager;
 import io.github.syst3ms.skriptparser.util.FileUtils;
 import io.github.syst3ms.skriptparser.util.MultiMap;
+import io.github.syst3ms.skriptparser.util.Pair;
+import io.github.syst3ms.skriptparser.util.StringUtils;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 /**
  * Contains the logic for loading, parsing and interpreting entire script files
  */
 public class ScriptLoader {
     private static final MultiMap<String, Trigger> triggerMap = new MultiMap<>();
+    // The content hash of every loaded trigger, used to find out which triggers changed when reloading a script
+    private static final MultiMap<String, Pair<String, Trigger>> triggerHashes = new MultiMap<>();
+    // Higher loading priorities come first
+    private static final Comparator<UnloadedTrigger> LOADING_PRIORITY_ORDER =
+            (a, b) -> b.getTrigger().getEvent().getLoadingPriority() - a.getTrigger().getEvent().getLoadingPriority();
+    @Nullable
+    private static volatile Path cacheDirectory;
+
+    /**
+     * Sets the directory in which the results of parsing scripts are saved, so that scripts that didn't change since
+     * the last time they were loaded can be parsed faster. If it is {@literal null}, nothing is saved.
+     * @param cacheDirectory the cache directory
+     * @see ScriptCache
+     */
+    public static void setCacheDirectory(@Nullable Path cacheDirectory) {
+        ScriptLoader.cacheDirectory = cacheDirectory;
+    }
 
     /**
      * Parses and loads the provided script in memory
@@ -33,13 +74,31 @@ public class ScriptLoader {
      * @param debug whether debug is enabled
      */
     public static List<LogEntry> loadScript(Path scriptPath, boolean debug) {
+        return loadScript(scriptPath, debug, false);
+    }
+
+    /**
+     * Parses and loads the provided script in memory
+     * @param scriptPath the script file to load
+     * @param debug whether debug is enabled
+     * @param parallel whether triggers should be parsed and loaded in parallel. Triggers are still loaded and
+     *                 registered according to their {@linkplain SkriptEvent#getLoadingPriority() loading priority}
+     */
+    public static List<LogEntry> loadScript(Path scriptPath, boolean debug, boolean parallel) {
         var parser = new FileParser();
         var logger = new SkriptLogger(debug);
+        var index = SyntaxManager.getExpressionIndex();
+        var initialLookups = index.getLookupCount();
+        var initialCandidates = index.getCandidateCount();
+        var initialHits = ParseCache.getHitCount();
+        var initialMisses = ParseCache.getMissCount();
+        var initialFolded = SyntaxParser.getFoldedCount();
         List<FileElement> elements;
         String scriptName;
+        ScriptCache cache = null;
         try {
             var lines = FileUtils.readAllLines(scriptPath);
-            scriptName = scriptPath.getFileName().toString().replaceAll("(.+)\\..+", "$1");
+            scriptName = getScriptName(scriptPath);
             elements = parser.parseFileLines(scriptName,
                     lines,
                     0,
@@ -47,11 +106,201 @@ public class ScriptLoader {
                     logger
             );
             logger.finalizeLogs();
+            if (cacheDirectory != null)
+                cache = readCache(scriptPath, lines);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return Collections.emptyList();
+        }
+        var initialCacheSize = cache == null ? 0 : cache.size();
+        logger.setFileInfo(scriptPath.getFileName().toString(), elements);
+        if (parallel) {
+            loadTriggersInParallel(scriptName, elements, logger, cache);
+        } else {
+            loadTriggers(scriptName, elements, logger, cache);
+        }
+        logger.finalizeLogs();
+        if (debug) {
+            var lookups = index.getLookupCount() - initialLookups;
+            var candidates = index.getCandidateCount() - initialCandidates;
+            var total = lookups * index.getInfos().size();
+            logger.setLine(-1);
+            logger.debug(String.format(
+                    "Expression index: %d lookups, %d out of %d expressions tried (%.1f%% skipped, %d without required leading text)",
+                    lookups,
+                    candidates,
+                    total,
+                    total == 0 ? 0.0 : 100.0 * (total - candidates) / total,
+                    index.getWildcardCount()
+            ));
+            logger.debug(String.format(
+                    "Parse cache: %d hits, %d misses",
+                    ParseCache.getHitCount() - initialHits,
+                    ParseCache.getMissCount() - initialMisses
+            ));
+            logger.debug(String.format(
+                    "Constant folding: %d expressions folded",
+                    SyntaxParser.getFoldedCount() - initialFolded
+            ));
+            if (cache != null)
+                logger.debug(String.format(
+                        "Script cache: %d results read, %d results total",
+                        initialCacheSize,
+                        cache.size()
+                ));
+            logger.finalizeLogs();
+        }
+        var logs = logger.close();
+        if (cache != null && cache.isModified() && logs.stream().noneMatch(log -> log.getType() == LogType.ERROR))
+            writeCache(scriptPath, cache);
+        return logs;
+    }
+
+    /*
+     * Cache files are named after the script, along with a hash of its full path to tell apart scripts with the same
+     * name in different directories.
+     */
+    private static Path getCacheFile(Path scriptPath) {
+        assert cacheDirectory != null;
+        var pathHash = StringUtils.sha256(scriptPath.toAbsolutePath().normalize().toString()).substring(0, 16);
+        return cacheDirectory.resolve(getScriptName(scriptPath) + "-" + pathHash + ".cache");
+    }
+
+    private static ScriptCache readCache(Path scriptPath, List<String> lines) {
+        var scriptHash = StringUtils.sha256(String.join("\n", lines));
+        var fingerprint = SyntaxManager.getFingerprint();
+        try {
+            return ScriptCache.read(getCacheFile(scriptPath), scriptHash, fingerprint)
+                    .orElseGet(() -> new ScriptCache(scriptHash, fingerprint));
+        } catch (IOException e) {
+            // An unreadable cache is simply replaced
+            return new ScriptCache(scriptHash, fingerprint);
+        }
+    }
+
+    private static void writeCache(Path scriptPath, ScriptCache cache) {
+        try {
+            var file = getCacheFile(scriptPath);
+            Files.createDirectories(file.getParent());
+            cache.write(file);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Loads multiple scripts concurrently, using at most the given amount of threads. Triggers of different scripts
+     * are handed to addons in no particular order.
+     * @param scriptPaths the script files to load
+     * @param debug whether debug is enabled
+     * @param threads the maximum amount of scripts to load at the same time
+     * @return the result of loading each script, in the same order as the given paths
+     */
+    public static List<ScriptLoadResult> loadScripts(List<Path> scriptPaths, boolean debug, int threads) {
+        return loadScripts(scriptPaths, debug, false, threads);
+    }
+
+    /**
+     * Loads multiple scripts concurrently, using at most the given amount of threads. Triggers of different scripts
+     * are handed to addons in no particular order.
+     * @param scriptPaths the script files to load
+     * @param debug whether debug is enabled
+     * @param parallel whether the triggers of each script should be parsed and loaded in parallel as well
+     * @param threads the maximum amount of scripts to load at the same time
+     * @return the result of loading each script, in the same order as the given paths
+     * @see #loadScript(Path, boolean, boolean)
+     */
+    public static List<ScriptLoadResult> loadScripts(List<Path> scriptPaths, boolean debug, boolean parallel, int threads) {
+        return loadAll(scriptPaths, threads, path -> timed(path, () -> loadScript(path, debug, parallel)));
+    }
+
+    /**
+     * Loads all scripts inside of a directory concurrently, using at most the given amount of threads.
+     * Subdirectories are ignored.
+     * @param directory the directory containing the scripts
+     * @param debug whether debug is enabled
+     * @param threads the maximum amount of scripts to load at the same time
+     * @return the result of loading each script, ordered by file name
+     * @throws IOException if the directory couldn't be read
+     */
+    public static List<ScriptLoadResult> loadScripts(Path directory, boolean debug, int threads) throws IOException {
+        return loadScripts(directory, debug, false, threads);
+    }
+
+    /**
+     * Loads all scripts inside of a directory concurrently, using at most the given amount of threads.
+     * Subdirectories are ignored.
+     * @param directory the directory containing the scripts
+     * @param debug whether debug is enabled
+     * @param parallel whether the triggers of each script should be parsed and loaded in parallel as well
+     * @param threads the maximum amount of scripts to load at the same time
+     * @return the result of loading each script, ordered by file name
+     * @throws IOException if the directory couldn't be read
+     * @see #loadScript(Path, boolean, boolean)
+     */
+    public static List<ScriptLoadResult> loadScripts(Path directory, boolean debug, boolean parallel, int threads) throws IOException {
+        List<Path> scriptPaths;
+        try (var files = Files.list(directory)) {
+            scriptPaths = files.filter(Files::isRegularFile)
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+        return loadScripts(scriptPaths, debug, parallel, threads);
+    }
+
+    /**
+     * Reloads the given scripts concurrently.
+     * @param scriptPaths the script files to reload
+     * @param debug whether debug is enabled
+     * @param threads the maximum amount of scripts to load at the same time
+     * @return the result of reloading each script, in the same order as the given paths
+     * @see #reloadScript(Path, boolean)
+     */
+    public static List<ScriptLoadResult> reloadScripts(List<Path> scriptPaths, boolean debug, int threads) {
+        return loadAll(scriptPaths, threads, path -> timed(path, () -> reloadScript(path, debug)));
+    }
+
+    /**
+     * Reloads a script, only parsing the triggers whose content changed since the script was last loaded. Unchanged
+     * triggers are kept as they are, even if they moved inside of the file. Changed and removed triggers are replaced
+     * in {@link #getTriggerMap()} and in the addons that handled them all at once.
+     *
+     * If the script wasn't loaded before, or if a trigger with a non-default
+     * {@linkplain SkriptEvent#getLoadingPriority() loading priority} changed, the whole script is loaded again.
+     * @param scriptPath the script file to reload
+     * @param debug whether debug is enabled
+     * @return the log entries produced while reloading
+     */
+    public static List<LogEntry> reloadScript(Path scriptPath, boolean debug) {
+        var scriptName = getScriptName(scriptPath);
+        List<Pair<String, Trigger>> previous;
+        synchronized (ScriptLoader.class) {
+            previous = triggerHashes.get(scriptName);
+        }
+        if (previous == null)
+            return loadScript(scriptPath, debug);
+        var logger = new SkriptLogger(debug);
+        List<FileElement> elements;
+        try {
+            var lines = FileUtils.readAllLines(scriptPath);
+            elements = new FileParser().parseFileLines(scriptName,
+                    lines,
+                    0,
+                    1,
+                    logger
+            );
+            logger.finalizeLogs();
         } catch (IOException e) {
             e.printStackTrace();
             return Collections.emptyList();
         }
         logger.setFileInfo(scriptPath.getFileName().toString(), elements);
+        Map<String, Deque<Trigger>> unchanged = new HashMap<>();
+        for (var pair : previous) {
+            unchanged.computeIfAbsent(pair.getFirst(), __ -> new ArrayDeque<>()).add(pair.getSecond());
+        }
+        // Kept and newly parsed triggers, in the order they appear in
+        List<Pair<String, Trigger>> triggers = new ArrayList<>();
         List<UnloadedTrigger> unloadedTriggers = new ArrayList<>();
         for (var element : elements) {
             logger.finalizeLogs();
@@ -59,30 +308,269 @@ public class ScriptLoader {
             if (element instanceof VoidElement)
                 continue;
             if (element instanceof FileSection) {
-                var trig = SyntaxParser.parseTrigger((FileSection) element, logger);
-                trig.ifPresent(t -> {
-                    logger.setLine(logger.getLine() + ((FileSection) element).length());
+                var section = (FileSection) element;
+                var hash = hash(section);
+                var same = unchanged.get(hash);
+                if (same != null && !same.isEmpty()) {
+                    triggers.add(new Pair<>(hash, same.poll()));
+                } else {
+                    SyntaxParser.parseTrigger(section, logger).ifPresent(t -> {
+                        unloadedTriggers.add(t);
+                        triggers.add(new Pair<>(hash, t.getTrigger()));
+                    });
+                }
+                logger.setLine(logger.getLine() + section.length());
+            } else {
+                logCodeOutsideOfTrigger(logger);
+            }
+        }
+        List<Trigger> removed = new ArrayList<>();
+        unchanged.values().forEach(removed::addAll);
+        // Other triggers may depend on these, so we can't tell what needs to be parsed again
+        if (unloadedTriggers.stream().anyMatch(t -> t.getTrigger().getEvent().getLoadingPriority() != 0)
+                || removed.stream().anyMatch(t -> t.getEvent().getLoadingPriority() != 0)) {
+            unloadScript(scriptName);
+            return loadScript(scriptPath, debug);
+        }
+        for (var unloaded : unloadedTriggers) {
+            logger.finalizeLogs();
+            logger.setLine(unloaded.getLine());
+            unloaded.getTrigger().loadSection(unloaded.getSection(), unloaded.getParserState(), logger);
+        }
+        logger.finalizeLogs();
+        synchronized (ScriptLoader.class) {
+            for (var trigger : removed) {
+                for (var addon : SkriptAddon.getAddons()) {
+                    addon.unloadTrigger(trigger);
+                }
+            }
+            for (var unloaded : unloadedTriggers) {
+                unloaded.getEventInfo().getRegisterer().handleTrigger(unloaded.getTrigger());
+            }
+            triggerMap.put(scriptName, triggers.stream().map(Pair::getSecond).collect(Collectors.toList()));
+            triggerHashes.put(scriptName, triggers);
+        }
+        if (debug) {
+            logger.setLine(-1);
+            logger.debug(String.format(
+                    "Reloaded %d out of %d triggers, %d removed",
+                    unloadedTriggers.size(),
+                    triggers.size(),
+                    removed.size()
+            ));
+            logger.finalizeLogs();
+        }
+        return logger.close();
+    }
+
+    /**
+     * Starts watching a directory of scripts, reloading every script that is changed inside of it.
+     * {@link SkriptAddon#finishedLoading()} isn't called again after a reload : the reloaded triggers are handed to
+     * {@link SkriptAddon#handleTrigger(Trigger)} like any other, and addons should start them right away if loading
+     * already finished.
+     * @param directory the directory containing the scripts
+     * @param debug whether debug is enabled
+     * @param threads the maximum amount of scripts to reload at the same time
+     * @param reloadHandler called with the result of every reload
+     * @return the watcher, which must be closed once it isn't needed anymore
+     * @throws IOException if the directory couldn't be watched
+     */
+    public static ScriptWatcher watchScripts(Path directory, boolean debug, int threads, Consumer<ScriptLoadResult> reloadHandler) throws IOException {
+        return new ScriptWatcher(directory, debug, threads, reloadHandler);
+    }
+
+    /**
+     * Removes all triggers of a script from {@link #getTriggerMap()}, and tells all addons they have been unloaded.
+     * @param scriptName the name of the script, without its extension
+     * @return the triggers that were unloaded
+     * @see SkriptAddon#unloadTrigger(Trigger)
+     */
+    public static synchronized List<Trigger> unloadScript(String scriptName) {
+        triggerHashes.remove(scriptName);
+        var triggers = triggerMap.remove(scriptName);
+        if (triggers == null)
+            return Collections.emptyList();
+        for (var trigger : triggers) {
+            for (var addon : SkriptAddon.getAddons()) {
+                addon.unloadTrigger(trigger);
+            }
+        }
+        return triggers;
+    }
+
+    static String getScriptName(Path scriptPath) {
+        return scriptPath.getFileName().toString().replaceAll("(.+)\\..+", "$1");
+    }
+
+    private static ScriptLoadResult timed(Path scriptPath, Supplier<List<LogEntry>> loader) {
+        var start = System.nanoTime();
+        var logs = loader.get();
+        return new ScriptLoadResult(scriptPath, logs, Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    /*
+     * Line numbers and blank lines are left out, so that triggers that were only moved around are still considered
+     * unchanged
+     */
+    private static String hash(FileSection section) {
+        var sb = new StringBuilder();
+        appendContent(sb, section);
+        return StringUtils.sha256(sb.toString());
+    }
+
+    private static void appendContent(StringBuilder sb, FileElement element) {
+        if (element instanceof VoidElement)
+            return;
+        sb.append(element).append('\n');
+        if (element instanceof FileSection) {
+            for (var e : ((FileSection) element).getElements()) {
+                appendContent(sb, e);
+            }
+        }
+    }
+
+    private static List<ScriptLoadResult> loadAll(List<Path> scriptPaths, int threads, Function<Path, ScriptLoadResult> loader) {
+        if (scriptPaths.isEmpty())
+            return Collections.emptyList();
+        var executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, scriptPaths.size())));
+        try {
+            List<Callable<ScriptLoadResult>> tasks = new ArrayList<>();
+            for (var path : scriptPaths) {
+                tasks.add(() -> loader.apply(path));
+            }
+            return invokeAll(executor, tasks);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static void loadTriggers(String scriptName, List<FileElement> elements, SkriptLogger logger, @Nullable ScriptCache cache) {
+        List<UnloadedTrigger> unloadedTriggers = new ArrayList<>();
+        for (var element : elements) {
+            logger.finalizeLogs();
+            logger.nextLine();
+            if (element instanceof VoidElement)
+                continue;
+            if (element instanceof FileSection) {
+                var section = (FileSection) element;
+                SyntaxParser.parseTrigger(section, logger).ifPresent(t -> {
+                    t.getParserState().getParseCache().setScriptCache(cache);
                     unloadedTriggers.add(t);
                 });
+                logger.setLine(logger.getLine() + section.length());
             } else {
-                logger.error(
-                        "Can't have code outside of a trigger",
-                        ErrorType.STRUCTURE_ERROR,
-                        "Code always starts with a trigger (or event). Refer to the documentation to see which event you need, or indent this line so it is part of a trigger"
-                );
+                logCodeOutsideOfTrigger(logger);
             }
         }
-        unloadedTriggers.sort((a, b) -> b.getTrigger().getEvent().getLoadingPriority() - a.getTrigger().getEvent().getLoadingPriority());
+        unloadedTriggers.sort(LOADING_PRIORITY_ORDER);
         for (var unloaded : unloadedTriggers) {
             logger.finalizeLogs();
             logger.setLine(unloaded.getLine());
             var loaded = unloaded.getTrigger();
             loaded.loadSection(unloaded.getSection(), unloaded.getParserState(), logger);
-            unloaded.getEventInfo().getRegisterer().handleTrigger(loaded);
-            triggerMap.putOne(scriptName, loaded);
+            registerTrigger(scriptName, unloaded);
+        }
+    }
+
+    /*
+     * Every trigger gets parsed and loaded on its own thread, using its own logger. Triggers with the same loading
+     * priority are loaded at the same time, but every priority level has to be fully loaded and registered before the
+     * next one starts loading, since triggers may depend on what triggers with a higher priority have declared.
+     */
+    private static void loadTriggersInParallel(String scriptName, List<FileElement> elements, SkriptLogger logger, @Nullable ScriptCache cache) {
+        List<SkriptLogger> triggerLoggers = new ArrayList<>();
+        List<Callable<Optional<Pair<UnloadedTrigger, SkriptLogger>>>> parsingTasks = new ArrayList<>();
+        for (var element : elements) {
+            logger.finalizeLogs();
+            logger.nextLine();
+            if (element instanceof VoidElement)
+                continue;
+            if (element instanceof FileSection) {
+                var section = (FileSection) element;
+                var triggerLogger = logger.fork();
+                triggerLoggers.add(triggerLogger);
+                parsingTasks.add(() -> SyntaxParser.parseTrigger(section, triggerLogger)
+                        .map(t -> {
+                            t.getParserState().getParseCache().setScriptCache(cache);
+                            return new Pair<>(t, triggerLogger);
+                        })
+                );
+                logger.setLine(logger.getLine() + section.length());
+            } else {
+                logCodeOutsideOfTrigger(logger);
+            }
         }
         logger.finalizeLogs();
-        return logger.close();
+        List<Pair<UnloadedTrigger, SkriptLogger>> unloadedTriggers = new ArrayList<>();
+        for (var parsed : invokeAll(ForkJoinPool.commonPool(), parsingTasks)) {
+            parsed.ifPresent(unloadedTriggers::add);
+        }
+        unloadedTriggers.sort((a, b) -> LOADING_PRIORITY_ORDER.compare(a.getFirst(), b.getFirst()));
+        var start = 0;
+        while (start < unloadedTriggers.size()) {
+            var end = start + 1;
+            while (end < unloadedTriggers.size()
+                    && LOADING_PRIORITY_ORDER.compare(unloadedTriggers.get(start).getFirst(), unloadedTriggers.get(end).getFirst()) == 0) {
+                end++;
+            }
+            var group = unloadedTriggers.subList(start, end);
+            List<Callable<Void>> loadingTasks = new ArrayList<>();
+            for (var pair : group) {
+                loadingTasks.add(() -> {
+                    var unloaded = pair.getFirst();
+                    var triggerLogger = pair.getSecond();
+                    triggerLogger.finalizeLogs();
+                    triggerLogger.setLine(unloaded.getLine());
+                    unloaded.getTrigger().loadSection(unloaded.getSection(), unloaded.getParserState(), triggerLogger);
+                    return null;
+                });
+            }
+            invokeAll(ForkJoinPool.commonPool(), loadingTasks);
+            for (var pair : group) {
+                registerTrigger(scriptName, pair.getFirst());
+            }
+            start = end;
+        }
+        for (var triggerLogger : triggerLoggers) {
+            logger.merge(triggerLogger);
+        }
+    }
+
+    /*
+     * Scripts may be loaded concurrently, see loadScripts
+     */
+    private static synchronized void registerTrigger(String scriptName, UnloadedTrigger unloaded) {
+        unloaded.getEventInfo().getRegisterer().handleTrigger(unloaded.getTrigger());
+        triggerMap.putOne(scriptName, unloaded.getTrigger());
+        triggerHashes.putOne(scriptName, new Pair<>(hash(unloaded.getSection()), unloaded.getTrigger()));
+    }
+
+    private static <T> List<T> invokeAll(ExecutorService executor, List<Callable<T>> tasks) {
+        List<T> results = new ArrayList<>(tasks.size());
+        try {
+            for (var future : executor.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SkriptParserException("Interrupted while loading scripts");
+        } catch (ExecutionException e) {
+            var cause = e.getCause();
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw new SkriptParserException("Couldn't load a script : " + cause);
+        }
+        return results;
+    }
+
+    private static void logCodeOutsideOfTrigger(SkriptLogger logger) {
+        logger.error(
+                "Can't have code outside of a trigger",
+                ErrorType.STRUCTURE_ERROR,
+                "Code always starts with a trigger (or event). Refer to the documentation to see which event you need, or indent this line so it is part of a trigger"
+        );
     }
 
     /**
@@ -98,6 +586,8 @@ public class ScriptLoader {
         for (var element : elements) {
             logger.finalizeLogs();
             logger.nextLine();
+            // Results are only reused within the same line
+            parserState.getParseCache().nextLine(logger.getLine());
             if (element instanceof VoidElement)
                 continue;
             if (element instanceof FileSection) {
@@ -171,11 +661,11 @@ public class ScriptLoader {
                         );
                         continue;
                     }
-                    items.add(codeSection.get());
+                    items.add(codeSection.get().setElement(sec));
                 }
             } else {
                 var content = element.getLineContent();
-                SyntaxParser.parseStatement(content, parserState, logger).ifPresent(items::add);
+                SyntaxParser.parseStatement(content, parserState, logger).ifPresent(s -> items.add(s.setElement(element)));
             }
         }
         logger.finalizeLogs();
@@ -186,6 +676,10 @@ public class ScriptLoader {
         return items;
     }
 
+    /**
+     * @return all loaded triggers, mapped by the name of the script they belong to. This map is only modified by
+     * methods of {@link ScriptLoader}, while holding its lock.
+     */
     public static MultiMap<String, Trigger> getTriggerMap() {
         return triggerMap;
     }
@@ -0,0 +1,93 @@
+package io.github.syst3ms.skriptparser.parsing;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Watches a directory of scripts, reloading scripts as soon as they are changed and unloading them when they
+ * are deleted. Reloaded scripts replace their previous entries in {@link ScriptLoader#getTriggerMap()}.
+ *
+ * The watcher runs on its own thread until it is {@linkplain #close() closed}.
+ * @see ScriptLoader#watchScripts(Path, boolean, int, Consumer)
+ */
+public class ScriptWatcher implements Closeable {
+    /**
+     * Editors often produce multiple events for a single save, so we let things settle down before reloading
+     */
+    private static final long SETTLE_TIME = 100;
+
+    private final Path directory;
+    private final boolean debug;
+    private final int threads;
+    private final Consumer<ScriptLoadResult> reloadHandler;
+    private final WatchService watchService;
+    private final Thread thread;
+
+    ScriptWatcher(Path directory, boolean debug, int threads, Consumer<ScriptLoadResult> reloadHandler) throws IOException {
+        this.directory = directory;
+        this.debug = debug;
+        this.threads = threads;
+        this.reloadHandler = reloadHandler;
+        this.watchService = directory.getFileSystem().newWatchService();
+        directory.register(
+                watchService,
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY,
+                StandardWatchEventKinds.ENTRY_DELETE
+        );
+        this.thread = new Thread(this::watch, "Script watcher (" + directory + ")");
+        thread.start();
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                var key = watchService.take();
+                Thread.sleep(SETTLE_TIME);
+                Set<Path> changed = new LinkedHashSet<>();
+                do {
+                    for (var event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW)
+                            continue;
+                        changed.add(directory.resolve((Path) event.context()));
+                    }
+                    if (!key.reset())
+                        return; // The directory is gone
+                    key = watchService.poll();
+                } while (key != null);
+                List<Path> toReload = new ArrayList<>();
+                for (var path : changed) {
+                    if (Files.isRegularFile(path)) {
+                        toReload.add(path);
+                    } else if (Files.notExists(path)) {
+                        ScriptLoader.unloadScript(ScriptLoader.getScriptName(path));
+                    }
+                }
+                if (!toReload.isEmpty())
+                    ScriptLoader.reloadScripts(toReload, debug, threads).forEach(reloadHandler);
+            }
+        } catch (InterruptedException | ClosedWatchServiceException ignored) {
+            // We're done watching
+        }
+    }
+
+    /**
+     * Stops watching the directory
+     * @throws IOException if the underlying {@link WatchService} couldn't be closed
+     */
+    @Override
+    public void close() throws IOException {
+        thread.interrupt();
+        watchService.close();
+    }
+}
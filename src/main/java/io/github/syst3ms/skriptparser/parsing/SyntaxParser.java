@@ -27,6 +27,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Function;
 import java.util.regex.Pattern;
 
@@ -65,31 +66,31 @@ public class SyntaxParser {
     public static final PatternType<Object> OBJECTS_PATTERN_TYPE = new PatternType<>((Type<Object>) TypeManager.getByClass(Object.class).orElseThrow(AssertionError::new), false);
 
     public static final ExpressionInfo<ExprBooleanOperators, Boolean> EXPRESSION_BOOLEAN_OPERATORS
-            = (ExpressionInfo<ExprBooleanOperators, Boolean>) SyntaxManager.getAllExpressions().stream()
-            .filter(i -> i.getSyntaxClass() == ExprBooleanOperators.class)
-            .findFirst()
+            = (ExpressionInfo<ExprBooleanOperators, Boolean>) SyntaxManager.getExpressionExact(ExprBooleanOperators.class)
             .orElseThrow();
 
+    // Every thread keeps track of its own recent elements, so that triggers can be parsed in parallel
     /**
      * All {@link Effect effects} that are successfully parsed during parsing, in order of last successful parsing
      */
-    private static final RecentElementList<SyntaxInfo<? extends Effect>> recentEffects = new RecentElementList<>();
+    private static final ThreadLocal<RecentElementList<SyntaxInfo<? extends Effect>>> recentEffects = ThreadLocal.withInitial(RecentElementList::new);
     /**
      * All {@link CodeSection sections} that are successfully parsed during parsing, in order of last successful parsing
      */
-    private static final RecentElementList<SyntaxInfo<? extends CodeSection>> recentSections = new RecentElementList<>();
+    private static final ThreadLocal<RecentElementList<SyntaxInfo<? extends CodeSection>>> recentSections = ThreadLocal.withInitial(RecentElementList::new);
     /**
      * All {@link SkriptEvent events} that are successfully parsed during parsing, in order of last successful parsing
      */
-    private static final RecentElementList<SkriptEventInfo<?>> recentEvents = new RecentElementList<>();
+    private static final ThreadLocal<RecentElementList<SkriptEventInfo<?>>> recentEvents = ThreadLocal.withInitial(RecentElementList::new);
     /**
      * All {@link Expression expressions} that are successfully parsed during parsing, in order of last successful parsing
      */
-    private static final RecentElementList<ExpressionInfo<?, ?>> recentExpressions = new RecentElementList<>();
+    private static final ThreadLocal<RecentElementList<ExpressionInfo<?, ?>>> recentExpressions = ThreadLocal.withInitial(RecentElementList::new);
     /**
      * All {@link ConditionalExpression conditions} that are successfully parsed during parsing, in order of last successful parsing
      */
-    private static final RecentElementList<ExpressionInfo<? extends ConditionalExpression, ? extends Boolean>> recentConditions = new RecentElementList<>();
+    private static final ThreadLocal<RecentElementList<ExpressionInfo<? extends ConditionalExpression, ? extends Boolean>>> recentConditions = ThreadLocal.withInitial(RecentElementList::new);
+    private static final LongAdder foldedExpressions = new LongAdder();
 
     /**
      * Parses an {@link Expression} from the given {@linkplain String} and {@link PatternType expected return type}
@@ -108,6 +109,27 @@ public class SyntaxParser {
         if (s.startsWith("(") && s.endsWith(")") && StringUtils.findClosingIndex(s, '(', ')', 0) == s.length() - 1) {
             s = s.substring(1, s.length() - 1);
         }
+        var cache = parserState.getParseCache();
+        var cacheKey = s; // s may be modified further down
+        if (cache.isKnownFailure(cacheKey, expectedType, ParseCache.NOT_BOOLEAN)) {
+            logger.setContext(ErrorContext.NO_MATCH);
+            logger.error("No expression matching '" + s + "' was found", ErrorType.NO_MATCH);
+            return Optional.empty();
+        }
+        var knownMatch = cache.getKnownMatch(cacheKey, expectedType, ParseCache.NOT_BOOLEAN);
+        if (knownMatch.isPresent()) {
+            var info = knownMatch.get();
+            var toMatch = info != EXPRESSION_BOOLEAN_OPERATORS && s.toLowerCase().startsWith("list ")
+                    ? s.substring("list ".length())
+                    : s;
+            var expr = matchExpressionInfo(toMatch, info, expectedType, parserState, logger);
+            if (expr.isPresent()) {
+                recentExpressions.get().acknowledge(info);
+                logger.clearErrors();
+                return expr;
+            }
+            logger.forgetError();
+        }
         var literal = parseLiteral(s, expectedType, parserState, logger);
         if (literal.isPresent()) {
             return literal;
@@ -134,7 +156,8 @@ public class SyntaxParser {
             // We parse boolean operators first to prevent clutter while parsing.
             var booleanOperator = matchExpressionInfo(s, EXPRESSION_BOOLEAN_OPERATORS, expectedType, parserState, logger);
             if (booleanOperator.isPresent()) {
-                recentExpressions.acknowledge(EXPRESSION_BOOLEAN_OPERATORS);
+                cache.success(cacheKey, expectedType, ParseCache.NOT_BOOLEAN, EXPRESSION_BOOLEAN_OPERATORS);
+                recentExpressions.get().acknowledge(EXPRESSION_BOOLEAN_OPERATORS);
                 logger.clearErrors();
                 return booleanOperator;
             }
@@ -145,28 +168,34 @@ public class SyntaxParser {
                 return listLiteral;
             }
         }
-        for (var info : recentExpressions) {
+        var index = SyntaxManager.getExpressionIndex();
+        for (var info : recentExpressions.get()) {
+            if (!index.canMatch(info, s))
+                continue;
             var expr = matchExpressionInfo(s, info, expectedType, parserState, logger);
             if (expr.isPresent()) {
-                recentExpressions.acknowledge(info);
+                cache.success(cacheKey, expectedType, ParseCache.NOT_BOOLEAN, info);
+                recentExpressions.get().acknowledge(info);
                 logger.clearErrors();
                 return expr;
             }
             logger.forgetError();
         }
-        // Let's not loop over the same elements again
-        var remainingExpressions = SyntaxManager.getAllExpressions();
-        recentExpressions.removeFrom(remainingExpressions);
+        // Let's not loop over the same elements again, nor over those that can't match anyway
+        var remainingExpressions = index.getCandidates(s);
+        recentExpressions.get().removeFrom(remainingExpressions);
         remainingExpressions.remove(EXPRESSION_BOOLEAN_OPERATORS);
         for (var info : remainingExpressions) {
             var expr = matchExpressionInfo(s, info, expectedType, parserState, logger);
             if (expr.isPresent()) {
-                recentExpressions.acknowledge(info);
+                cache.success(cacheKey, expectedType, ParseCache.NOT_BOOLEAN, info);
+                recentExpressions.get().acknowledge(info);
                 logger.clearErrors();
                 return expr;
             }
             logger.forgetError();
         }
+        cache.failure(cacheKey, expectedType, ParseCache.NOT_BOOLEAN);
         logger.setContext(ErrorContext.NO_MATCH);
         logger.error("No expression matching '" + s + "' was found", ErrorType.NO_MATCH);
         return Optional.empty();
@@ -196,6 +225,25 @@ public class SyntaxParser {
         } else if (s.equalsIgnoreCase("false")) {
             return Optional.of(new SimpleLiteral<>(Boolean.class, false));
         }
+        var cache = parserState.getParseCache();
+        if (cache.isKnownFailure(s, BOOLEAN_PATTERN_TYPE, conditional)) {
+            logger.setContext(ErrorContext.NO_MATCH);
+            logger.error("No expression matching '" + s + "' was found", ErrorType.NO_MATCH);
+            return Optional.empty();
+        }
+        var knownMatch = cache.getKnownMatch(s, BOOLEAN_PATTERN_TYPE, conditional);
+        if (knownMatch.isPresent()) {
+            var info = knownMatch.get();
+            var expr = (Optional<? extends Expression<Boolean>>) matchExpressionInfo(s, info, BOOLEAN_PATTERN_TYPE, parserState, logger);
+            if (expr.isPresent()) {
+                if (!checkConditional(expr.get(), info, conditional, logger))
+                    return Optional.empty();
+                recentExpressions.get().acknowledge(info);
+                logger.clearErrors();
+                return expr;
+            }
+            logger.forgetError();
+        }
         var variable = (Optional<? extends Variable<Boolean>>) Variables.parseVariable(s, Boolean.class, parserState, logger);
         if (variable.isPresent()) {
             if (variable.filter(v -> !v.isSingle()).isPresent()) {
@@ -211,90 +259,111 @@ public class SyntaxParser {
                 return variable;
             }
         }
-        for (var info : recentExpressions) {
-            if (info.getReturnType().getType().getTypeClass() != Boolean.class)
+        var index = SyntaxManager.getExpressionIndex();
+        for (var info : recentExpressions.get()) {
+            if (info.getReturnType().getType().getTypeClass() != Boolean.class || !index.canMatch(info, s))
                 continue;
             var expr = (Optional<? extends Expression<Boolean>>) matchExpressionInfo(s, info, BOOLEAN_PATTERN_TYPE, parserState, logger);
             if (expr.isPresent()) {
-                switch (conditional) {
-                    case 0: // Can't be conditional
-                        if (ConditionalExpression.class.isAssignableFrom(expr.get().getClass())) {
-                            logger.error(
-                                    "The boolean expression must not be conditional",
-                                    ErrorType.SEMANTIC_ERROR,
-                                    "Rather than a condition, use a simple boolean here. Use 'whether %=boolean%' to convert a condition into a simple boolean"
-                            );
-                            return Optional.empty();
-                        }
-                        break;
-                    case 2: // Has to be conditional
-                        if (!ConditionalExpression.class.isAssignableFrom(expr.get().getClass())) {
-                            logger.error(
-                                    "The boolean expression must be conditional",
-                                    ErrorType.SEMANTIC_ERROR,
-                                    "Rather than a simple boolean, use a condition here, like '{x} is more than 10'"
-                            );
-                            return Optional.empty();
-                        }
-                    case 1: // Can be conditional
-                        if (ConditionalExpression.class.isAssignableFrom(expr.get().getClass())) {
-                            recentConditions.acknowledge((ExpressionInfo<? extends ConditionalExpression, ? extends Boolean>) info);
-                        }
-                    default: // You just want me dead, don't you ?
-                        break;
-                }
-                recentExpressions.acknowledge(info);
+                if (!checkConditional(expr.get(), info, conditional, logger))
+                    return Optional.empty();
+                cache.success(s, BOOLEAN_PATTERN_TYPE, conditional, info);
+                recentExpressions.get().acknowledge(info);
                 logger.clearErrors();
                 return expr;
             }
             logger.forgetError();
         }
-        // Let's not loop over the same elements again
-        var remainingExpressions = SyntaxManager.getAllExpressions();
-        recentExpressions.removeFrom(remainingExpressions);
+        // Let's not loop over the same elements again, nor over those that can't match anyway
+        var remainingExpressions = index.getCandidates(s);
+        recentExpressions.get().removeFrom(remainingExpressions);
         for (var info : remainingExpressions) {
             if (info.getReturnType().getType().getTypeClass() != Boolean.class)
                 continue;
             var expr = (Optional<? extends Expression<Boolean>>) matchExpressionInfo(s, info, BOOLEAN_PATTERN_TYPE, parserState, logger);
             if (expr.isPresent()) {
-                switch (conditional) {
-                    case 0: // Can't be conditional
-                        if (ConditionalExpression.class.isAssignableFrom(expr.get().getClass())) {
-                            logger.error(
-                                    "The boolean expression must not be conditional",
-                                    ErrorType.SEMANTIC_ERROR,
-                                    "Rather than a condition, use a simple boolean here. Use 'whether %=boolean%' to convert a condition into a simple boolean"
-                            );
-                            return Optional.empty();
-                        }
-                        break;
-                    case 2: // Has to be conditional
-                        if (!ConditionalExpression.class.isAssignableFrom(expr.get().getClass())) {
-                            logger.error(
-                                    "The boolean expression must be conditional",
-                                    ErrorType.SEMANTIC_ERROR,
-                                    "Rather than a simple boolean, use a condition here, like '{x} is more than 10'"
-                            );
-                            return Optional.empty();
-                        }
-                    case 1: // Can be conditional
-                        if (ConditionalExpression.class.isAssignableFrom(expr.get().getClass())) {
-                            recentConditions.acknowledge((ExpressionInfo<? extends ConditionalExpression, ? extends Boolean>) info);
-                        }
-                    default: // You just want me dead, don't you ?
-                        break;
-                }
-                recentExpressions.acknowledge(info);
+                if (!checkConditional(expr.get(), info, conditional, logger))
+                    return Optional.empty();
+                cache.success(s, BOOLEAN_PATTERN_TYPE, conditional, info);
+                recentExpressions.get().acknowledge(info);
                 logger.clearErrors();
                 return expr;
             }
             logger.forgetError();
         }
+        cache.failure(s, BOOLEAN_PATTERN_TYPE, conditional);
         logger.setContext(ErrorContext.NO_MATCH);
         logger.error("No expression matching '" + s + "' was found", ErrorType.NO_MATCH);
         return Optional.empty();
     }
 
+    /**
+     * Checks whether a parsed boolean expression is allowed according to a conditional constant, logging an error
+     * if it isn't.
+     * @param expr the parsed boolean expression
+     * @param info the info of the parsed expression
+     * @param conditional a constant describing whether the expression can be a {@link ConditionalExpression condition}
+     * @param logger the logger
+     * @return whether the expression is allowed
+     */
+    private static boolean checkConditional(Expression<Boolean> expr, ExpressionInfo<?, ?> info, int conditional, SkriptLogger logger) {
+        switch (conditional) {
+            case 0: // Can't be conditional
+                if (ConditionalExpression.class.isAssignableFrom(expr.getClass())) {
+                    logger.error(
+                            "The boolean expression must not be conditional",
+                            ErrorType.SEMANTIC_ERROR,
+                            "Rather than a condition, use a simple boolean here. Use 'whether %=boolean%' to convert a condition into a simple boolean"
+                    );
+                    return false;
+                }
+                break;
+            case 2: // Has to be conditional
+                if (!ConditionalExpression.class.isAssignableFrom(expr.getClass())) {
+                    logger.error(
+                            "The boolean expression must be conditional",
+                            ErrorType.SEMANTIC_ERROR,
+                            "Rather than a simple boolean, use a condition here, like '{x} is more than 10'"
+                    );
+                    return false;
+                }
+            case 1: // Can be conditional
+                if (ConditionalExpression.class.isAssignableFrom(expr.getClass())) {
+                    recentConditions.get().acknowledge((ExpressionInfo<? extends ConditionalExpression, ? extends Boolean>) info);
+                }
+            default: // You just want me dead, don't you ?
+                break;
+        }
+        return true;
+    }
+
+    /*
+     * Constant folding only keeps simplified expressions that look the same as the original to the syntax elements
+     * they're passed to. If simplifying fails at parse time, the error is left for runtime.
+     */
+    private static <T> Expression<? extends T> simplify(Expression<? extends T> expression) {
+        Expression<? extends T> simplified;
+        try {
+            simplified = expression.simplify();
+        } catch (RuntimeException e) {
+            return expression;
+        }
+        if (simplified == expression
+                || simplified.isSingle() != expression.isSingle()
+                || !expression.getReturnType().isAssignableFrom(simplified.getReturnType()))
+            return expression;
+        foldedExpressions.increment();
+        return simplified;
+    }
+
+    /**
+     * @return how many expressions were replaced with simpler ones by constant folding so far
+     * @see Expression#simplify()
+     */
+    public static long getFoldedCount() {
+        return foldedExpressions.sum();
+    }
+
     private static <T> Optional<? extends Expression<? extends T>> matchExpressionInfo(String s, ExpressionInfo<?, ?> info, PatternType<T> expectedType, ParserState parserState, SkriptLogger logger) {
         var patterns = info.getPatterns();
         var infoType = info.getReturnType();
@@ -354,7 +423,7 @@ public class SyntaxParser {
                         );
                         continue;
                     }
-                    return Optional.of(expression);
+                    return Optional.of(simplify(expression));
                 } catch (InstantiationException | IllegalAccessException | NoSuchMethodException | InvocationTargetException e) {
                     logger.error("Couldn't instantiate class '" + info.getSyntaxClass().getName() + "'", ErrorType.EXCEPTION);
                 }
@@ -495,7 +564,7 @@ public class SyntaxParser {
                     }
                 } else if (expectedClass == String.class || c == String.class) {
                     var vs = VariableString.newInstanceWithQuotes(s, parserState, logger)
-                            .map(v -> (Expression<? extends T>) v);
+                            .map(v -> (Expression<? extends T>) simplify(v));
                     if (vs.isPresent()) {
                         return vs;
                     }
@@ -517,22 +586,22 @@ public class SyntaxParser {
     public static Optional<? extends Effect> parseEffect(String s, ParserState parserState, SkriptLogger logger) {
         if (s.isEmpty())
             return Optional.empty();
-        for (var recentEffect : recentEffects) {
+        for (var recentEffect : recentEffects.get()) {
             var eff = matchEffectInfo(s, recentEffect, parserState, logger);
             if (eff.isPresent()) {
-                recentEffects.acknowledge(recentEffect);
+                recentEffects.get().acknowledge(recentEffect);
                 logger.clearErrors();
                 return eff;
             }
             logger.forgetError();
         }
         // Let's not loop over the same elements again
-        var remainingEffects = SyntaxManager.getEffects();
-        recentEffects.removeFrom(remainingEffects);
+        var remainingEffects = new ArrayList<>(SyntaxManager.getEffects());
+        recentEffects.get().removeFrom(remainingEffects);
         for (var remainingEffect : remainingEffects) {
             var eff = matchEffectInfo(s, remainingEffect, parserState, logger);
             if (eff.isPresent()) {
-                recentEffects.acknowledge(remainingEffect);
+                recentEffects.get().acknowledge(remainingEffect);
                 logger.clearErrors();
                 return eff;
             }
@@ -612,21 +681,21 @@ public class SyntaxParser {
     public static Optional<? extends CodeSection> parseSection(FileSection section, ParserState parserState, SkriptLogger logger) {
         if (section.getLineContent().isEmpty())
             return Optional.empty();
-        for (var recentSection : recentSections) {
+        for (var recentSection : recentSections.get()) {
             var sec = matchSectionInfo(section, recentSection, parserState, logger);
             if (sec.isPresent()) {
-                recentSections.acknowledge(recentSection);
+                recentSections.get().acknowledge(recentSection);
                 logger.clearErrors();
                 return sec;
             }
             logger.forgetError();
         }
-        var remainingSections = SyntaxManager.getSections();
-        recentSections.removeFrom(remainingSections);
+        var remainingSections = new ArrayList<>(SyntaxManager.getSections());
+        recentSections.get().removeFrom(remainingSections);
         for (var remainingSection : remainingSections) {
             var sec = matchSectionInfo(section, remainingSection, parserState, logger);
             if (sec.isPresent()) {
-                recentSections.acknowledge(remainingSection);
+                recentSections.get().acknowledge(remainingSection);
                 logger.clearErrors();
                 return sec;
             }
@@ -680,22 +749,22 @@ public class SyntaxParser {
     public static Optional<? extends UnloadedTrigger> parseTrigger(FileSection section, SkriptLogger logger) {
         if (section.getLineContent().isEmpty())
             return Optional.empty();
-        for (var recentEvent : recentEvents) {
+        for (var recentEvent : recentEvents.get()) {
             var trigger = matchEventInfo(section, recentEvent, logger);
             if (trigger.isPresent()) {
-                recentEvents.acknowledge(recentEvent);
+                recentEvents.get().acknowledge(recentEvent);
                 logger.clearErrors();
                 return trigger;
             }
             logger.forgetError();
         }
         // Let's not loop over the same elements again
-        var remainingEvents = SyntaxManager.getEvents();
-        recentEvents.removeFrom(remainingEvents);
+        var remainingEvents = new ArrayList<>(SyntaxManager.getEvents());
+        recentEvents.get().removeFrom(remainingEvents);
         for (var remainingEvent : remainingEvents) {
             var trigger = matchEventInfo(section, remainingEvent, logger);
             if (trigger.isPresent()) {
-                recentEvents.acknowledge(remainingEvent);
+                recentEvents.get().acknowledge(remainingEvent);
                 logger.clearErrors();
                 return trigger;
             }
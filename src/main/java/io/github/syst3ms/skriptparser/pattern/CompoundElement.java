@@ -2,7 +2,9 @@ package io.github.syst3ms.skriptparser.pattern;
 
 import io.github.syst3ms.skriptparser.parsing.MatchContext;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -10,9 +12,17 @@ import java.util.List;
  */
 public class CompoundElement implements PatternElement {
     private final List<PatternElement> elements;
+    // What could possibly be matched after each element, computed once and for all
+    private final List<List<PatternElement>> possibleInputs;
 
     public CompoundElement(List<PatternElement> elements) {
         this.elements = elements;
+        this.possibleInputs = new ArrayList<>(elements.size());
+        for (var i = 0; i < elements.size(); i++) {
+            possibleInputs.add(Collections.unmodifiableList(
+                    PatternElement.getPossibleInputs(elements.subList(i + 1, elements.size()))
+            ));
+        }
     }
 
     /**
@@ -26,6 +36,15 @@ public class CompoundElement implements PatternElement {
         return elements;
     }
 
+    /**
+     * @param index the index of one of the elements of this {@link CompoundElement}
+     * @return what could possibly be matched right after the element at the given index
+     * @see PatternElement#getPossibleInputs(List)
+     */
+    public List<PatternElement> getPossibleInputsAfter(int index) {
+        return possibleInputs.get(Math.min(index, possibleInputs.size() - 1));
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (this == obj)
@@ -31,12 +31,14 @@ import java.util.Optional;
  */
 public class ExpressionElement implements PatternElement {
     private final List<PatternType<?>> types;
+    private final PatternType<?>[] typeArray;
     private final Acceptance acceptance;
     private final boolean nullable;
     private final boolean acceptsConditional;
 
     public ExpressionElement(List<PatternType<?>> types, Acceptance acceptance, boolean nullable, boolean acceptsConditional) {
         this.types = types;
+        this.typeArray = types.toArray(new PatternType<?>[0]);
         this.acceptance = acceptance;
         this.nullable = nullable;
         this.acceptsConditional = acceptsConditional;
@@ -44,21 +46,20 @@ public class ExpressionElement implements PatternElement {
 
     @Override
     public int match(String s, int index, MatchContext context) {
-        var typeArray = types.toArray(new PatternType<?>[0]);
         if (index >= s.length()) {
             return -1;
         }
         var logger = context.getLogger();
         var source = context.getSource();
         var possibilityIndex = context.getPatternIndex();
-        var flattened = PatternElement.flatten(context.getOriginalElement());
-        while (source.isPresent() && possibilityIndex + 1 >= flattened.size()) {
-            flattened = PatternElement.flatten(source.get().getOriginalElement());
+        var element = context.getOriginalElement();
+        while (source.isPresent() && possibilityIndex + 1 >= PatternElement.getFlattenedSize(element)) {
+            element = source.get().getOriginalElement();
             possibilityIndex = source.get().getPatternIndex();
             source = source.get().getSource();
         }
         // We look at what could possibly be after the expression in the current syntax
-        var possibleInputs = PatternElement.getPossibleInputs(flattened.subList(possibilityIndex + 1, flattened.size()));
+        var possibleInputs = PatternElement.getPossibleInputsAfter(element, possibilityIndex);
         for (var possibleInput : possibleInputs) {  // We iterate over those possibilities
             if (possibleInput instanceof TextElement) {
                 var text = ((TextElement) possibleInput).getText();
@@ -104,8 +105,8 @@ public class ExpressionElement implements PatternElement {
                 }
             } else {
                 assert possibleInput instanceof ExpressionElement;
-                var nextPossibleInputs = PatternElement.getPossibleInputs(flattened.subList(context.getPatternIndex() + 1, flattened.size()));
-                if (nextPossibleInputs.stream().anyMatch(pe -> !(pe instanceof TextElement))) {
+                var nextPossibleInputs = PatternElement.getPossibleInputsAfter(element, context.getPatternIndex());
+                if (!allText(nextPossibleInputs)) {
                     continue;
                 }
                 for (var nextPossibleInput : nextPossibleInputs) {
@@ -150,6 +151,14 @@ public class ExpressionElement implements PatternElement {
         return -1;
     }
 
+    private static boolean allText(List<PatternElement> elements) {
+        for (var element : elements) {
+            if (!(element instanceof TextElement))
+                return false;
+        }
+        return true;
+    }
+
     private List<String> splitAtSpaces(String s) {
         List<String> split = new ArrayList<>();
         var sb = new StringBuilder();
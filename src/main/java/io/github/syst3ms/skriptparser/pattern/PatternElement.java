@@ -29,6 +29,33 @@ public interface PatternElement {
         }
     }
 
+    /**
+     * @param element the element
+     * @return the size of {@link #flatten(PatternElement)}, without any allocation
+     */
+    static int getFlattenedSize(PatternElement element) {
+        if (element instanceof CompoundElement) {
+            return ((CompoundElement) element).getElements().size();
+        } else {
+            return 1;
+        }
+    }
+
+    /**
+     * Equivalent to calling {@link #getPossibleInputs(List)} on the flattened elements after the given index, except
+     * that the result was already computed when the pattern was parsed.
+     * @param element the element
+     * @param index the index in the flattened element
+     * @return what could possibly be matched after the element at the given index
+     */
+    static List<PatternElement> getPossibleInputsAfter(PatternElement element, int index) {
+        if (element instanceof CompoundElement) {
+            return ((CompoundElement) element).getPossibleInputsAfter(index);
+        } else {
+            return TextElement.END_OF_LINE_ONLY;
+        }
+    }
+
     static List<PatternElement> getPossibleInputs(List<PatternElement> elements) {
         List<PatternElement> optionalPossibilities = new ArrayList<>(); // We generally want to get the non-optional ones out of the way first
         List<PatternElement> possibilities = new ArrayList<>();
@@ -61,7 +88,7 @@ public interface PatternElement {
             }
         }
         possibilities.addAll(optionalPossibilities);
-        possibilities.add(new TextElement("\0")); // EOL still goes at the very end
+        possibilities.add(TextElement.END_OF_LINE); // EOL still goes at the very end
         return possibilities;
     }
 }
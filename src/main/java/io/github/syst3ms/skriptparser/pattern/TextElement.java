@@ -3,10 +3,18 @@ package io.github.syst3ms.skriptparser.pattern;
 import io.github.syst3ms.skriptparser.parsing.MatchContext;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.List;
+
 /**
  * Text inside of a pattern. Is case and whitespace insensitive.
  */
 public class TextElement implements PatternElement {
+    /**
+     * Stands for the end of the line when looking for the possible inputs following an element
+     */
+    static final TextElement END_OF_LINE = new TextElement("\0");
+    static final List<PatternElement> END_OF_LINE_ONLY = List.of(END_OF_LINE);
+
     private final String text;
 
     public TextElement(String text) {
@@ -0,0 +1,128 @@
+package io.github.syst3ms.skriptparser.profiling;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * What the {@link Profiler} measured about a trigger or about a line of code inside of a trigger.
+ * All times are in nanoseconds.
+ */
+public class ExecutionMetrics {
+    private final String scriptName;
+    private final int line;
+    private final String name;
+    private final String stack;
+    private final Histogram latency = new Histogram();
+    private final LongAdder selfTime = new LongAdder();
+    private final LongAdder allocatedBytes = new LongAdder();
+    private final LongAdder exceptions = new LongAdder();
+
+    ExecutionMetrics(String scriptName, int line, String name, String stack) {
+        this.scriptName = scriptName;
+        this.line = line;
+        this.name = name;
+        this.stack = stack;
+    }
+
+    /**
+     * Records one execution
+     * @param time how long it took, including the statements it ran, like the contents of a section
+     * @param allocated an estimate of how many bytes it allocated
+     */
+    public void record(long time, long allocated) {
+        latency.record(time);
+        allocatedBytes.add(allocated);
+    }
+
+    /**
+     * Adds to the time spent running this code itself, excluding the statements it ran
+     * @param time the time
+     */
+    public void addSelfTime(long time) {
+        selfTime.add(time);
+    }
+
+    /**
+     * Records an exception that stopped this code, whether it was thrown by this code or by the code it ran
+     */
+    public void recordException() {
+        exceptions.increment();
+    }
+
+    /**
+     * @return the name of the script this code is in, or an empty string if it wasn't parsed from a script
+     */
+    public String getScriptName() {
+        return scriptName;
+    }
+
+    /**
+     * @return the line this code is at, or {@code -1} if it wasn't parsed from a script
+     */
+    public int getLine() {
+        return line;
+    }
+
+    /**
+     * @return the content of the line this code is at
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the sections this code is contained in, starting with its trigger and ending with this code, separated
+     *         by semicolons, as expected by flame graph tools
+     */
+    public String getStack() {
+        return stack;
+    }
+
+    /**
+     * @return how many times this code ran
+     */
+    public long getInvocations() {
+        return latency.getCount();
+    }
+
+    /**
+     * @return how long each execution of this code took
+     */
+    public Histogram getLatency() {
+        return latency;
+    }
+
+    /**
+     * @return the time spent running this code, including the statements it ran
+     */
+    public long getTotalTime() {
+        return latency.getTotal();
+    }
+
+    /**
+     * @return the time spent running this code itself, excluding the statements it ran
+     */
+    public long getSelfTime() {
+        return selfTime.sum();
+    }
+
+    /**
+     * @return an estimate of how many bytes this code allocated
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes.sum();
+    }
+
+    /**
+     * @return how many times this code was stopped by an exception
+     */
+    public long getExceptions() {
+        return exceptions.sum();
+    }
+
+    void reset() {
+        latency.reset();
+        selfTime.reset();
+        allocatedBytes.reset();
+        exceptions.reset();
+    }
+}
@@ -0,0 +1,105 @@
+package io.github.syst3ms.skriptparser.profiling;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts how many times each value was recorded, in buckets that get wider as values grow, so that any value is known
+ * within about 3% while only using a fixed amount of memory. Values from 0 to 63 each have their own bucket, and each
+ * power of two above that is split into 32 buckets of equal width.
+ * <br>
+ * Recording a value is lock-free, and may happen concurrently with other recordings and with reads.
+ */
+public class Histogram {
+    // Each power of two is split into 2^SUB_BUCKET_BITS buckets
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = bucketOf(Long.MAX_VALUE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Records a value
+     * @param value the value, where negative values are recorded as 0
+     */
+    public void record(long value) {
+        if (value < 0)
+            value = 0;
+        counts.incrementAndGet(bucketOf(value));
+        count.increment();
+        total.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * @return how many values were recorded
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * @return the sum of all recorded values
+     */
+    public long getTotal() {
+        return total.sum();
+    }
+
+    /**
+     * @return the largest recorded value, or 0 if nothing was recorded
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * @param percentile the percentile, between 0 and 100
+     * @return the highest value that falls in the same bucket as the value at the given percentile, so that at least
+     *         this percentage of the recorded values is less or equal to it, or 0 if nothing was recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        long recorded = 0;
+        for (var i = 0; i < BUCKETS; i++)
+            recorded += counts.get(i);
+        if (recorded == 0)
+            return 0;
+        var target = Math.max(1, (long) Math.ceil(Math.min(percentile, 100) / 100 * recorded));
+        long seen = 0;
+        for (var i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= target)
+                return Math.min(highestValueOf(i), getMax());
+        }
+        return getMax();
+    }
+
+    /**
+     * Forgets all recorded values. Values recorded concurrently may or may not be forgotten.
+     */
+    public void reset() {
+        for (var i = 0; i < BUCKETS; i++)
+            counts.set(i, 0);
+        count.reset();
+        total.reset();
+        max.reset();
+    }
+
+    /*
+     * Values under 2 * SUB_BUCKETS are their own bucket. Above that, a value is shifted right until it is made of
+     * SUB_BUCKET_BITS + 1 bits, and every shift adds SUB_BUCKETS buckets.
+     */
+    static int bucketOf(long value) {
+        var shift = Math.max(0, 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS);
+        return (shift << SUB_BUCKET_BITS) + (int) (value >>> shift);
+    }
+
+    static long highestValueOf(int bucket) {
+        var shift = Math.max(0, (bucket >> SUB_BUCKET_BITS) - 1);
+        var lowest = (long) (bucket - (shift << SUB_BUCKET_BITS)) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
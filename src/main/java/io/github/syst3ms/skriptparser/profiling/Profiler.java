@@ -0,0 +1,189 @@
+package io.github.syst3ms.skriptparser.profiling;
+
+import io.github.syst3ms.skriptparser.file.FileElement;
+import io.github.syst3ms.skriptparser.lang.Statement;
+import io.github.syst3ms.skriptparser.lang.Trigger;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Measures how often and how long triggers and each of their lines run, when enabled. Metrics are kept for each line
+ * of each script, so that they carry on across reloads.
+ * <br>
+ * While profiling is enabled, triggers are interpreted one statement at a time, so that time can be attributed to
+ * each statement, which makes them somewhat slower than usual.
+ * @see ExecutionMetrics
+ */
+public class Profiler {
+    private static final Map<String, ExecutionMetrics> metrics = new ConcurrentHashMap<>();
+    private static volatile boolean enabled;
+
+    private Profiler() {}
+
+    /**
+     * @return whether triggers are currently being profiled
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Starts or stops profiling triggers. Stopping keeps what was already measured.
+     * @param enabled whether to profile triggers
+     */
+    public static void setEnabled(boolean enabled) {
+        Profiler.enabled = enabled;
+    }
+
+    /**
+     * @param statement a Statement
+     * @param running the metrics of the statement running the given Statement, if there is one. It is only used for
+     *                statements that aren't part of a trigger by themselves, like the contents of a loop.
+     * @return the metrics of the line the given Statement was parsed from. Statements that weren't parsed from a file
+     *         share metrics with the statements of the same type placed at the same spot.
+     */
+    public static ExecutionMetrics getMetrics(Statement statement, @Nullable ExecutionMetrics running) {
+        var stack = frameOf(statement);
+        Statement top = statement;
+        for (var parent = statement.getParent(); parent.isPresent(); parent = parent.get().getParent()) {
+            top = parent.get();
+            stack = frameOf(top) + ';' + stack;
+        }
+        if (!(top instanceof Trigger) && running != null)
+            stack = running.getStack() + ';' + stack;
+        var element = statement.getElement();
+        var name = element.map(FileElement::getLineContent).orElseGet(() -> statement.getClass().getSimpleName());
+        var scriptName = element.map(FileElement::getFileName).orElse("");
+        var line = element.map(FileElement::getLine).orElse(-1);
+        return metrics.computeIfAbsent(stack, s -> new ExecutionMetrics(scriptName, line, name, s));
+    }
+
+    /**
+     * @return the metrics of all triggers and lines that ran while profiling was enabled, the slowest first
+     */
+    public static List<ExecutionMetrics> getMetrics() {
+        List<ExecutionMetrics> all = new ArrayList<>(metrics.values());
+        all.sort(Comparator.comparingLong(ExecutionMetrics::getTotalTime).reversed());
+        return all;
+    }
+
+    /**
+     * Forgets everything that was measured so far
+     */
+    public static void reset() {
+        for (var m : metrics.values())
+            m.reset();
+    }
+
+    /**
+     * @return an estimate of how many bytes the current thread allocated so far, or 0 if the JVM doesn't tell
+     */
+    public static long getAllocatedBytes() {
+        var threads = Allocations.threads;
+        if (threads == null)
+            return 0;
+        return Math.max(0, threads.getThreadAllocatedBytes(Thread.currentThread().getId()));
+    }
+
+    /**
+     * Writes a table of all metrics, the slowest triggers and lines first
+     * @param writer where to write
+     * @throws IOException if writing failed
+     */
+    public static void writeReport(Writer writer) throws IOException {
+        writer.write(String.format(
+                "%10s %8s %12s %12s %10s %10s %10s %14s  %s%n",
+                "Calls", "Errors", "Total (ms)", "Self (ms)", "p50 (us)", "p99 (us)", "Max (us)", "Allocated (KB)", "Line"
+        ));
+        for (var m : getMetrics()) {
+            var latency = m.getLatency();
+            writer.write(String.format(
+                    "%10d %8d %12.3f %12.3f %10d %10d %10d %14d  %s%n",
+                    m.getInvocations(),
+                    m.getExceptions(),
+                    m.getTotalTime() / 1e6,
+                    m.getSelfTime() / 1e6,
+                    latency.getValueAtPercentile(50) / 1000,
+                    latency.getValueAtPercentile(99) / 1000,
+                    latency.getMax() / 1000,
+                    m.getAllocatedBytes() / 1024,
+                    m.getLine() == -1 ? m.getName() : m.getScriptName() + ':' + m.getLine() + ' ' + m.getName()
+            ));
+        }
+    }
+
+    /**
+     * Writes the time spent in each line in the folded stack format used by flame graph tools : one line per line of
+     * code, with the sections it's in separated by semicolons, followed by the time spent in this line itself, in
+     * microseconds.
+     * @param writer where to write
+     * @throws IOException if writing failed
+     */
+    public static void writeFoldedStacks(Writer writer) throws IOException {
+        for (var m : getMetrics()) {
+            var self = m.getSelfTime() / 1000;
+            if (self > 0)
+                writer.write(m.getStack() + ' ' + self + '\n');
+        }
+    }
+
+    /**
+     * Writes the {@linkplain #writeReport(Writer) report} and the {@linkplain #writeFoldedStacks(Writer) folded stacks}
+     * to the given files when the JVM shuts down
+     * @param report the file to write the report to
+     * @param stacks the file to write the folded stacks to
+     */
+    public static void writeAtShutdown(Path report, Path stacks) {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try (var writer = Files.newBufferedWriter(report)) {
+                writeReport(writer);
+            } catch (IOException e) {
+                System.err.println("Couldn't write the profiling report : " + e.getMessage());
+            }
+            try (var writer = Files.newBufferedWriter(stacks)) {
+                writeFoldedStacks(writer);
+            } catch (IOException e) {
+                System.err.println("Couldn't write the profiling stacks : " + e.getMessage());
+            }
+        }, "Skript profiler"));
+    }
+
+    // Flame graph tools split frames on semicolons, and the count on the last space
+    private static String frameOf(Statement statement) {
+        return statement.getElement()
+                .map(e -> e.getLineContent().replace(';', ',') + " (" + e.getFileName() + ':' + e.getLine() + ')')
+                .orElseGet(() -> statement.getClass().getSimpleName());
+    }
+
+    // Loaded on first use only, as the management API takes a while to start
+    private static class Allocations {
+        @Nullable
+        private static final com.sun.management.ThreadMXBean threads = findThreads();
+
+        @Nullable
+        private static com.sun.management.ThreadMXBean findThreads() {
+            var bean = ManagementFactory.getThreadMXBean();
+            if (!(bean instanceof com.sun.management.ThreadMXBean))
+                return null;
+            var threads = (com.sun.management.ThreadMXBean) bean;
+            try {
+                if (!threads.isThreadAllocatedMemorySupported())
+                    return null;
+                threads.setThreadAllocatedMemoryEnabled(true);
+                return threads;
+            } catch (UnsupportedOperationException | SecurityException e) {
+                return null;
+            }
+        }
+    }
+}
@@ -2,6 +2,7 @@ package io.github.syst3ms.skriptparser.registration;
 
 import io.github.syst3ms.skriptparser.Parser;
 import io.github.syst3ms.skriptparser.types.Type;
+import io.github.syst3ms.skriptparser.types.Serializer;
 import io.github.syst3ms.skriptparser.types.TypeManager;
 import io.github.syst3ms.skriptparser.types.changers.Arithmetic;
 import io.github.syst3ms.skriptparser.types.comparisons.Comparator;
@@ -14,10 +15,15 @@ import io.github.syst3ms.skriptparser.util.TimeUtils;
 import io.github.syst3ms.skriptparser.util.color.Color;
 import io.github.syst3ms.skriptparser.util.math.BigDecimalMath;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.time.LocalTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
@@ -113,6 +119,30 @@ public class DefaultRegistration {
                         public Class<? extends Number> getRelativeType() {
                             return Number.class;
                         }
+                    })
+                    .serializer(new Serializer<Number>() {
+                        @Override
+                        public void serialize(Number value, DataOutput output) throws IOException {
+                            if (value instanceof BigInteger) {
+                                output.writeBoolean(false);
+                                writeBigInteger((BigInteger) value, output);
+                            } else {
+                                var bd = BigDecimalMath.getBigDecimal(value);
+                                output.writeBoolean(true);
+                                output.writeInt(bd.scale());
+                                writeBigInteger(bd.unscaledValue(), output);
+                            }
+                        }
+
+                        @Override
+                        public Number deserialize(DataInput input) throws IOException {
+                            if (input.readBoolean()) {
+                                var scale = input.readInt();
+                                return new BigDecimal(readBigInteger(input), scale);
+                            } else {
+                                return readBigInteger(input);
+                            }
+                        }
                     }).register();
 
         registration.newType(BigInteger.class, "integer", "integer@s")
@@ -144,13 +174,37 @@ public class DefaultRegistration {
                         return BigInteger.class;
                     }
                 })
+                .serializer(new Serializer<BigInteger>() {
+                    @Override
+                    public void serialize(BigInteger value, DataOutput output) throws IOException {
+                        writeBigInteger(value, output);
+                    }
+
+                    @Override
+                    public BigInteger deserialize(DataInput input) throws IOException {
+                        return readBigInteger(input);
+                    }
+                })
                 .register();
 
-        registration.addType(
-                String.class,
-                "string",
-                "string@s"
-        );
+        registration.newType(String.class, "string", "string@s")
+                .serializer(new Serializer<String>() {
+                    @Override
+                    public void serialize(String value, DataOutput output) throws IOException {
+                        // DataOutput#writeUTF is limited to 65535 bytes
+                        var bytes = value.getBytes(StandardCharsets.UTF_8);
+                        output.writeInt(bytes.length);
+                        output.write(bytes);
+                    }
+
+                    @Override
+                    public String deserialize(DataInput input) throws IOException {
+                        var bytes = new byte[input.readInt()];
+                        input.readFully(bytes);
+                        return new String(bytes, StandardCharsets.UTF_8);
+                    }
+                })
+                .register();
 
         registration.newType(Boolean.class, "boolean", "boolean@s")
                     .literalParser(s -> {
@@ -163,6 +217,17 @@ public class DefaultRegistration {
                         }
                     })
                     .toStringFunction(String::valueOf)
+                    .serializer(new Serializer<Boolean>() {
+                        @Override
+                        public void serialize(Boolean value, DataOutput output) throws IOException {
+                            output.writeBoolean(value);
+                        }
+
+                        @Override
+                        public Boolean deserialize(DataInput input) throws IOException {
+                            return input.readBoolean();
+                        }
+                    })
                     .register();
 
         registration.newType(Type.class, "type", "type@s")
@@ -185,6 +250,19 @@ public class DefaultRegistration {
                     }
                 })
                 .toStringFunction(Color::toString)
+                .serializer(new Serializer<Color>() {
+                    @Override
+                    public void serialize(Color value, DataOutput output) throws IOException {
+                        output.writeByte(value.getRed());
+                        output.writeByte(value.getGreen());
+                        output.writeByte(value.getBlue());
+                    }
+
+                    @Override
+                    public Color deserialize(DataInput input) throws IOException {
+                        return Color.of(input.readUnsignedByte(), input.readUnsignedByte(), input.readUnsignedByte());
+                    }
+                })
                 .register();
 
         registration.newType(Duration.class, "duration", "duration@s")
@@ -211,6 +289,19 @@ public class DefaultRegistration {
                         return Duration.class;
                     }
                 })
+                .serializer(new Serializer<Duration>() {
+                    @Override
+                    public void serialize(Duration value, DataOutput output) throws IOException {
+                        output.writeLong(value.getSeconds());
+                        output.writeInt(value.getNano());
+                    }
+
+                    @Override
+                    public Duration deserialize(DataInput input) throws IOException {
+                        var seconds = input.readLong();
+                        return Duration.ofSeconds(seconds, input.readInt());
+                    }
+                })
                 .register();
 
         registration.newType(SkriptDate.class, "date", "date@s")
@@ -236,6 +327,17 @@ public class DefaultRegistration {
                         return Duration.class;
                     }
                 })
+                .serializer(new Serializer<SkriptDate>() {
+                    @Override
+                    public void serialize(SkriptDate value, DataOutput output) throws IOException {
+                        output.writeLong(value.getTimestamp());
+                    }
+
+                    @Override
+                    public SkriptDate deserialize(DataInput input) throws IOException {
+                        return SkriptDate.of(input.readLong());
+                    }
+                })
                 .register();
 
         registration.newType(Time.class, "time", "time@s")
@@ -262,6 +364,17 @@ public class DefaultRegistration {
                         return Duration.class;
                     }
                 })
+                .serializer(new Serializer<Time>() {
+                    @Override
+                    public void serialize(Time value, DataOutput output) throws IOException {
+                        output.writeLong(value.getTime().toNanoOfDay());
+                    }
+
+                    @Override
+                    public Time deserialize(DataInput input) throws IOException {
+                        return Time.of(LocalTime.ofNanoOfDay(input.readLong()));
+                    }
+                })
                 .register();
 
         /*
@@ -346,4 +459,16 @@ public class DefaultRegistration {
 
         registration.register(); // Ignoring logs here, we control the input
     }
-}
\ No newline at end of file
+
+    private static void writeBigInteger(BigInteger value, DataOutput output) throws IOException {
+        var bytes = value.toByteArray();
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static BigInteger readBigInteger(DataInput input) throws IOException {
+        var bytes = new byte[input.readInt()];
+        input.readFully(bytes);
+        return new BigInteger(bytes);
+    }
+}
@@ -3,6 +3,7 @@ package io.github.syst3ms.skriptparser.registration;
 import io.github.syst3ms.skriptparser.Skript;
 import io.github.syst3ms.skriptparser.lang.SkriptEvent;
 import io.github.syst3ms.skriptparser.lang.Trigger;
+import io.github.syst3ms.skriptparser.parsing.ScriptLoader;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -12,32 +13,56 @@ import java.util.List;
  */
 public abstract class SkriptAddon {
     private static final List<SkriptAddon> addons = new ArrayList<>();
+    private static final List<SkriptAddon> walkingAddons = new ArrayList<>();
     private String name;
     private final List<Class<? extends SkriptEvent>> handledEvents = new ArrayList<>();
 
     {
         addons.add(this);
+        try {
+            if (getClass().getMethod("walkingForward").getDeclaringClass() != SkriptAddon.class)
+                walkingAddons.add(this);
+        } catch (NoSuchMethodException e) {
+            throw new AssertionError(e);
+        }
     }
 
     public static List<SkriptAddon> getAddons() {
         return addons;
     }
 
+    /**
+     * @return all addons that override {@link #walkingForward()}
+     */
+    public static List<SkriptAddon> getWalkingAddons() {
+        return walkingAddons;
+    }
+
     /**
      * When a {@linkplain Trigger} is successfully parsed, it is "broadcast" to all addons through this method,
-     * in the hopes that one of them will be able to handle it.
+     * in the hopes that one of them will be able to handle it. This also happens after {@link #finishedLoading()} was
+     * called, when a script is loaded or reloaded later on.
      * @param trigger the trigger to be handled
      * @see #canHandleEvent(SkriptEvent)
      */
     public abstract void handleTrigger(Trigger trigger);
 
+    /**
+     * Is called when a {@linkplain Trigger} is unloaded, for example because its script is being reloaded. This is
+     * called on every addon, no matter which one handled the trigger. Optionally overridable.
+     * @param trigger the trigger that was unloaded
+     * @see ScriptLoader#unloadScript(String)
+     */
+    public void unloadTrigger(Trigger trigger) {}
+
     /**
      * Is called when a script has finished loading. Optionally overridable.
      */
     public void finishedLoading() {}
 
     /**
-     * Is called when moving to the next statement of the parser. Optionally overridable.
+     * Is called when moving to the next statement of the parser. Optionally overridable, and only called on addons
+     * that do override it.
      * Note that this is not always called, only in most occasions.
      */
     public void walkingForward() {}
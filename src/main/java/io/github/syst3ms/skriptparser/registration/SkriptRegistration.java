@@ -13,6 +13,7 @@ import io.github.syst3ms.skriptparser.registration.contextvalues.ContextValues;
 import io.github.syst3ms.skriptparser.registration.tags.Tag;
 import io.github.syst3ms.skriptparser.registration.tags.TagInfo;
 import io.github.syst3ms.skriptparser.registration.tags.TagManager;
+import io.github.syst3ms.skriptparser.types.Serializer;
 import io.github.syst3ms.skriptparser.types.Type;
 import io.github.syst3ms.skriptparser.types.TypeManager;
 import io.github.syst3ms.skriptparser.types.changers.Arithmetic;
@@ -461,6 +462,8 @@ public class SkriptRegistration {
         private Changer<? super C> defaultChanger;
         @Nullable
         private Arithmetic<C, ?> arithmetic;
+        @Nullable
+        private Serializer<C> serializer;
 
         public TypeRegistrar(Class<C> c, String baseName, String pattern) {
             this.c = c;
@@ -504,13 +507,22 @@ public class SkriptRegistration {
             return this;
         }
 
+        /**
+         * @param serializer a {@link Serializer} for this type, allowing variables of this type to be saved
+         * @return the registrar
+         */
+        public TypeRegistrar<C> serializer(Serializer<C> serializer) {
+            this.serializer = serializer;
+            return this;
+        }
+
         /**
          * Adds this type to the list of currently registered syntaxes
          */
         @Override
         public void register() {
             newTypes = true;
-            types.add(new Type<>(c, baseName, pattern, literalParser, toStringFunction, defaultChanger, arithmetic));
+            types.add(new Type<>(c, baseName, pattern, literalParser, toStringFunction, defaultChanger, arithmetic, serializer));
         }
     }
 
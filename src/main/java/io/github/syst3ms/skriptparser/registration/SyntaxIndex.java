@@ -0,0 +1,210 @@
+package io.github.syst3ms.skriptparser.registration;
+
+import io.github.syst3ms.skriptparser.pattern.ChoiceGroup;
+import io.github.syst3ms.skriptparser.pattern.CompoundElement;
+import io.github.syst3ms.skriptparser.pattern.ExpressionElement;
+import io.github.syst3ms.skriptparser.pattern.OptionalGroup;
+import io.github.syst3ms.skriptparser.pattern.PatternElement;
+import io.github.syst3ms.skriptparser.pattern.RegexGroup;
+import io.github.syst3ms.skriptparser.pattern.TextElement;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An index over the patterns of a list of {@link SyntaxInfo}s, used to quickly discard syntaxes that can't possibly
+ * match a given string.
+ *
+ * Every pattern is reduced to the literal text it is required to start with. Patterns that may start with an
+ * {@link ExpressionElement}, a {@link RegexGroup}, or that are entirely optional are put in a wildcard bucket,
+ * and are always considered as candidates. Matching against the index is case-insensitive, just like
+ * {@link TextElement#match(String, int, io.github.syst3ms.skriptparser.parsing.MatchContext)}.
+ * @param <T> the type of {@link SyntaxInfo}
+ */
+public class SyntaxIndex<T extends SyntaxInfo<?>> {
+    /**
+     * An empty prefix matches any string, and thus describes the wildcard bucket
+     */
+    private static final String WILDCARD = "";
+
+    private final List<T> infos;
+    private final Map<T, Integer> positions = new HashMap<>();
+    private final Map<T, String[]> prefixes = new HashMap<>();
+    private final Map<Character, List<T>> buckets = new HashMap<>();
+    private final List<T> wildcards = new ArrayList<>();
+    // Statistics
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder candidates = new LongAdder();
+
+    /**
+     * Builds an index over the given infos
+     * @param infos the infos to index, in the order they should be tried during parsing
+     */
+    public SyntaxIndex(List<T> infos) {
+        this.infos = Collections.unmodifiableList(new ArrayList<>(infos));
+        for (var i = 0; i < this.infos.size(); i++) {
+            positions.putIfAbsent(this.infos.get(i), i);
+        }
+        Set<Character> keys = new HashSet<>();
+        for (var info : this.infos) {
+            Set<String> infoPrefixes = new LinkedHashSet<>();
+            for (var pattern : info.getPatterns()) {
+                if (collectPrefixes(pattern, infoPrefixes))
+                    infoPrefixes.add(WILDCARD);
+            }
+            if (infoPrefixes.contains(WILDCARD)) {
+                wildcards.add(info);
+            } else {
+                prefixes.put(info, infoPrefixes.toArray(new String[0]));
+                for (var prefix : infoPrefixes) {
+                    keys.add(fold(prefix.charAt(0)));
+                }
+            }
+        }
+        for (var key : keys) {
+            buckets.put(key, new ArrayList<>());
+        }
+        // Buckets are filled in a single pass so that they keep the original ordering
+        for (var info : this.infos) {
+            var infoPrefixes = prefixes.get(info);
+            if (infoPrefixes == null) {
+                for (var bucket : buckets.values()) {
+                    bucket.add(info);
+                }
+            } else {
+                Set<Character> added = new HashSet<>();
+                for (var prefix : infoPrefixes) {
+                    var key = fold(prefix.charAt(0));
+                    if (added.add(key))
+                        buckets.get(key).add(info);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns a new list of all indexed infos that could possibly match the given string, in their original order.
+     * The returned list may be freely modified.
+     * @param s the string that is going to be parsed
+     * @return the candidates for the given string
+     */
+    public List<T> getCandidates(String s) {
+        lookups.increment();
+        List<T> result;
+        if (s.isEmpty() || Character.isWhitespace(s.charAt(0))) {
+            result = new ArrayList<>(infos);
+        } else {
+            var bucket = buckets.getOrDefault(fold(s.charAt(0)), wildcards);
+            result = new ArrayList<>(bucket.size());
+            for (var info : bucket) {
+                if (canMatch(info, s))
+                    result.add(info);
+            }
+        }
+        candidates.add(result.size());
+        return result;
+    }
+
+    /**
+     * Checks whether a given info could possibly match the given string. Infos that are not part of this index are
+     * always considered as possible matches.
+     * @param info the info
+     * @param s the string that is going to be parsed
+     * @return {@code false} if none of the patterns of the info can match the string, {@code true} otherwise
+     */
+    public boolean canMatch(T info, String s) {
+        var infoPrefixes = prefixes.get(info);
+        if (infoPrefixes == null || s.isEmpty() || Character.isWhitespace(s.charAt(0)))
+            return true;
+        for (var prefix : infoPrefixes) {
+            if (s.regionMatches(true, 0, prefix, 0, prefix.length()))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return all indexed infos, in their original order
+     */
+    public List<T> getInfos() {
+        return infos;
+    }
+
+    /**
+     * @param info an info
+     * @return the position of the info inside of {@link #getInfos()}, or {@literal -1} if it isn't indexed
+     */
+    public int indexOf(T info) {
+        return positions.getOrDefault(info, -1);
+    }
+
+    /**
+     * @return the amount of indexed infos that don't start with any required text, and as such are always candidates
+     */
+    public int getWildcardCount() {
+        return wildcards.size();
+    }
+
+    /**
+     * @return how many times {@link #getCandidates(String)} has been called
+     */
+    public long getLookupCount() {
+        return lookups.sum();
+    }
+
+    /**
+     * @return the total amount of candidates returned by {@link #getCandidates(String)} so far
+     */
+    public long getCandidateCount() {
+        return candidates.sum();
+    }
+
+    /**
+     * Collects the literal text the given element is required to start with.
+     * @param element the element
+     * @param prefixes the set the prefixes are added to
+     * @return whether the element may match an empty string, in which case the element following it may also be at
+     * the start of the pattern
+     */
+    private static boolean collectPrefixes(PatternElement element, Set<String> prefixes) {
+        if (element instanceof TextElement) {
+            var stripped = ((TextElement) element).getText().strip();
+            if (stripped.isEmpty())
+                return true;
+            prefixes.add(stripped);
+            return false;
+        } else if (element instanceof OptionalGroup) {
+            collectPrefixes(((OptionalGroup) element).getElement(), prefixes);
+            return true;
+        } else if (element instanceof ChoiceGroup) {
+            var canBeEmpty = false;
+            for (var choice : ((ChoiceGroup) element).getChoices()) {
+                canBeEmpty |= collectPrefixes(choice.getElement(), prefixes);
+            }
+            return canBeEmpty;
+        } else if (element instanceof CompoundElement) {
+            for (var e : ((CompoundElement) element).getElements()) {
+                if (!collectPrefixes(e, prefixes))
+                    return false;
+            }
+            return true;
+        } else { // Expressions, regex groups and anything else could start with pretty much anything
+            prefixes.add(WILDCARD);
+            return false;
+        }
+    }
+
+    /*
+     * Same case folding as String#regionMatches(boolean, int, String, int, int)
+     */
+    private static char fold(char c) {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+}
@@ -3,11 +3,18 @@ package io.github.syst3ms.skriptparser.registration;
 import io.github.syst3ms.skriptparser.lang.CodeSection;
 import io.github.syst3ms.skriptparser.lang.Effect;
 import io.github.syst3ms.skriptparser.lang.Expression;
+import io.github.syst3ms.skriptparser.types.TypeManager;
+import io.github.syst3ms.skriptparser.types.conversions.Converters;
 import io.github.syst3ms.skriptparser.util.MultiMap;
+import io.github.syst3ms.skriptparser.util.StringUtils;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public class SyntaxManager {
@@ -25,6 +32,14 @@ public class SyntaxManager {
     private static final List<SyntaxInfo<? extends Effect>> effects = new ArrayList<>();
     private static final List<SyntaxInfo<? extends CodeSection>> sections = new ArrayList<>();
     private static final List<SkriptEventInfo<?>> triggers = new ArrayList<>();
+    /*
+     * Snapshots of the expressions registered so far, rebuilt on every call to register(SkriptRegistration)
+     */
+    private static List<ExpressionInfo<?, ?>> allExpressions = Collections.emptyList();
+    private static Map<Class<?>, ExpressionInfo<?, ?>> expressionsByClass = Collections.emptyMap();
+    private static SyntaxIndex<ExpressionInfo<?, ?>> expressionIndex = new SyntaxIndex<>(allExpressions);
+    @Nullable
+    private static volatile String fingerprint;
 
     static void register(SkriptRegistration reg) {
         effects.addAll(reg.getEffects());
@@ -40,15 +55,72 @@ public class SyntaxManager {
                 expressions.putOne(key, info);
             }
         }
+        var expressionInfos = expressions.getAllValues();
+        expressionInfos.sort(INFO_COMPARATOR);
+        Map<Class<?>, ExpressionInfo<?, ?>> byClass = new HashMap<>();
+        for (var info : expressionInfos) {
+            byClass.putIfAbsent(info.getSyntaxClass(), info);
+        }
+        allExpressions = Collections.unmodifiableList(expressionInfos);
+        expressionsByClass = byClass;
+        expressionIndex = new SyntaxIndex<>(allExpressions);
+        fingerprint = null;
+    }
+
+    /**
+     * The fingerprint changes whenever something that may affect parsing is registered : syntaxes, types or
+     * converters. It is computed lazily, once all registration is done.
+     * @return a hash of everything that is currently registered
+     */
+    public static String getFingerprint() {
+        var result = fingerprint;
+        if (result == null) {
+            var sb = new StringBuilder();
+            for (var info : allExpressions) {
+                appendInfo(sb, info).append(info.getReturnType()).append('\n');
+            }
+            for (var info : effects) {
+                appendInfo(sb, info).append('\n');
+            }
+            for (var info : sections) {
+                appendInfo(sb, info).append('\n');
+            }
+            for (var info : triggers) {
+                appendInfo(sb, info).append('\n');
+            }
+            for (var entry : TypeManager.getClassToTypeMap().entrySet()) {
+                sb.append(entry.getKey().getName()).append(' ').append(entry.getValue().getBaseName()).append('\n');
+            }
+            for (var converter : Converters.getConverters()) {
+                sb.append(converter.getFrom().getName()).append(" -> ").append(converter.getTo().getName()).append('\n');
+            }
+            result = StringUtils.sha256(sb.toString());
+            fingerprint = result;
+        }
+        return result;
+    }
+
+    private static StringBuilder appendInfo(StringBuilder sb, SyntaxInfo<?> info) {
+        sb.append(info.getSyntaxClass().getName()).append(' ').append(info.getPriority());
+        for (var pattern : info.getPatterns()) {
+            sb.append(' ').append(pattern);
+        }
+        return sb.append(' ');
     }
 
     /**
-     * @return a list of all currently registered expressions
+     * @return an unmodifiable list of all currently registered expressions, sorted according to {@link #INFO_COMPARATOR}
      */
     public static List<ExpressionInfo<?, ?>> getAllExpressions() {
-        var expressionInfos = expressions.getAllValues();
-        expressionInfos.sort(INFO_COMPARATOR);
-        return expressionInfos;
+        return allExpressions;
+    }
+
+    /**
+     * @return an index of all currently registered expressions, used to only try the expressions that could possibly
+     * match a given string
+     */
+    public static SyntaxIndex<ExpressionInfo<?, ?>> getExpressionIndex() {
+        return expressionIndex;
     }
 
     /**
@@ -59,13 +131,16 @@ public class SyntaxManager {
      */
     @SuppressWarnings("unchecked")
     public static <E extends Expression<T>, T> Optional<? extends ExpressionInfo<E, T>> getExpressionExact(Expression<T> expr) {
-        Class<?> c = expr.getSource().getClass();
-        for (var info : SyntaxManager.getAllExpressions()) {
-            if (info.getSyntaxClass() == c) {
-                return Optional.of((ExpressionInfo<E, T>) info);
-            }
-        }
-        return Optional.empty();
+        return getExpressionExact(expr.getSource().getClass())
+                .map(info -> (ExpressionInfo<E, T>) info);
+    }
+
+    /**
+     * @param c the expression class
+     * @return the {@link ExpressionInfo} that was registered for exactly the given class
+     */
+    public static Optional<? extends ExpressionInfo<?, ?>> getExpressionExact(Class<?> c) {
+        return Optional.ofNullable(expressionsByClass.get(c));
     }
 
     /**
@@ -19,9 +19,10 @@ public class TagManager {
     private static final Comparator<TagInfo<?>> INFO_COMPARATOR = (t, t2) -> t2.getPriority() - t.getPriority();
 
     /**
-     * All {@link Tag tags} that are successfully parsed during parsing, in order of last successful parsing
+     * All {@link Tag tags} that are successfully parsed during parsing, in order of last successful parsing.
+     * Every thread keeps track of its own recent tags.
      */
-    private static final RecentElementList<TagInfo<?>> recentTags = new RecentElementList<>();
+    private static final ThreadLocal<RecentElementList<TagInfo<?>>> recentTags = ThreadLocal.withInitial(RecentElementList::new);
     private static final List<TagInfo<?>> tags = new ArrayList<>();
 
 
@@ -48,22 +49,22 @@ public class TagManager {
         if (toParse.isEmpty())
             return Optional.empty();
 
-        for (var recentTag : recentTags) {
+        for (var recentTag : recentTags.get()) {
             var tag = matchTagInfo(toParse, recentTag, logger);
             if (tag.isPresent()) {
-                recentTags.acknowledge(recentTag);
+                recentTags.get().acknowledge(recentTag);
                 logger.clearErrors();
                 return tag;
             }
             logger.forgetError();
         }
         // Let's not loop over the same elements again
-        var remainingTags = tags;
-        recentTags.removeFrom(remainingTags);
+        var remainingTags = new ArrayList<>(tags);
+        recentTags.get().removeFrom(remainingTags);
         for (var remainingTag : remainingTags) {
             var tag = matchTagInfo(toParse, remainingTag, logger);
             if (tag.isPresent()) {
-                recentTags.acknowledge(remainingTag);
+                recentTags.get().acknowledge(remainingTag);
                 logger.clearErrors();
                 return tag;
             }
@@ -12,8 +12,6 @@ import io.github.syst3ms.skriptparser.parsing.ParserState;
 import io.github.syst3ms.skriptparser.util.ThreadUtils;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.Optional;
-
 /**
  * Executes the code in the section asynchronously, meaning in another thread.
  * Note that the next code that isn't part of the section (intended the same amount of times) will be executed in the current thread again.
@@ -45,15 +43,16 @@ public class SecAsync extends CodeSection {
         return true;
     }
 
-    @SuppressWarnings("unchecked")
     @Override
-    public Optional<? extends Statement> walk(TriggerContext ctx) {
-        Optional<? extends Statement>[] item = new Optional[]{getFirst()};
+    @Nullable
+    public Statement step(TriggerContext ctx) {
+        var next = nextStatement();
         ThreadUtils.runAsync(() -> {
-            while (!item[0].equals(getNext())) // Calling equals() on optionals calls equals() on their values
-                item[0] = item[0].flatMap(i -> i.walk(ctx));
+            var item = firstStatement();
+            while (item != null && item != next)
+                item = Statement.runStep(item, ctx);
         });
-        return getNext();
+        return next;
     }
 
     @Override
@@ -11,7 +11,6 @@ import io.github.syst3ms.skriptparser.util.math.NumberMath;
 import org.jetbrains.annotations.Nullable;
 
 import java.math.BigDecimal;
-import java.util.Optional;
 import java.util.concurrent.ThreadLocalRandom;
 
 /**
@@ -47,14 +46,15 @@ public class SecChance extends CodeSection {
     }
 
     @Override
-    public Optional<? extends Statement> walk(TriggerContext ctx) {
-        return chance.getSingle(ctx)
+    @Nullable
+    public Statement step(TriggerContext ctx) {
+        var success = chance.getSingle(ctx)
                 .map(BigDecimalMath::getBigDecimal) // We use BigDecimal here not for its magnitude, but its precision
                 .map(b -> b.compareTo(BigDecimal.ZERO) < 0 ? BigDecimal.ZERO : b) // Coerce to 0 at least so that NumberMath#randomBigDecimal doesn't fail
                 .map(b -> percent ? b.divide(BigDecimal.valueOf(100), BigDecimalMath.DEFAULT_ROUNDING_MODE) : b)
                 .filter(b -> b.compareTo(NumberMath.randomBigDecimal(BigDecimal.ZERO, BigDecimal.ONE, random)) <= 0)
-                .flatMap(b -> getFirst().map(s -> (Statement) s)) // Generic shenanigans
-                .or(() -> getNext().map(s -> (Statement) s));
+                .isPresent();
+        return success ? firstStatement() : nextStatement();
     }
 
     @Override
@@ -14,8 +14,7 @@ import io.github.syst3ms.skriptparser.parsing.ParserState;
 import io.github.syst3ms.skriptparser.types.changers.ChangeMode;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.Arrays;
-import java.util.Optional;
+import java.util.ArrayList;
 
 public class SecFilter extends ReturnSection<Boolean> {
     private Expression<?> filtered;
@@ -53,20 +52,25 @@ public class SecFilter extends ReturnSection<Boolean> {
     }
 
     @Override
-    public Optional<? extends Statement> walk(TriggerContext ctx) {
-        var filteredValues = Arrays.stream(filtered.getValues(ctx))
-                .filter(v -> lambda.apply(ctx, v)
-                        .filter(a -> a.length == 1)
-                        .map(a -> a[0])
-                        .orElse(false)
-                )
-                .toArray();
-        if (filteredValues.length == 0) {
+    @Nullable
+    public Statement step(TriggerContext ctx) {
+        // The values are tested as they are read, so changing them from the section affects the values left.
+        // Elements added to a list from the section aren't tested, as iterating over a list stops at its last element.
+        var filteredValues = new ArrayList<>();
+        for (var iterator = filtered.iterator(ctx); iterator.hasNext(); ) {
+            var value = iterator.next();
+            if (lambda.apply(ctx, value)
+                    .filter(a -> a.length == 1)
+                    .map(a -> a[0])
+                    .orElse(false))
+                filteredValues.add(value);
+        }
+        if (filteredValues.isEmpty()) {
             filtered.change(ctx, new Object[0], ChangeMode.DELETE);
         } else {
-            filtered.change(ctx, filteredValues, ChangeMode.SET);
+            filtered.change(ctx, filteredValues.toArray(), ChangeMode.SET);
         }
-        return getNext();
+        return nextStatement();
     }
 
     @Override
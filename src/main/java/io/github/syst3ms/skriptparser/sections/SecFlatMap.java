@@ -15,7 +15,6 @@ import io.github.syst3ms.skriptparser.types.changers.ChangeMode;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.Arrays;
-import java.util.Optional;
 
 public class SecFlatMap extends ReturnSection<Object> {
     private Expression<?> flatMapped;
@@ -52,7 +51,8 @@ public class SecFlatMap extends ReturnSection<Object> {
     }
 
     @Override
-    public Optional<? extends Statement> walk(TriggerContext ctx) {
+    @Nullable
+    public Statement step(TriggerContext ctx) {
         Object[] mappedValues = Arrays.stream(flatMapped.getValues(ctx))
                 .flatMap(e -> flatMapper.apply(ctx, e)
                         .map(Arrays::stream)
@@ -60,7 +60,7 @@ public class SecFlatMap extends ReturnSection<Object> {
                 )
                 .toArray();
         flatMapped.change(ctx, mappedValues, ChangeMode.SET);
-        return getNext();
+        return nextStatement();
     }
 
     @Override
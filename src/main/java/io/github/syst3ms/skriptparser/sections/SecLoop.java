@@ -72,7 +72,8 @@ public class SecLoop extends ArgumentSection {
 	}
 
 	@Override
-	public Optional<? extends Statement> walk(TriggerContext ctx) {
+	@Nullable
+	public Statement step(TriggerContext ctx) {
 		if (isNumericLoop) {
 			BigInteger[] range = (BigInteger[]) times.getSingle(ctx)
 					.filter(t -> t.compareTo(BigInteger.ZERO) > 0)
@@ -96,18 +97,13 @@ public class SecLoop extends ArgumentSection {
 				}
 			}
 		}
-		Iterator<?> finalIter = iter;
-		return Optional.ofNullable(iter)
-				.filter(Iterator::hasNext)
-				.map(it -> {
-					lambda.accept(ctx, it.next());
-					return (Statement) this;
-				})
-				.or(() -> {
-					if (finalIter != null)
-						currentIter.remove(ctx);
-					return getNext();
-				});
+		if (iter != null && iter.hasNext()) {
+			lambda.accept(ctx, iter.next());
+			return this;
+		}
+		if (iter != null)
+			currentIter.remove(ctx);
+		return nextStatement();
 	}
 
 	@Override
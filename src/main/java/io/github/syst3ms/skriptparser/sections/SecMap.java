@@ -14,8 +14,7 @@ import io.github.syst3ms.skriptparser.parsing.ParserState;
 import io.github.syst3ms.skriptparser.types.changers.ChangeMode;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.Arrays;
-import java.util.Optional;
+import java.util.ArrayList;
 
 public class SecMap extends ReturnSection<Object> {
     private Expression<?> mapped;
@@ -52,16 +51,20 @@ public class SecMap extends ReturnSection<Object> {
     }
 
     @Override
-    public Optional<? extends Statement> walk(TriggerContext ctx) {
-        Object[] mappedValues = Arrays.stream(mapped.getValues(ctx))
-                .map(e -> mapper.apply(ctx, e)
-                        .filter(a -> a.length == 1)
-                        .map(a -> a[0])
-                        .orElse(null)
-                )
-                .toArray();
-        mapped.change(ctx, mappedValues, ChangeMode.SET);
-        return getNext();
+    @Nullable
+    public Statement step(TriggerContext ctx) {
+        // The values are mapped as they are read, so changing them from the section affects the values left.
+        // Elements added to a list from the section aren't mapped, as iterating over a list stops at its last element.
+        var mappedValues = new ArrayList<>();
+        for (var iterator = mapped.iterator(ctx); iterator.hasNext(); ) {
+            mappedValues.add(mapper.apply(ctx, iterator.next())
+                    .filter(a -> a.length == 1)
+                    .map(a -> a[0])
+                    .orElse(null)
+            );
+        }
+        mapped.change(ctx, mappedValues.toArray(), ChangeMode.SET);
+        return nextStatement();
     }
 
     @Override
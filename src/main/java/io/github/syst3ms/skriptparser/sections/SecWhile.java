@@ -43,12 +43,13 @@ public class SecWhile extends CodeSection {
     }
 
     @Override
-    public Optional<? extends Statement> walk(TriggerContext ctx) {
+    @Nullable
+    public Statement step(TriggerContext ctx) {
         Optional<? extends Boolean> cond = condition.getSingle(ctx);
         if (cond.isEmpty() || !cond.get()) {
-            return Optional.ofNullable(actualNext);
+            return actualNext;
         } else {
-            return getFirst();
+            return firstStatement();
         }
     }
 
@@ -68,6 +69,13 @@ public class SecWhile extends CodeSection {
         return Optional.ofNullable(actualNext);
     }
 
+    /**
+     * @return the condition that is checked before each iteration
+     */
+    public Expression<Boolean> getCondition() {
+        return condition;
+    }
+
     @Override
     public String toString(@Nullable TriggerContext ctx, boolean debug) {
         return "while " + condition.toString(ctx, debug);
@@ -0,0 +1,28 @@
+package io.github.syst3ms.skriptparser.types;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * An interface describing how instances of a type are written to bytes and read back, which is what allows
+ * variables holding them to be saved by a {@link io.github.syst3ms.skriptparser.variables.VariableStorage}.
+ * @param <T> the type
+ */
+public interface Serializer<T> {
+    /**
+     * Writes a value
+     * @param value the value
+     * @param output where to write the value
+     * @throws IOException if the value couldn't be written
+     */
+    void serialize(T value, DataOutput output) throws IOException;
+
+    /**
+     * Reads a value that was previously {@linkplain #serialize(Object, DataOutput) written}
+     * @param input where to read the value from
+     * @return the value
+     * @throws IOException if the value couldn't be read
+     */
+    T deserialize(DataInput input) throws IOException;
+}
@@ -25,6 +25,8 @@ public class Type<T> {
     private final Changer<? super T> defaultChanger;
     @Nullable
     private final Arithmetic<T, ?> arithmetic;
+    @Nullable
+    private final Serializer<T> serializer;
 
     /**
      * Constructs a new Type.
@@ -96,7 +98,6 @@ public class Type<T> {
         this(typeClass, baseName, pattern, literalParser, toStringFunction, defaultChanger, null);
     }
 
-    @SuppressWarnings("unchecked")
     public Type(Class<T> typeClass,
                 String baseName,
                 String pattern,
@@ -104,6 +105,18 @@ public class Type<T> {
                 Function<? super T, String> toStringFunction,
                 @Nullable Changer<? super T> defaultChanger,
                 @Nullable Arithmetic<T, ?> arithmetic) {
+        this(typeClass, baseName, pattern, literalParser, toStringFunction, defaultChanger, arithmetic, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    public Type(Class<T> typeClass,
+                String baseName,
+                String pattern,
+                @Nullable Function<String, ? extends T> literalParser,
+                Function<? super T, String> toStringFunction,
+                @Nullable Changer<? super T> defaultChanger,
+                @Nullable Arithmetic<T, ?> arithmetic,
+                @Nullable Serializer<T> serializer) {
         this.typeClass = typeClass;
         this.baseName = baseName;
         this.literalParser = literalParser;
@@ -111,6 +124,7 @@ public class Type<T> {
         this.pluralForms = StringUtils.getForms(pattern.strip());
         this.defaultChanger = defaultChanger;
         this.arithmetic = arithmetic;
+        this.serializer = serializer;
     }
 
     public Optional<Function<String, ? extends T>> getLiteralParser() {
@@ -163,4 +177,8 @@ public class Type<T> {
     public Optional<? extends Arithmetic<T, ?>> getArithmetic() {
         return Optional.ofNullable(arithmetic);
     }
+
+    public Optional<? extends Serializer<T>> getSerializer() {
+        return Optional.ofNullable(serializer);
+    }
 }
\ No newline at end of file
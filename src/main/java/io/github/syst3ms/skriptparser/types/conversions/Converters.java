@@ -6,6 +6,7 @@ import org.jetbrains.annotations.Nullable;
 
 import java.lang.reflect.Array;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
 /**
@@ -205,7 +206,7 @@ public abstract class Converters {
         return l.toArray((T[]) Array.newInstance(superType, l.size()));
     }
 
-    private final static Map<Pair<Class<?>, Class<?>>, Function<?, ?>> convertersCache = new HashMap<>();
+    private final static Map<Pair<Class<?>, Class<?>>, Function<?, ?>> convertersCache = new ConcurrentHashMap<>();
 
     /**
 	 * Tests whether a converter between the given classes exists.
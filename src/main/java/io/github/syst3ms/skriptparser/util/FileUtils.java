@@ -3,12 +3,15 @@ package io.github.syst3ms.skriptparser.util;
 import java.io.File;
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 import java.util.jar.JarFile;
 import java.util.regex.Pattern;
@@ -20,6 +23,8 @@ public class FileUtils {
     public static final Pattern LEADING_WHITESPACE_PATTERN = Pattern.compile("(\\s+)\\S.*");
     public static final String MULTILINE_SYNTAX_TOKEN = "\\";
     private static final String OS_SEPARATOR = FileSystems.getDefault().getSeparator();
+    // Files at least this large are memory-mapped when read
+    private static final long MAPPING_THRESHOLD = 1 << 20;
 
     /**
      * Parses a file and returns a list containing all of its lines.
@@ -42,27 +47,64 @@ public class FileUtils {
      * @throws IOException if the file can't be read
      */
     public static List<String> readAllLines(Path filePath) throws IOException {
+        var text = readFile(filePath);
+        var chars = text.array();
+        var length = text.limit();
         List<String> lines = new ArrayList<>();
-        var multilineBuilder = new StringBuilder();
-        for (var line : Files.readAllLines(filePath, StandardCharsets.UTF_8)) {
-            line = line.replaceAll("\\s*$", "");
-            if (line.replace("\\" + MULTILINE_SYNTAX_TOKEN, "\0").endsWith(MULTILINE_SYNTAX_TOKEN)) {
-                multilineBuilder.append(line, 0, line.length() - 1).append("\0");
-            } else if (multilineBuilder.length() > 0) {
-                multilineBuilder.append(line);
-                lines.add(trimMultilineIndent(multilineBuilder.toString()));
-                multilineBuilder.setLength(0);
+        List<String> multiline = new ArrayList<>();
+        var position = 0;
+        while (position < length) {
+            var end = position;
+            while (end < length && chars[end] != '\n' && chars[end] != '\r')
+                end++;
+            var next = end + 1;
+            if (end + 1 < length && chars[end] == '\r' && chars[end + 1] == '\n')
+                next++;
+            // Trailing whitespace is ignored
+            while (end > position && isWhitespace(chars[end - 1]))
+                end--;
+            // An odd amount of backslashes means the last one isn't escaped
+            var backslashes = 0;
+            while (end - backslashes > position && chars[end - backslashes - 1] == '\\')
+                backslashes++;
+            if (backslashes % 2 == 1) {
+                multiline.add(new String(chars, position, end - position - 1));
+            } else if (!multiline.isEmpty()) {
+                multiline.add(new String(chars, position, end - position));
+                lines.add(trimMultilineIndent(multiline));
+                multiline.clear();
             } else {
-                lines.add(line);
+                lines.add(new String(chars, position, end - position));
             }
+            position = next;
         }
-        if (multilineBuilder.length() > 0) {
-            multilineBuilder.deleteCharAt(multilineBuilder.length() - 1);
-            lines.add(trimMultilineIndent(multilineBuilder.toString()));
-        }
+        if (!multiline.isEmpty())
+            lines.add(trimMultilineIndent(multiline));
         return lines;
     }
 
+    /*
+     * Large files are memory-mapped rather than copied to the heap before being decoded. Either way, decoding fails
+     * on malformed input, like Files.readAllLines does.
+     */
+    private static CharBuffer readFile(Path filePath) throws IOException {
+        try (var channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            var size = channel.size();
+            ByteBuffer bytes;
+            if (size >= MAPPING_THRESHOLD) {
+                bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            } else {
+                bytes = ByteBuffer.allocate((int) size);
+                while (bytes.hasRemaining()) {
+                    if (channel.read(bytes) == -1)
+                        break;
+                }
+                bytes.flip();
+            }
+            return StandardCharsets.UTF_8.newDecoder().decode(bytes);
+        }
+    }
+
     /**
      * Counts the number of indents (a single tab or 4 spaces) at the beginning of a line, or alternatively just counts
      * the amount of spaces at the beginning of a line (with a tab counting as 4 regular spaces).
@@ -72,37 +114,70 @@ public class FileUtils {
      * @return the indentation level
      */
     public static int getIndentationLevel(String line, boolean countAllSpaces) {
-        var m = LEADING_WHITESPACE_PATTERN.matcher(line);
-        if (m.matches()) {
-            var space = m.group(1);
-            if (countAllSpaces) {
-                return 4 * StringUtils.count(space, "\t") + StringUtils.count(space, " ");
+        var tabs = 0;
+        var spaces = 0;
+        var indents = 0;
+        var i = 0;
+        for (; i < line.length() && isWhitespace(line.charAt(i)); i++) {
+            if (line.charAt(i) == '\t') {
+                tabs++;
+                indents += spaces / 4 + 1;
+                spaces = 0;
+            } else if (line.charAt(i) == ' ') {
+                spaces++;
             } else {
-                return StringUtils.count(space, "\t", "    ");
+                indents += spaces / 4;
+                spaces = 0;
             }
-        } else {
+        }
+        if (i == 0 || i == line.length()) // Lines that are blank or have no leading whitespace
             return 0;
+        if (countAllSpaces) {
+            var allSpaces = 0;
+            for (var j = 0; j < i; j++) {
+                if (line.charAt(j) == '\t') {
+                    allSpaces += 4;
+                } else if (line.charAt(j) == ' ') {
+                    allSpaces++;
+                }
+            }
+            return allSpaces;
+        } else {
+            return indents + spaces / 4;
         }
     }
 
-    private static String trimMultilineIndent(String multilineText) {
-        var lines = multilineText.split("\0");
+    /**
+     * @param c the character
+     * @return whether the character is an ASCII whitespace character, as defined by {@code \s} in regular expressions
+     */
+    public static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    /*
+     * Empty lines at the end don't count towards the base indent, and tabs count as 4 spaces
+     */
+    private static String trimMultilineIndent(List<String> lines) {
+        var last = lines.size();
+        while (last > 1 && lines.get(last - 1).isEmpty())
+            last--;
         // Inspired from Kotlin's trimIndent() function
-        var baseIndent = Arrays.stream(lines)
+        var baseIndent = lines.subList(0, last).stream()
                 .skip(1) // First line's indent should be ignored
                 .mapToInt(l -> getIndentationLevel(l, true))
                 .min()
                 .orElse(0);
         if (baseIndent == 0)
-            return multilineText.replace("\0", "");
-        var pat = Pattern.compile("\\s");
-        var sb = new StringBuilder(lines[0]);
-        for (var line : Arrays.copyOfRange(lines, 1, lines.length)) {
-            var m = pat.matcher(line);
-            for (var i = 0; i < baseIndent && m.find(); i++) {
-                line = line.replaceFirst(m.group(), "");
+            return String.join("", lines);
+        var sb = new StringBuilder(lines.get(0));
+        for (var line : lines.subList(1, lines.size())) {
+            var removed = 0;
+            var i = 0;
+            for (; i < line.length() && removed < baseIndent && isWhitespace(line.charAt(i)); i++) {
+                removed += line.charAt(i) == '\t' ? 4 : 1;
             }
-            sb.append(line);
+            sb.append(line, i, line.length());
         }
         return sb.toString();
     }
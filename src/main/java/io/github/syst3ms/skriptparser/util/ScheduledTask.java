@@ -0,0 +1,41 @@
+package io.github.syst3ms.skriptparser.util;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.Future;
+
+/**
+ * A handle to some code scheduled using {@link ThreadUtils}, which allows it to be cancelled.
+ */
+public class ScheduledTask {
+	private volatile boolean cancelled;
+	// The timer of the next run of the code, if there is one
+	@Nullable
+	private volatile Future<?> timer;
+
+	ScheduledTask() {}
+
+	/**
+	 * Prevents the code from running anymore. If it is currently running, it isn't interrupted, but won't run again.
+	 */
+	public void cancel() {
+		cancelled = true;
+		var timer = this.timer;
+		if (timer != null)
+			timer.cancel(false);
+	}
+
+	/**
+	 * @return whether this task was {@linkplain #cancel() cancelled}
+	 */
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	void setTimer(Future<?> timer) {
+		this.timer = timer;
+		// The task may have been cancelled before it knew about this timer
+		if (cancelled)
+			timer.cancel(false);
+	}
+}
@@ -7,6 +7,10 @@ import io.github.syst3ms.skriptparser.log.ErrorType;
 import io.github.syst3ms.skriptparser.log.SkriptLogger;
 import io.github.syst3ms.skriptparser.parsing.SkriptParserException;
 
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
@@ -33,6 +37,21 @@ public class StringUtils {
         return count;
     }
 
+    /**
+     * Hashes a string using SHA-256
+     * @param s the string to hash
+     * @return the hash, in hexadecimal
+     */
+    public static String sha256(String s) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e); // Every JVM has to support SHA-256
+        }
+        return new BigInteger(1, digest.digest(s.getBytes(StandardCharsets.UTF_8))).toString(16);
+    }
+
     /**
      * Find where a given pair of braces closes.
      * @param pattern the string to look in
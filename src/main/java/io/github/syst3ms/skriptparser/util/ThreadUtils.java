@@ -1,41 +1,84 @@
 package io.github.syst3ms.skriptparser.util;
 
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.Method;
 import java.time.Duration;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
+/**
+ * Utilities to run code on other threads, or later on. Delayed and periodical code is scheduled on a single timer
+ * thread shared by the whole program, and run by a shared pool of worker threads, which also runs
+ * {@linkplain #runAsync(Runnable) asynchronous} code. Both only keep threads alive as long as there is code waiting to
+ * be run.
+ *
+ * On Java 21 and later, that code can instead run on {@linkplain #setVirtualThreads(boolean) virtual threads}. Code
+ * running on a virtual thread can then wait by simply blocking, which is cheap enough for a very large amount of
+ * scripts to wait at the same time.
+ */
 public class ThreadUtils {
+	private static final long IDLE_SECONDS = 5;
+	private static final ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, threadFactory("Skript timer"));
+	private static final ThreadPoolExecutor workers = new ThreadPoolExecutor(
+			0,
+			Integer.MAX_VALUE,
+			IDLE_SECONDS,
+			TimeUnit.SECONDS,
+			new SynchronousQueue<>(),
+			threadFactory("Skript worker")
+	);
+	// How late the last scheduled code started running, in nanoseconds
+	private static volatile long timerLag;
+	// Thread#isVirtual, if the running version of Java has virtual threads
+	@Nullable
+	private static final Method isVirtual = findIsVirtual();
+	// Where asynchronous, delayed and periodical code runs
+	private static volatile Executor executor = workers;
+
+	static {
+		timer.setRemoveOnCancelPolicy(true);
+		timer.setKeepAliveTime(IDLE_SECONDS, TimeUnit.SECONDS);
+		timer.allowCoreThreadTimeOut(true);
+	}
 
 	/**
-	 * Run certain code once on a separate thread. The thread is shut down after the code ran.
+	 * Run certain code once on a separate thread.
 	 * @param code the runnable that needs to be executed
 	 */
 	public static void runAsync(Runnable code) {
-		ExecutorService executor = Executors.newCachedThreadPool();
-		executor.submit(code);
-		executor.shutdown();
+		executor.execute(code);
 	}
 
 	/**
-	 * Run certain code once after a certain delay. The thread is shut down after the code ran.
+	 * Run certain code once after a certain delay.
 	 * @param code the runnable that needs to be executed
 	 * @param duration the delay
+	 * @return a handle allowing to cancel the code
 	 */
-	public static void runAfter(Runnable code, Duration duration) {
-		ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
-		executor.schedule(code, duration.toMillis(), TimeUnit.MILLISECONDS);
-		executor.shutdown();
+	public static ScheduledTask runAfter(Runnable code, Duration duration) {
+		var task = new ScheduledTask();
+		schedule(task, System.nanoTime() + duration.toNanos(), code);
+		return task;
 	}
 
 	/**
 	 * Runs certain code periodically.
 	 * @param code the runnable that needs to be executed
 	 * @param duration the delay
+	 * @return a handle allowing to stop running the code
 	 */
-	public static void runPeriodically(Runnable code, Duration duration) {
-		runPeriodically(code, duration, duration);
+	public static ScheduledTask runPeriodically(Runnable code, Duration duration) {
+		return runPeriodically(code, duration, duration);
 	}
 
 	/**
@@ -43,20 +86,34 @@ public class ThreadUtils {
 	 * @param code the runnable that needs to be executed
 	 * @param initialDelay the initial delay
 	 * @param duration the delay
+	 * @return a handle allowing to stop running the code
 	 */
-	public static void runPeriodically(Runnable code, Duration initialDelay, Duration duration) {
-		ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
-		scheduler.scheduleAtFixedRate(code, initialDelay.toMillis(), duration.toMillis(), TimeUnit.MILLISECONDS);
+	public static ScheduledTask runPeriodically(Runnable code, Duration initialDelay, Duration duration) {
+		return runPeriodically(t -> code.run(), initialDelay, duration);
+	}
+
+	/**
+	 * Runs certain code periodically. The code is given its own handle, so that it can stop itself.
+	 * @param code the code that needs to be executed
+	 * @param initialDelay the initial delay
+	 * @param duration the delay
+	 * @return a handle allowing to stop running the code
+	 */
+	public static ScheduledTask runPeriodically(Consumer<ScheduledTask> code, Duration initialDelay, Duration duration) {
+		var task = new ScheduledTask();
+		scheduleRepeatedly(task, code, System.nanoTime() + initialDelay.toNanos(), duration.toNanos(), Long.MAX_VALUE);
+		return task;
 	}
 
 	/**
 	 * Runs certain code periodically but with a final bound.
 	 * @param code the runnable that needs to be executed
 	 * @param duration the delay
-	 * @param maxTime the duration this thread will be opened in milliseconds
+	 * @param maxTime the duration after which the code isn't run anymore
+	 * @return a handle allowing to stop running the code earlier
 	 */
-	public static void runPeriodicallyBounded(Runnable code, Duration duration, Duration maxTime) {
-		runPeriodicallyBounded(code, duration, duration, maxTime);
+	public static ScheduledTask runPeriodicallyBounded(Runnable code, Duration duration, Duration maxTime) {
+		return runPeriodicallyBounded(code, duration, duration, maxTime);
 	}
 
 	/**
@@ -64,12 +121,126 @@ public class ThreadUtils {
 	 * @param code the runnable that needs to be executed
 	 * @param initialDelay the initial delay
 	 * @param duration the delay
-	 * @param maxTime the duration this thread will be opened in milliseconds
+	 * @param maxTime the duration after which the code isn't run anymore
+	 * @return a handle allowing to stop running the code earlier
+	 */
+	public static ScheduledTask runPeriodicallyBounded(Runnable code, Duration initialDelay, Duration duration, Duration maxTime) {
+		var task = new ScheduledTask();
+		var now = System.nanoTime();
+		scheduleRepeatedly(task, t -> code.run(), now + initialDelay.toNanos(), duration.toNanos(), now + maxTime.toNanos());
+		return task;
+	}
+
+	/**
+	 * @return the amount of delayed or periodical code waiting for its next run
+	 */
+	public static int getPendingTimers() {
+		return timer.getQueue().size();
+	}
+
+	/**
+	 * @return how late the last delayed or periodical code started running compared to when it was scheduled
 	 */
-	public static void runPeriodicallyBounded(Runnable code, Duration initialDelay, Duration duration, Duration maxTime) {
-		ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
-		scheduler.scheduleAtFixedRate(code, initialDelay.toMillis(), duration.toMillis(), TimeUnit.MILLISECONDS);
-		scheduler.schedule(scheduler::shutdownNow, maxTime.toMillis(), TimeUnit.MILLISECONDS);
+	public static Duration getTimerLag() {
+		return Duration.ofNanos(timerLag);
+	}
+
+	/**
+	 * @return the amount of platform threads currently running asynchronous, delayed or periodical code. Virtual
+	 *         threads aren't counted.
+	 */
+	public static int getActiveWorkers() {
+		return workers.getActiveCount();
+	}
+
+	/*
+	 * Times are given as values of System#nanoTime, so that periodical code doesn't drift
+	 */
+	private static void schedule(ScheduledTask task, long time, Runnable code) {
+		if (task.isCancelled())
+			return;
+		task.setTimer(timer.schedule(
+				() -> executor.execute(() -> {
+					timerLag = System.nanoTime() - time;
+					if (!task.isCancelled())
+						code.run();
+				}),
+				time - System.nanoTime(),
+				TimeUnit.NANOSECONDS
+		));
+	}
+
+	/*
+	 * The next run is only scheduled once the current one is done, so that runs never overlap : late runs happen one
+	 * after the other, like with ScheduledExecutorService#scheduleAtFixedRate. If the code throws an exception, it
+	 * isn't run anymore.
+	 */
+	private static void scheduleRepeatedly(ScheduledTask task, Consumer<ScheduledTask> code, long time, long period, long end) {
+		if (time - end >= 0)
+			return;
+		schedule(task, time, () -> {
+			code.accept(task);
+			scheduleRepeatedly(task, code, time + period, period, end);
+		});
+	}
+
+	/**
+	 * @return whether the running version of Java has virtual threads
+	 */
+	public static boolean supportsVirtualThreads() {
+		return isVirtual != null;
+	}
+
+	/**
+	 * Sets whether asynchronous, delayed and periodical code, as well as triggers started by a timer, run on a new
+	 * virtual thread each time, instead of the shared pool of worker threads. This is off by default.
+	 * @param enabled whether to use virtual threads
+	 * @throws UnsupportedOperationException if virtual threads aren't {@linkplain #supportsVirtualThreads() supported}
+	 */
+	public static synchronized void setVirtualThreads(boolean enabled) {
+		var previous = executor;
+		if (enabled == (previous != workers))
+			return;
+		if (enabled) {
+			if (isVirtual == null)
+				throw new UnsupportedOperationException("Virtual threads require Java 21 or later");
+			try {
+				executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+			} catch (ReflectiveOperationException e) {
+				throw new UnsupportedOperationException("Virtual threads couldn't be created", e);
+			}
+		} else {
+			executor = workers;
+			// Virtual threads that are still running are left alone
+			((ExecutorService) previous).shutdown();
+		}
+	}
+
+	/**
+	 * @return whether the current thread is a virtual thread, in which case blocking it is cheap
+	 */
+	public static boolean isVirtualThread() {
+		if (isVirtual == null || executor == workers)
+			return false;
+		try {
+			return (boolean) isVirtual.invoke(Thread.currentThread());
+		} catch (ReflectiveOperationException e) {
+			return false;
+		}
+	}
+
+	@Nullable
+	private static Method findIsVirtual() {
+		try {
+			return Thread.class.getMethod("isVirtual");
+		} catch (NoSuchMethodException e) {
+			return null;
+		}
+	}
+
+	private static ThreadFactory threadFactory(String name) {
+		var count = new AtomicInteger();
+		return code -> new Thread(code, name + " " + count.incrementAndGet());
 	}
 
 	/**
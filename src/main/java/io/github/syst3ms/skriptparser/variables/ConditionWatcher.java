@@ -0,0 +1,296 @@
+package io.github.syst3ms.skriptparser.variables;
+
+import io.github.syst3ms.skriptparser.expressions.*;
+import io.github.syst3ms.skriptparser.lang.Expression;
+import io.github.syst3ms.skriptparser.lang.ExpressionList;
+import io.github.syst3ms.skriptparser.lang.Literal;
+import io.github.syst3ms.skriptparser.lang.LiteralList;
+import io.github.syst3ms.skriptparser.lang.SimpleLiteral;
+import io.github.syst3ms.skriptparser.lang.TriggerContext;
+import io.github.syst3ms.skriptparser.lang.Variable;
+import io.github.syst3ms.skriptparser.lang.VariableString;
+import io.github.syst3ms.skriptparser.lang.base.ConvertedExpression;
+import io.github.syst3ms.skriptparser.util.ScheduledTask;
+import io.github.syst3ms.skriptparser.util.ThreadUtils;
+import io.github.syst3ms.skriptparser.util.TimeUtils;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.Modifier;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.function.Consumer;
+
+/**
+ * Checks conditions until they are met, without a thread or a timer for each of them. All conditions are checked
+ * by a single timer running each tick : those that only depend on global variables are checked again after one of
+ * these variables changed, and the others are checked every tick.
+ * @see #findDependencies(Expression)
+ */
+public class ConditionWatcher {
+    /**
+     * The root that stands for all global variables in the {@linkplain #findDependencies(Expression) dependencies}
+     * of a condition. It can't be the first part of the name of a variable.
+     */
+    public static final String ANY_VARIABLE = "*";
+    // Expressions whose values only depend on the values of the expressions they contain
+    private static final Set<Class<?>> PURE_EXPRESSIONS = Set.of(
+            SimpleLiteral.class, LiteralList.class, VariableString.class, ExpressionList.class,
+            ConvertedExpression.class, CondExprCompare.class, CondExprContains.class, CondExprIsDivisible.class,
+            CondExprIsEmpty.class, CondExprIsPrime.class, CondExprIsSet.class, CondExprStartsEnds.class,
+            ExprAmount.class, ExprArithmeticOperators.class, ExprBinaryMathFunctions.class, ExprBooleanOperators.class,
+            ExprColorFromRGB.class, ExprColorValues.class, ExprDifference.class, ExprLength.class,
+            ExprStringCase.class, ExprStringCharAt.class, ExprStringChars.class, ExprStringOccurrence.class,
+            ExprStringSplitJoin.class, ExprSubstring.class, ExprTernary.class, ExprUnaryMathFunctions.class,
+            ExprVariableIndices.class, ExprWhether.class, LitMathConstants.class
+    );
+
+    private static final Set<Watch> polled = ConcurrentHashMap.newKeySet();
+    private static final Map<String, Set<Watch>> dependents = new ConcurrentHashMap<>();
+    private static final Set<Watch> changed = ConcurrentHashMap.newKeySet();
+    // Watches with a time limit, the closest one first
+    private static final PriorityBlockingQueue<Watch> deadlines = new PriorityBlockingQueue<>(
+            11,
+            (a, b) -> Long.compare(a.limit - b.limit, 0)
+    );
+    private static int watchCount;
+    @Nullable
+    private static ScheduledTask timer;
+    private static boolean listening;
+
+    private ConditionWatcher() {}
+
+    /**
+     * Starts checking a condition. The first check happens on the next tick.
+     * @param dependencies what the condition depends on, as returned by {@link #findDependencies(Expression)}
+     * @param check the code checking the condition, which should {@linkplain Watch#cancel() cancel} the watch
+     *              once it's met
+     * @return a handle allowing to stop checking the condition
+     */
+    public static Watch watch(Optional<Set<String>> dependencies, Consumer<Watch> check) {
+        return watch(dependencies, check, null, () -> {});
+    }
+
+    /**
+     * Starts checking a condition, giving up after a time limit. The first check happens on the next tick.
+     * @param dependencies what the condition depends on, as returned by {@link #findDependencies(Expression)}
+     * @param check the code checking the condition, which should {@linkplain Watch#cancel() cancel} the watch
+     *              once it's met
+     * @param limit how long to check the condition, or {@code null} to check it until the watch is cancelled. The
+     *              limit is only precise up to a tick.
+     * @param onLimit the code to run if the watch wasn't cancelled before the limit
+     * @return a handle allowing to stop checking the condition
+     */
+    public static Watch watch(Optional<Set<String>> dependencies, Consumer<Watch> check, @Nullable Duration limit, Runnable onLimit) {
+        var watch = new Watch(
+                dependencies.orElse(null),
+                check,
+                limit == null ? 0 : System.nanoTime() + limit.toNanos(),
+                limit != null,
+                onLimit
+        );
+        synchronized (ConditionWatcher.class) {
+            watchCount++;
+            if (timer == null)
+                timer = ThreadUtils.runPeriodically(ConditionWatcher::tick, TimeUtils.TICK);
+            if (watch.dependencies != null && !listening) {
+                Variables.addChangeListener(ConditionWatcher::variableChanged);
+                listening = true;
+            }
+        }
+        if (watch.dependencies == null) {
+            polled.add(watch);
+        } else {
+            for (var root : watch.dependencies)
+                dependents.computeIfAbsent(root, r -> ConcurrentHashMap.newKeySet()).add(watch);
+            changed.add(watch);
+        }
+        if (watch.limited)
+            deadlines.add(watch);
+        return watch;
+    }
+
+    /**
+     * @return the amount of conditions currently being checked
+     */
+    public static synchronized int getWatchCount() {
+        return watchCount;
+    }
+
+    /**
+     * @return whether the timer checking conditions is running. It stops on the tick after the last watch stopped.
+     */
+    static synchronized boolean isTicking() {
+        return timer != null;
+    }
+
+    /**
+     * Finds out what an expression depends on. If it only depends on global variables, its values can only change
+     * when one of these variables changes.
+     * @param expression the expression
+     * @return the first part of the names of the global variables the expression depends on, which is
+     *         {@link #ANY_VARIABLE} for variables whose name isn't known in advance, or an empty {@link Optional} if it
+     *         depends on something else
+     */
+    public static Optional<Set<String>> findDependencies(Expression<?> expression) {
+        Set<String> dependencies = new HashSet<>();
+        if (findDependencies(expression, dependencies, Collections.newSetFromMap(new IdentityHashMap<>()))) {
+            return Optional.of(Collections.unmodifiableSet(dependencies));
+        } else {
+            return Optional.empty();
+        }
+    }
+
+    /*
+     * The expressions contained in an expression are found in its fields, which works for all the expressions known
+     * to be pure. Anything else, including local variables, can change without notice.
+     */
+    private static boolean findDependencies(Object expression, Set<String> dependencies, Set<Object> visited) {
+        if (!visited.add(expression))
+            return true;
+        if (expression instanceof Variable) {
+            var variable = (Variable<?>) expression;
+            if (variable.isLocal())
+                return false;
+            var name = variable.getName();
+            dependencies.add(name.isSimple() ? Variables.splitPath(name.toString(TriggerContext.DUMMY))[0] : ANY_VARIABLE);
+            return findDependencies(name, dependencies, visited);
+        } else if (!PURE_EXPRESSIONS.contains(expression.getClass())
+                || expression instanceof Literal && !Literal.isConstant((Expression<?>) expression)
+                || expression instanceof ExpressionList && !((Expression<?>) expression).isAndList()) {
+            return false;
+        }
+        for (var c = expression.getClass(); c != Object.class; c = c.getSuperclass()) {
+            for (var field : c.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()) || field.getType().isPrimitive())
+                    continue;
+                Object value;
+                try {
+                    field.setAccessible(true);
+                    value = field.get(expression);
+                } catch (ReflectiveOperationException | RuntimeException e) {
+                    return false;
+                }
+                var values = value instanceof Object[] ? (Object[]) value : new Object[] {value};
+                for (var o : values) {
+                    if (o instanceof Expression && !findDependencies(o, dependencies, visited))
+                        return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static void tick() {
+        var now = System.nanoTime();
+        Watch watch;
+        while ((watch = deadlines.peek()) != null && watch.limit - now <= 0) {
+            deadlines.poll();
+            if (watch.cancel())
+                watch.onLimit.run();
+        }
+        for (var w : polled)
+            w.check();
+        // A watch is removed before being checked, so that it's checked again if a variable changes in the meantime
+        for (var iterator = changed.iterator(); iterator.hasNext(); ) {
+            var w = iterator.next();
+            iterator.remove();
+            w.check();
+        }
+        synchronized (ConditionWatcher.class) {
+            if (watchCount == 0 && timer != null) {
+                timer.cancel();
+                timer = null;
+            }
+        }
+    }
+
+    private static void variableChanged(String[] path) {
+        if (path[0].equals(ANY_VARIABLE)) {
+            for (var watches : dependents.values())
+                changed.addAll(watches);
+            return;
+        }
+        var watches = dependents.get(path[0]);
+        if (watches != null)
+            changed.addAll(watches);
+        watches = dependents.get(ANY_VARIABLE);
+        if (watches != null)
+            changed.addAll(watches);
+    }
+
+    /**
+     * A condition being checked by the {@link ConditionWatcher}
+     */
+    public static class Watch {
+        @Nullable
+        private final Set<String> dependencies;
+        private final Consumer<Watch> check;
+        private final long limit;
+        private final boolean limited;
+        private final Runnable onLimit;
+        private boolean done;
+
+        private Watch(@Nullable Set<String> dependencies, Consumer<Watch> check, long limit, boolean limited, Runnable onLimit) {
+            this.dependencies = dependencies;
+            this.check = check;
+            this.limit = limit;
+            this.limited = limited;
+            this.onLimit = onLimit;
+        }
+
+        /**
+         * Stops checking the condition. Only the first call to this method, or reaching the time limit, stops the
+         * watch : code that must only run once when a condition is met should only run if this returns {@code true}.
+         * @return whether the watch was stopped by this call
+         */
+        public boolean cancel() {
+            synchronized (this) {
+                if (done)
+                    return false;
+                done = true;
+            }
+            if (dependencies == null) {
+                polled.remove(this);
+            } else {
+                for (var root : dependencies) {
+                    var watches = dependents.get(root);
+                    if (watches != null)
+                        watches.remove(this);
+                }
+                changed.remove(this);
+            }
+            if (limited)
+                deadlines.remove(this);
+            synchronized (ConditionWatcher.class) {
+                watchCount--;
+            }
+            return true;
+        }
+
+        /**
+         * @return whether this watch was {@linkplain #cancel() cancelled} or reached its time limit
+         */
+        public synchronized boolean isDone() {
+            return done;
+        }
+
+        // An exception must not prevent the other conditions from being checked
+        private void check() {
+            if (isDone())
+                return;
+            try {
+                check.accept(this);
+            } catch (Exception e) {
+                System.err.println("An exception occurred. Stack trace :");
+                e.printStackTrace();
+            }
+        }
+    }
+}
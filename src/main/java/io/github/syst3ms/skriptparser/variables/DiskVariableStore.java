@@ -0,0 +1,1147 @@
+package io.github.syst3ms.skriptparser.variables;
+
+import io.github.syst3ms.skriptparser.parsing.SkriptRuntimeException;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * A store keeping global variables in a file instead of the heap, for lists too large to fit in memory. It holds
+ * the variables whose name starts with certain parts, as set up by {@link Variables#addStore(java.util.regex.Pattern, DiskVariableStore)}.
+ *
+ * Variables are kept in a B+ tree of fixed-size pages, sorted by name in the same order as in memory : every part of
+ * a name is encoded so that comparing the bytes of two names compares their parts one after the other, numbers first
+ * and in numerical order. The elements of a list are then next to each other, and a list is read by going through
+ * them in order, without ever loading the whole list. Only a fixed amount of pages are kept in memory, in
+ * least-recently-used order, and the pages that changed are written back when they leave memory or when the store is
+ * {@linkplain #flush() flushed}.
+ *
+ * Only values whose type has a {@link io.github.syst3ms.skriptparser.types.Serializer} can be stored. Changes are only
+ * kept once the store is flushed or closed : before a page of the file is changed for the first time since the last
+ * flush, its content is copied to a journal next to the file, named after it with a {@code -journal} suffix. If the
+ * program stops before the next flush, the journal is used to bring the file back to its state at the last flush when
+ * it is opened again. Deleted elements free their pages, which are reused by the elements added later on. Variables
+ * held here are saved by this store only, and not by the {@linkplain Variables#setStorage(VariableStorage) variable
+ * storage}.
+ */
+public class DiskVariableStore implements Closeable {
+    private static final int PAGE_SIZE = 4096;
+    private static final int DEFAULT_CACHED_PAGES = 4096;
+    private static final int MAGIC = 0x534B4453;
+    private static final int JOURNAL_MAGIC = 0x534B444A;
+    private static final int HEADER_SIZE = 17;
+    // The magic number and the size of the file, followed by the header of the file
+    private static final int JOURNAL_HEADER_SIZE = 12 + HEADER_SIZE;
+    // Entries can't be larger than a quarter of a page, so that a page split in two always gives pages that fit
+    private static final int MAX_KEY_SIZE = 512;
+    private static final int MAX_INLINE_VALUE_SIZE = 480;
+
+    private static final byte LEAF = 0;
+    private static final byte INTERNAL = 1;
+    private static final byte INLINE = 0;
+    private static final byte OVERFLOW = 1;
+    private static final byte NUMBER = 1;
+    private static final byte NAME = 2;
+
+    private final FileChannel channel;
+    private final Path journalFile;
+    // The journal of the changes since the last flush, or null if nothing changed since then
+    @Nullable
+    private FileChannel journal;
+    // Whether some pages were written to the journal without being forced to the disk yet
+    private boolean journalPending;
+    // The pages that were copied to the journal since the last flush, out of the pages that existed back then
+    private final BitSet journaled = new BitSet();
+    private int flushedPageCount;
+    private final int cachedPages;
+    // Ordered from least to most recently used
+    private final Map<Integer, Page> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private int root;
+    private int pageCount;
+    // The first page of the list of pages that can be reused, or -1
+    private int freePage;
+    // Whether the file was marked as being changed since the last flush
+    private boolean changing;
+    /*
+     * How many elements at the start of a list are known to be at the indices 1, 2, 3... without any gap, so that
+     * finding a free index doesn't go through them again. Lists are only added once a free index is looked for.
+     */
+    private final Map<ByteBuffer, Long> sequenceSizes = new HashMap<>();
+
+    /**
+     * Opens a store, creating its file if it doesn't exist. If the store wasn't closed properly, it is brought back
+     * to its state at the last flush.
+     * @param file the file of the store
+     * @throws IOException if the file couldn't be opened or isn't a store, or if the store wasn't closed properly and
+     *                     its journal is missing
+     */
+    public DiskVariableStore(Path file) throws IOException {
+        this(file, DEFAULT_CACHED_PAGES);
+    }
+
+    /**
+     * Opens a store, creating its file if it doesn't exist. If the store wasn't closed properly, it is brought back
+     * to its state at the last flush.
+     * @param file the file of the store
+     * @param cachedPages how many pages of {@value #PAGE_SIZE} bytes are kept in memory
+     * @throws IOException if the file couldn't be opened or isn't a store, or if the store wasn't closed properly and
+     *                     its journal is missing
+     */
+    public DiskVariableStore(Path file, int cachedPages) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.journalFile = file.resolveSibling(file.getFileName() + "-journal");
+        this.cachedPages = Math.max(cachedPages, 16);
+        try {
+            // Only a new file is set up as a store, anything else must already be one
+            if (channel.size() == 0) {
+                reset();
+            } else {
+                readHeader(file);
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @param path the parts of the name of a variable
+     * @return the value of the variable, or a read-only view of the list if the name ends with {@code *}
+     * @see VariableMap#getVariable(String[])
+     */
+    synchronized Optional<Object> getVariable(String[] path) {
+        Object value;
+        if (isList(path)) {
+            var prefix = encodeKey(path, path.length - 1);
+            value = hasChildren(prefix) ? new ListView(prefix) : null;
+        } else {
+            value = getValue(encodeKey(path, path.length));
+        }
+        trimCache();
+        return Optional.ofNullable(value);
+    }
+
+    /**
+     * @param path the parts of the name of a variable, ending with {@code *} to delete a list
+     * @param value the new value, or {@code null} to delete the variable
+     * @throws SkriptRuntimeException if the type of the value has no serializer
+     */
+    synchronized void setVariable(String[] path, @Nullable Object value) {
+        try {
+            if (isList(path)) {
+                assert value == null;
+                removeChildren(encodeKey(path, path.length - 1));
+            } else if (value == null) {
+                remove(encodeKey(path, path.length));
+            } else {
+                var encoded = ValueSerialization.encode(value);
+                if (encoded == null)
+                    throw new SkriptRuntimeException("A " + value.getClass().getSimpleName() + " can't be stored on the disk : {" + String.join(Variables.LIST_SEPARATOR, path) + "}");
+                var key = encodeKey(path, path.length);
+                if (key.length > MAX_KEY_SIZE)
+                    throw new SkriptRuntimeException("The name of {" + String.join(Variables.LIST_SEPARATOR, path) + "} is too long to be stored on the disk");
+                put(key, encoded);
+            }
+            trimCache();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @param path the parts of the name of a list, ending with {@code *}
+     * @param from the index to start from
+     * @return the first index of the list that isn't used, starting from the given one
+     */
+    synchronized long getFreeIndex(String[] path, long from) {
+        var prefix = encodeKey(path, path.length - 1);
+        var list = ByteBuffer.wrap(prefix);
+        var size = sequenceSizes.getOrDefault(list, 0L);
+        var sequence = from <= size + 1;
+        var index = sequence ? size + 1 : from;
+        while (true) {
+            var child = child(prefix, String.valueOf(index));
+            var entry = ceiling(child);
+            if (entry == null || !startsWith(entry.key, child))
+                break;
+            index++;
+        }
+        if (sequence)
+            sequenceSizes.put(list, index - 1);
+        trimCache();
+        return Math.max(from, index);
+    }
+
+    /**
+     * Deletes all variables of this store. This is written to the disk right away, and can't be undone by the journal.
+     */
+    public synchronized void clear() {
+        try {
+            reset();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes all the changes made so far to the disk
+     * @throws IOException if they couldn't be written
+     */
+    public synchronized void flush() throws IOException {
+        for (var page : cache.values()) {
+            if (page.changed)
+                saveToJournal(page.id);
+        }
+        for (var page : cache.values()) {
+            if (page.changed)
+                writePage(page);
+        }
+        channel.force(false);
+        changing = false;
+        writeHeader();
+        channel.force(false);
+        // The file is consistent again, the journal isn't needed anymore
+        deleteJournal();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        flush();
+        channel.close();
+    }
+
+    /*
+     * Keys
+     */
+
+    private static boolean isList(String[] path) {
+        return path[path.length - 1].equals("*");
+    }
+
+    private static byte[] encodeKey(String[] path, int length) {
+        var output = new ByteArrayOutputStream();
+        for (var i = 0; i < length; i++)
+            encodePart(path[i], output);
+        return output.toByteArray();
+    }
+
+    /*
+     * Numbers are written as big-endian longs, which compare like the numbers themselves. Names end with two zero
+     * bytes, which come before anything else, and zero bytes inside names are written as a zero then a one.
+     */
+    private static void encodePart(String part, ByteArrayOutputStream output) {
+        var number = VariableMap.parseIndex(part);
+        if (number != -1) {
+            output.write(NUMBER);
+            for (var shift = 56; shift >= 0; shift -= 8)
+                output.write((int) (number >>> shift));
+        } else {
+            output.write(NAME);
+            for (var b : part.getBytes(StandardCharsets.UTF_8)) {
+                output.write(b);
+                if (b == 0)
+                    output.write(1);
+            }
+            output.write(0);
+            output.write(0);
+        }
+    }
+
+    // Returns the offset at which the part starting at the given offset ends
+    private static int partEnd(byte[] key, int offset) {
+        if (key[offset] == NUMBER)
+            return offset + 9;
+        var i = offset + 1;
+        while (key[i] != 0 || key[i + 1] != 0)
+            i += key[i] == 0 ? 2 : 1;
+        return i + 2;
+    }
+
+    private static String decodePart(byte[] key, int offset) {
+        if (key[offset] == NUMBER)
+            return String.valueOf(ByteBuffer.wrap(key, offset + 1, 8).getLong());
+        var output = new ByteArrayOutputStream();
+        var i = offset + 1;
+        while (key[i] != 0 || key[i + 1] != 0) {
+            output.write(key[i]);
+            i += key[i] == 0 ? 2 : 1;
+        }
+        return output.toString(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] child(byte[] prefix, String name) {
+        var output = new ByteArrayOutputStream();
+        output.writeBytes(prefix);
+        encodePart(name, output);
+        return output.toByteArray();
+    }
+
+    // The smallest key that can belong to an element of the given list
+    private static byte[] firstChild(byte[] prefix) {
+        return Arrays.copyOf(prefix, prefix.length + 1);
+    }
+
+    // A key that comes after all the elements of the given list
+    private static byte[] afterChildren(byte[] prefix) {
+        var key = Arrays.copyOf(prefix, prefix.length + 1);
+        key[prefix.length] = (byte) 0xFF;
+        return key;
+    }
+
+    private static boolean startsWith(byte[] key, byte[] prefix) {
+        return key.length >= prefix.length && Arrays.equals(key, 0, prefix.length, prefix, 0, prefix.length);
+    }
+
+    private boolean hasChildren(byte[] prefix) {
+        var entry = ceiling(firstChild(prefix));
+        return entry != null && startsWith(entry.key, prefix);
+    }
+
+    /*
+     * Tree
+     */
+
+    @Nullable
+    private Object getValue(byte[] key) {
+        var page = getPage(root);
+        while (!page.leaf)
+            page = getPage(page.children.get(upperBound(page.keys, key)));
+        var index = lowerBound(page.keys, key);
+        if (index == page.keys.size() || !Arrays.equals(page.keys.get(index), key))
+            return null;
+        return decodeValue(page.values.get(index));
+    }
+
+    /*
+     * Returns the first entry whose key is equal to or greater than the given one, which may be in one of the leaves
+     * after the one the key belongs to
+     */
+    @Nullable
+    private Entry ceiling(byte[] key) {
+        var page = getPage(root);
+        while (!page.leaf)
+            page = getPage(page.children.get(upperBound(page.keys, key)));
+        var index = lowerBound(page.keys, key);
+        while (index == page.keys.size()) {
+            if (page.next == -1)
+                return null;
+            page = getPage(page.next);
+            index = 0;
+        }
+        return new Entry(page.keys.get(index), page.values.get(index));
+    }
+
+    // Returns the greatest key that is less than the given one
+    @Nullable
+    private byte[] lower(byte[] key) {
+        return lower(getPage(root), key);
+    }
+
+    @Nullable
+    private byte[] lower(Page page, byte[] key) {
+        if (page.leaf) {
+            var index = lowerBound(page.keys, key);
+            return index == 0 ? null : page.keys.get(index - 1);
+        }
+        // The child the key belongs to may only hold keys after it, and then the key before it is in a child before
+        for (var i = upperBound(page.keys, key); i >= 0; i--) {
+            var found = lower(getPage(page.children.get(i)), key);
+            if (found != null)
+                return found;
+        }
+        return null;
+    }
+
+    private void put(byte[] key, byte[] value) throws IOException {
+        markChanging();
+        var cell = value.length <= MAX_INLINE_VALUE_SIZE ? inlineCell(value) : writeOverflow(value);
+        List<Page> parents = new ArrayList<>();
+        var page = getPage(root);
+        while (!page.leaf) {
+            parents.add(page);
+            page = getPage(page.children.get(upperBound(page.keys, key)));
+        }
+        var index = lowerBound(page.keys, key);
+        if (index < page.keys.size() && Arrays.equals(page.keys.get(index), key)) {
+            freeCell(page.values.get(index));
+            page.values.set(index, cell);
+        } else {
+            page.keys.add(index, key);
+            page.values.add(index, cell);
+        }
+        page.changed = true;
+        // Splitting as many pages as needed, from the leaf up
+        while (page.size() > PAGE_SIZE) {
+            var right = newPage(page.leaf);
+            var split = page.splitIndex();
+            byte[] separator;
+            if (page.leaf) {
+                moveTail(page.keys, right.keys, split);
+                moveTail(page.values, right.values, split);
+                right.next = page.next;
+                page.next = right.id;
+                separator = right.keys.get(0);
+            } else {
+                // The middle key moves up to the parent
+                separator = page.keys.get(split);
+                moveTail(page.keys, right.keys, split + 1);
+                page.keys.remove(split);
+                moveTail(page.children, right.children, split + 1);
+            }
+            if (parents.isEmpty()) {
+                var newRoot = newPage(false);
+                newRoot.children.add(page.id);
+                newRoot.keys.add(separator);
+                newRoot.children.add(right.id);
+                root = newRoot.id;
+                break;
+            }
+            var parent = parents.remove(parents.size() - 1);
+            var position = parent.children.indexOf(page.id);
+            parent.keys.add(position, separator);
+            parent.children.add(position + 1, right.id);
+            parent.changed = true;
+            page = parent;
+        }
+    }
+
+    private void remove(byte[] key) throws IOException {
+        var page = getPage(root);
+        while (!page.leaf)
+            page = getPage(page.children.get(upperBound(page.keys, key)));
+        var index = lowerBound(page.keys, key);
+        if (index == page.keys.size() || !Arrays.equals(page.keys.get(index), key))
+            return;
+        markChanging();
+        freeCell(page.values.get(index));
+        page.keys.remove(index);
+        page.values.remove(index);
+        page.changed = true;
+        removed(key);
+        if (page.keys.isEmpty())
+            freeLeaf(key);
+    }
+
+    /*
+     * Removes all the elements of a list, going through its leaves only once. The leaves that were emptied are only
+     * freed afterwards, so that the next leaf can still be found.
+     */
+    private void removeChildren(byte[] prefix) throws IOException {
+        var start = firstChild(prefix);
+        var page = getPage(root);
+        while (!page.leaf)
+            page = getPage(page.children.get(upperBound(page.keys, start)));
+        var index = lowerBound(page.keys, start);
+        // A key of each emptied leaf, to find it again
+        List<byte[]> emptied = new ArrayList<>();
+        while (true) {
+            while (index < page.keys.size() && startsWith(page.keys.get(index), prefix)) {
+                markChanging();
+                var key = page.keys.remove(index);
+                freeCell(page.values.remove(index));
+                page.changed = true;
+                removed(key);
+                if (page.keys.isEmpty())
+                    emptied.add(key);
+            }
+            if (index < page.keys.size() || page.next == -1)
+                break;
+            // The leaves that were already gone through aren't needed anymore
+            page = getPage(page.next);
+            index = 0;
+            trimCache();
+        }
+        for (var key : emptied) {
+            freeLeaf(key);
+            trimCache();
+        }
+    }
+
+    /*
+     * Takes the leaf the given key belongs to out of the tree if it is empty, so that its page can be reused. Internal
+     * pages that are left without children are freed as well.
+     */
+    private void freeLeaf(byte[] key) throws IOException {
+        List<Page> parents = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+        var leaf = getPage(root);
+        while (!leaf.leaf) {
+            var position = upperBound(leaf.keys, key);
+            parents.add(leaf);
+            positions.add(position);
+            leaf = getPage(leaf.children.get(position));
+        }
+        if (!leaf.keys.isEmpty() || parents.isEmpty())
+            return;
+        // The deepest parent that keeps other children
+        var depth = parents.size() - 1;
+        while (depth >= 0 && parents.get(depth).children.size() == 1)
+            depth--;
+        if (depth == -1) {
+            // This was the last leaf, which becomes the root
+            for (var parent : parents)
+                freePage(parent.id);
+            root = leaf.id;
+            return;
+        }
+        // The leaf before this one must now link to the one after
+        for (var i = parents.size() - 1; i >= 0; i--) {
+            if (positions.get(i) > 0) {
+                var previous = getPage(parents.get(i).children.get(positions.get(i) - 1));
+                while (!previous.leaf)
+                    previous = getPage(previous.children.get(previous.children.size() - 1));
+                previous.next = leaf.next;
+                previous.changed = true;
+                break;
+            }
+        }
+        // The keys of the removed child now belong to the child before it, or to the one after it if it was the first
+        var parent = parents.get(depth);
+        int position = positions.get(depth);
+        parent.children.remove(position);
+        parent.keys.remove(Math.max(position - 1, 0));
+        parent.changed = true;
+        for (var i = depth + 1; i < parents.size(); i++)
+            freePage(parents.get(i).id);
+        freePage(leaf.id);
+        // The tree only gets shorter from the root
+        var top = getPage(root);
+        while (!top.leaf && top.children.size() == 1) {
+            freePage(top.id);
+            root = top.children.get(0);
+            top = getPage(root);
+        }
+    }
+
+    // Any index in the name of a removed variable may not be used anymore
+    private void removed(byte[] key) {
+        if (sequenceSizes.isEmpty())
+            return;
+        for (var offset = 0; offset < key.length; offset = partEnd(key, offset)) {
+            if (key[offset] != NUMBER)
+                continue;
+            var list = ByteBuffer.wrap(key, 0, offset).slice();
+            var size = sequenceSizes.get(list);
+            var index = ByteBuffer.wrap(key, offset + 1, 8).getLong();
+            if (size != null && index <= size) {
+                if (index == 1) {
+                    sequenceSizes.remove(list);
+                } else {
+                    sequenceSizes.put(list, index - 1);
+                }
+            }
+        }
+    }
+
+    private static <T> void moveTail(List<T> from, List<T> to, int start) {
+        var tail = from.subList(start, from.size());
+        to.addAll(tail);
+        tail.clear();
+    }
+
+    // The index of the first key that is equal to or greater than the given one
+    private static int lowerBound(List<byte[]> keys, byte[] key) {
+        int low = 0, high = keys.size();
+        while (low < high) {
+            var middle = (low + high) >>> 1;
+            if (Arrays.compareUnsigned(keys.get(middle), key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    // The index of the first key that is greater than the given one, which is also the index of the child to go to
+    private static int upperBound(List<byte[]> keys, byte[] key) {
+        int low = 0, high = keys.size();
+        while (low < high) {
+            var middle = (low + high) >>> 1;
+            if (Arrays.compareUnsigned(keys.get(middle), key) <= 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /*
+     * Values
+     */
+
+    private static byte[] inlineCell(byte[] value) {
+        var cell = new byte[value.length + 1];
+        cell[0] = INLINE;
+        System.arraycopy(value, 0, cell, 1, value.length);
+        return cell;
+    }
+
+    @Nullable
+    private Object decodeValue(byte[] cell) {
+        byte[] value;
+        if (cell[0] == INLINE) {
+            value = Arrays.copyOfRange(cell, 1, cell.length);
+        } else {
+            try {
+                value = readOverflow(cell);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        try {
+            return ValueSerialization.decode(new DataInputStream(new ByteArrayInputStream(value))).orElse(null);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /*
+     * Values that are too large to be stored in a leaf are written to a chain of pages, each starting with the index
+     * of the next page and the amount of bytes it holds
+     */
+    private byte[] writeOverflow(byte[] value) throws IOException {
+        var capacity = PAGE_SIZE - 8;
+        var count = (value.length + capacity - 1) / capacity;
+        var pages = new int[count];
+        for (var i = 0; i < count; i++)
+            pages[i] = allocatePage();
+        for (var i = 0; i < count; i++) {
+            var start = i * capacity;
+            var length = Math.min(capacity, value.length - start);
+            var buffer = ByteBuffer.allocate(PAGE_SIZE)
+                    .putInt(i + 1 < count ? pages[i + 1] : -1)
+                    .putInt(length)
+                    .put(value, start, length);
+            buffer.clear();
+            writeFully(buffer, (long) pages[i] * PAGE_SIZE);
+        }
+        return ByteBuffer.allocate(9).put(OVERFLOW).putInt(pages[0]).putInt(value.length).array();
+    }
+
+    private byte[] readOverflow(byte[] cell) throws IOException {
+        var reference = ByteBuffer.wrap(cell, 1, 8);
+        var page = reference.getInt();
+        var value = ByteBuffer.allocate(reference.getInt());
+        var buffer = ByteBuffer.allocate(PAGE_SIZE);
+        while (page != -1) {
+            buffer.clear();
+            readFully(buffer, (long) page * PAGE_SIZE);
+            buffer.flip();
+            page = buffer.getInt();
+            var length = buffer.getInt();
+            value.put(buffer.array(), 8, length);
+        }
+        return value.array();
+    }
+
+    private void freeCell(byte[] cell) throws IOException {
+        if (cell[0] != OVERFLOW)
+            return;
+        var page = ByteBuffer.wrap(cell, 1, 4).getInt();
+        var buffer = ByteBuffer.allocate(4);
+        while (page != -1) {
+            buffer.clear();
+            readFully(buffer, (long) page * PAGE_SIZE);
+            var next = buffer.flip().getInt();
+            freePage(page);
+            page = next;
+        }
+    }
+
+    /*
+     * Pages
+     */
+
+    private Page getPage(int id) {
+        var page = cache.get(id);
+        if (page != null)
+            return page;
+        try {
+            page = readPage(id);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        cache.put(id, page);
+        return page;
+    }
+
+    private Page newPage(boolean leaf) throws IOException {
+        var page = new Page(allocatePage(), leaf);
+        page.changed = true;
+        cache.put(page.id, page);
+        return page;
+    }
+
+    // Free pages start with the index of the next free page
+    private void freePage(int id) throws IOException {
+        cache.remove(id);
+        var buffer = ByteBuffer.allocate(4).putInt(freePage).flip();
+        writeFully(buffer, (long) id * PAGE_SIZE);
+        freePage = id;
+    }
+
+    private int allocatePage() throws IOException {
+        if (freePage == -1)
+            return pageCount++;
+        var page = freePage;
+        var buffer = ByteBuffer.allocate(4);
+        readFully(buffer, (long) page * PAGE_SIZE);
+        freePage = buffer.flip().getInt();
+        return page;
+    }
+
+    /*
+     * Pages only leave the cache between operations, and between the steps of an operation that doesn't hold onto
+     * pages, so that an operation never changes a page that isn't cached anymore
+     */
+    private void trimCache() {
+        try {
+            var excess = cache.size() - cachedPages;
+            if (excess <= 0)
+                return;
+            // The pages are all copied to the journal first, so that it is only forced to the disk once
+            var iterator = cache.values().iterator();
+            for (var i = 0; i < excess; i++) {
+                var page = iterator.next();
+                if (page.changed)
+                    saveToJournal(page.id);
+            }
+            iterator = cache.values().iterator();
+            for (var i = 0; i < excess; i++) {
+                var page = iterator.next();
+                if (page.changed)
+                    writePage(page);
+                iterator.remove();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return how many pages are currently kept in memory
+     */
+    int getCachedPageCount() {
+        return cache.size();
+    }
+
+    private Page readPage(int id) throws IOException {
+        var buffer = ByteBuffer.allocate(PAGE_SIZE);
+        readFully(buffer, (long) id * PAGE_SIZE);
+        buffer.flip();
+        var page = new Page(id, buffer.get() == LEAF);
+        var count = buffer.getShort();
+        if (page.leaf) {
+            page.next = buffer.getInt();
+            for (var i = 0; i < count; i++) {
+                page.keys.add(readBytes(buffer));
+                page.values.add(readBytes(buffer));
+            }
+        } else {
+            page.children.add(buffer.getInt());
+            for (var i = 0; i < count; i++) {
+                page.keys.add(readBytes(buffer));
+                page.children.add(buffer.getInt());
+            }
+        }
+        return page;
+    }
+
+    private void writePage(Page page) throws IOException {
+        var buffer = ByteBuffer.allocate(PAGE_SIZE);
+        buffer.put(page.leaf ? LEAF : INTERNAL);
+        buffer.putShort((short) page.keys.size());
+        if (page.leaf) {
+            buffer.putInt(page.next);
+            for (var i = 0; i < page.keys.size(); i++) {
+                writeBytes(page.keys.get(i), buffer);
+                writeBytes(page.values.get(i), buffer);
+            }
+        } else {
+            buffer.putInt(page.children.get(0));
+            for (var i = 0; i < page.keys.size(); i++) {
+                writeBytes(page.keys.get(i), buffer);
+                buffer.putInt(page.children.get(i + 1));
+            }
+        }
+        buffer.clear();
+        writeFully(buffer, (long) page.id * PAGE_SIZE);
+        page.changed = false;
+    }
+
+    private static byte[] readBytes(ByteBuffer buffer) {
+        var bytes = new byte[buffer.getShort()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private static void writeBytes(byte[] bytes, ByteBuffer buffer) {
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    private void readHeader(Path file) throws IOException {
+        var header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(header, 0);
+        header.flip();
+        if (channel.size() < HEADER_SIZE || header.getInt() != MAGIC)
+            throw new IOException(file + " is not a variable store");
+        if (header.get() != 0) {
+            rollBack(file);
+            header.clear();
+            readFully(header, 0);
+            header.flip().position(5);
+        } else {
+            // Left over from a flush that stopped right before deleting it
+            Files.deleteIfExists(journalFile);
+        }
+        root = header.getInt();
+        pageCount = header.getInt();
+        freePage = header.getInt();
+        // The last page may be a free page, of which only the start is written
+        if (root < 1 || root >= pageCount || freePage != -1 && (freePage < 1 || freePage >= pageCount)
+                || (long) (pageCount - 1) * PAGE_SIZE >= channel.size())
+            throw new IOException(file + " is corrupted");
+    }
+
+    // The previous content of the file is lost right away, so the new empty store is written right away as well
+    private void reset() throws IOException {
+        cache.clear();
+        sequenceSizes.clear();
+        deleteJournal();
+        channel.truncate(0);
+        pageCount = 1;
+        freePage = -1;
+        changing = false;
+        root = newPage(true).id;
+        flush();
+    }
+
+    /*
+     * The header says the file is being changed until the store is flushed, in which case the journal is needed to
+     * open it again. The journal starts with the header and the size of the file at the last flush.
+     */
+    private void markChanging() throws IOException {
+        if (changing)
+            return;
+        var header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(header, 0);
+        var start = ByteBuffer.allocate(JOURNAL_HEADER_SIZE)
+                .putInt(JOURNAL_MAGIC)
+                .putLong(channel.size())
+                .put(header.flip());
+        journal = FileChannel.open(journalFile, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        writeFully(journal, start.flip(), 0);
+        journal.force(false);
+        flushedPageCount = pageCount;
+        changing = true;
+        writeHeader();
+        channel.force(false);
+    }
+
+    /*
+     * Copies a page to the journal before it is changed on the disk for the first time since the last flush. Pages
+     * added since then don't need to be copied, as the file is cut back to its previous size.
+     */
+    private void saveToJournal(int page) throws IOException {
+        if (journal == null || page == 0 || page >= flushedPageCount || journaled.get(page))
+            return;
+        var record = ByteBuffer.allocate(4 + PAGE_SIZE).putInt(page);
+        readFully(record, (long) page * PAGE_SIZE);
+        // The page may be past the end of the file, if it was never written
+        record.position(record.limit());
+        writeFully(journal, record.flip(), journal.size());
+        journaled.set(page);
+        journalPending = true;
+    }
+
+    private void deleteJournal() throws IOException {
+        if (journal != null) {
+            journal.close();
+            journal = null;
+        }
+        journaled.clear();
+        journalPending = false;
+        Files.deleteIfExists(journalFile);
+    }
+
+    /*
+     * Writes back the pages copied to the journal, and cuts the file back to its size at the last flush. A page that
+     * was only partly copied hadn't been changed yet.
+     */
+    private void rollBack(Path file) throws IOException {
+        if (!Files.exists(journalFile))
+            throw new IOException(file + " wasn't closed properly, and its journal is missing");
+        try (var journal = FileChannel.open(journalFile, StandardOpenOption.READ)) {
+            var start = ByteBuffer.allocate(JOURNAL_HEADER_SIZE);
+            readFully(journal, start, 0);
+            start.flip();
+            if (start.remaining() < JOURNAL_HEADER_SIZE || start.getInt() != JOURNAL_MAGIC)
+                throw new IOException("The journal of " + file + " is corrupted");
+            var size = start.getLong();
+            var record = ByteBuffer.allocate(4 + PAGE_SIZE);
+            for (long position = JOURNAL_HEADER_SIZE; position + record.capacity() <= journal.size(); position += record.capacity()) {
+                record.clear();
+                readFully(journal, record, position);
+                var page = record.flip().getInt();
+                writeFully(channel, record, (long) page * PAGE_SIZE);
+            }
+            channel.truncate(size);
+            writeFully(channel, start, 0);
+            channel.force(false);
+        }
+        Files.delete(journalFile);
+    }
+
+    private void writeHeader() throws IOException {
+        var header = ByteBuffer.allocate(HEADER_SIZE)
+                .putInt(MAGIC)
+                .put((byte) (changing ? 1 : 0))
+                .putInt(root)
+                .putInt(pageCount)
+                .putInt(freePage);
+        header.flip();
+        writeFully(header, 0);
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        readFully(channel, buffer, position);
+    }
+
+    // Pages are copied to the journal before being written, and the journal must be on the disk before they are
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        saveToJournal((int) (position / PAGE_SIZE));
+        if (journalPending) {
+            assert journal != null;
+            journal.force(false);
+            journalPending = false;
+        }
+        writeFully(channel, buffer, position);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        var start = buffer.position();
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position() - start) == -1)
+                break; // Past the end of the file, which reads as zeroes
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        var start = buffer.position();
+        while (buffer.hasRemaining())
+            channel.write(buffer, position + buffer.position() - start);
+    }
+
+    private static class Page {
+        private final int id;
+        private final boolean leaf;
+        private final List<byte[]> keys = new ArrayList<>();
+        // The values of a leaf, each starting with a byte telling whether it is stored inline or in overflow pages
+        private final List<byte[]> values = new ArrayList<>();
+        private final List<Integer> children = new ArrayList<>();
+        // The leaf that comes after this one, or -1
+        private int next = -1;
+        private boolean changed = false;
+
+        private Page(int id, boolean leaf) {
+            this.id = id;
+            this.leaf = leaf;
+        }
+
+        private int size() {
+            var size = 7;
+            for (var i = 0; i < keys.size(); i++)
+                size += entrySize(i);
+            return size;
+        }
+
+        private int entrySize(int index) {
+            return 2 + keys.get(index).length + (leaf ? 2 + values.get(index).length : 4);
+        }
+
+        // Where to split this page so that both halves hold about as many bytes
+        private int splitIndex() {
+            var half = size() / 2;
+            var size = 7;
+            for (var i = 0; i < keys.size(); i++) {
+                size += entrySize(i);
+                if (size >= half)
+                    return Math.min(Math.max(i, 1), keys.size() - (leaf ? 1 : 2));
+            }
+            return keys.size() / 2;
+        }
+    }
+
+    private static class Entry {
+        private final byte[] key;
+        private final byte[] value;
+
+        private Entry(byte[] key, byte[] value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    /**
+     * A list of this store, as a map from indices to elements, in the same shape as the lists held in memory. Reading
+     * it always reflects the current content of the store.
+     */
+    private class ListView extends AbstractMap<String, Object> {
+        private final byte[] prefix;
+
+        private ListView(byte[] prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        @Nullable
+        public Object get(@Nullable Object key) {
+            if (key != null && !(key instanceof String))
+                return null;
+            synchronized (DiskVariableStore.this) {
+                Object value;
+                if (key == null) {
+                    value = getValue(prefix);
+                } else {
+                    var child = child(prefix, (String) key);
+                    value = hasChildren(child) ? new ListView(child) : getValue(child);
+                }
+                trimCache();
+                return value;
+            }
+        }
+
+        @Override
+        public boolean containsKey(@Nullable Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return !entrySet().iterator().hasNext();
+        }
+
+        @Override
+        public Set<Map.Entry<String, Object>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Map.Entry<String, Object>> iterator() {
+                    return new ListIterator(prefix);
+                }
+
+                @Override
+                public int size() {
+                    var size = 0;
+                    for (var iterator = iterator(); iterator.hasNext(); iterator.next())
+                        size++;
+                    return size;
+                }
+            };
+        }
+    }
+
+    /*
+     * Looks up the next element every time, starting after the previous one, so that the list may change while it is
+     * being iterated. Elements added after the last one once the iteration started aren't iterated over.
+     */
+    private class ListIterator implements Iterator<Map.Entry<String, Object>> {
+        private final byte[] prefix;
+        private byte[] position;
+        // A key that comes after the elements to iterate over
+        private final byte[] end;
+        private boolean ownValueRead = false;
+        @Nullable
+        private Map.Entry<String, Object> next;
+
+        private ListIterator(byte[] prefix) {
+            this.prefix = prefix;
+            this.position = firstChild(prefix);
+            synchronized (DiskVariableStore.this) {
+                var last = lower(afterChildren(prefix));
+                this.end = last == null || !startsWith(last, prefix) || last.length == prefix.length
+                        ? position
+                        : afterChildren(Arrays.copyOf(last, partEnd(last, prefix.length)));
+                trimCache();
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next != null)
+                return true;
+            synchronized (DiskVariableStore.this) {
+                try {
+                    return findNext();
+                } finally {
+                    trimCache();
+                }
+            }
+        }
+
+        private boolean findNext() {
+            if (!ownValueRead) {
+                ownValueRead = true;
+                var ownValue = getValue(prefix);
+                if (ownValue != null) {
+                    next = new AbstractMap.SimpleImmutableEntry<>(null, ownValue);
+                    return true;
+                }
+            }
+            while (true) {
+                var entry = ceiling(position);
+                if (entry == null || Arrays.compareUnsigned(entry.key, end) >= 0)
+                    return false;
+                var end = partEnd(entry.key, prefix.length);
+                var child = Arrays.copyOf(entry.key, end);
+                position = afterChildren(child);
+                Object element;
+                if (entry.key.length == end && !hasChildren(child)) {
+                    element = decodeValue(entry.value);
+                } else {
+                    element = new ListView(child);
+                }
+                if (element != null) {
+                    next = new AbstractMap.SimpleImmutableEntry<>(decodePart(entry.key, prefix.length), element);
+                    return true;
+                }
+            }
+        }
+
+        @Override
+        public Map.Entry<String, Object> next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            var n = next;
+            assert n != null;
+            next = null;
+            return n;
+        }
+    }
+}
@@ -0,0 +1,486 @@
+package io.github.syst3ms.skriptparser.variables;
+
+import io.github.syst3ms.skriptparser.types.Serializer;
+import io.github.syst3ms.skriptparser.types.Type;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * A {@link VariableStorage} saving variables to files in a directory.
+ *
+ * Every change is appended to a write-ahead log by a background thread. The thread writes all the changes that piled
+ * up while it was busy at once, and only then forces them to the disk, so that many changes share a single fsync.
+ * Once the log has grown past a certain size, the current state of all variables is written to a snapshot, and the
+ * logs it covers are deleted. Loading reads the snapshot, then replays the logs. Files are read into memory rather than
+ * mapped, as a file can't be deleted while it is mapped on some systems, which would keep the logs from being compacted.
+ *
+ * The snapshot is taken one lock stripe at a time, so that the other variables can keep changing in the meantime.
+ * Every change gets a sequence number, and each part of the snapshot remembers the sequence number it was taken at,
+ * so that the changes it already includes are skipped when the logs are replayed.
+ *
+ * Only values whose {@link Type} has a {@link Serializer} can be saved : setting a variable to any other value is
+ * saved as deleting it.
+ */
+public class FileVariableStorage implements VariableStorage {
+    private static final String SNAPSHOT_FILE = "variables.snapshot";
+    private static final String LOG_PREFIX = "variables.";
+    private static final String LOG_SUFFIX = ".log";
+    private static final int SNAPSHOT_MAGIC = 0x534B5653;
+    private static final long DEFAULT_COMPACTION_THRESHOLD = 16 * 1024 * 1024;
+    // Marks the end of the queue of records when closing
+    private static final byte[] END = new byte[0];
+
+    private static final byte SET = 0;
+    private static final byte DELETE = 1;
+    private static final byte POLL_FIRST = 2;
+    private static final byte POLL_LAST = 3;
+    private static final byte CLEAR = 4;
+
+    private final Path directory;
+    private final long compactionThreshold;
+    private final VariableMap map = Variables.getGlobalMap();
+    private final AtomicLong sequence = new AtomicLong();
+    private final BlockingQueue<byte[]> queue = new LinkedBlockingQueue<>();
+    private final AtomicLong queued = new AtomicLong();
+    // Guarded by this
+    private long written = 0;
+    @Nullable
+    private volatile IOException failure;
+    @Nullable
+    private Thread writer;
+    @Nullable
+    private FileChannel log;
+    private long generation = 0;
+    private long logSize = 0;
+
+    /**
+     * @param directory the directory holding the files of this storage
+     */
+    public FileVariableStorage(Path directory) {
+        this(directory, DEFAULT_COMPACTION_THRESHOLD);
+    }
+
+    /**
+     * @param directory the directory holding the files of this storage
+     * @param compactionThreshold the size in bytes the logs may reach before they are compacted into a snapshot
+     */
+    public FileVariableStorage(Path directory, long compactionThreshold) {
+        this.directory = directory;
+        this.compactionThreshold = compactionThreshold;
+    }
+
+    @Override
+    public void load() throws IOException {
+        Files.createDirectories(directory);
+        var sequences = new long[map.getStripeCount()];
+        var snapshot = directory.resolve(SNAPSHOT_FILE);
+        if (Files.exists(snapshot))
+            readSnapshot(snapshot, sequences);
+        var lastSequence = -1L;
+        for (var sequence : sequences)
+            lastSequence = Math.max(lastSequence, sequence - 1);
+        var logs = findLogs();
+        for (var entry : logs.entrySet()) {
+            lastSequence = Math.max(lastSequence, replay(entry.getValue(), sequences));
+            logSize += Files.size(entry.getValue());
+        }
+        sequence.set(lastSequence + 1);
+        openLog(logs.isEmpty() ? 0 : logs.lastKey() + 1);
+        writer = new Thread(this::write, "Variable storage writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public void variableChanged(String[] path, @Nullable Object value) {
+        var output = new ByteArrayOutputStream();
+        var data = new DataOutputStream(output);
+        try {
+            // If the value can't be saved, we make sure no older value is restored instead
+            var encoded = value == null ? null : ValueSerialization.encode(value);
+            data.writeLong(sequence.getAndIncrement());
+            data.writeByte(encoded == null ? DELETE : SET);
+            writePath(path, data);
+            if (encoded != null)
+                data.write(encoded);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        enqueue(output.toByteArray());
+    }
+
+    @Override
+    public void listPolled(String[] path, boolean first) {
+        var output = new ByteArrayOutputStream();
+        var data = new DataOutputStream(output);
+        try {
+            data.writeLong(sequence.getAndIncrement());
+            data.writeByte(first ? POLL_FIRST : POLL_LAST);
+            writePath(path, data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        enqueue(output.toByteArray());
+    }
+
+    @Override
+    public void variablesCleared() {
+        var output = new ByteArrayOutputStream();
+        var data = new DataOutputStream(output);
+        try {
+            data.writeLong(sequence.getAndIncrement());
+            data.writeByte(CLEAR);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        enqueue(output.toByteArray());
+    }
+
+    /**
+     * Waits until all the changes reported so far are written to the disk
+     * @throws IOException if they couldn't be written
+     * @throws InterruptedException if the current thread was interrupted while waiting
+     */
+    public void flush() throws IOException, InterruptedException {
+        var target = queued.get();
+        synchronized (this) {
+            while (written < target && failure == null)
+                wait();
+        }
+        var failure = this.failure;
+        if (failure != null)
+            throw failure;
+    }
+
+    @Override
+    public void close() throws IOException {
+        var writer = this.writer;
+        if (writer == null)
+            return;
+        this.writer = null;
+        queue.add(END);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while saving variables", e);
+        }
+        var failure = this.failure;
+        if (failure != null)
+            throw failure;
+    }
+
+    /*
+     * Once the writer thread failed, every change is lost, which is reported to the code making the change
+     */
+    private void enqueue(byte[] body) {
+        var failure = this.failure;
+        if (failure != null)
+            throw new UncheckedIOException("Variables can't be saved anymore", failure);
+        var crc = new CRC32();
+        crc.update(body);
+        var record = ByteBuffer.allocate(body.length + 8)
+                .putInt(body.length)
+                .putInt((int) crc.getValue())
+                .put(body);
+        queued.incrementAndGet();
+        queue.add(record.array());
+    }
+
+    private void write() {
+        var batch = new ArrayList<byte[]>();
+        var closing = false;
+        try {
+            while (!closing) {
+                batch.add(queue.take());
+                queue.drainTo(batch);
+                var size = 0;
+                for (var record : batch)
+                    size += record.length;
+                var buffer = ByteBuffer.allocate(size);
+                for (var record : batch) {
+                    if (record == END) {
+                        closing = true;
+                    } else {
+                        buffer.put(record);
+                    }
+                }
+                buffer.flip();
+                assert log != null;
+                while (buffer.hasRemaining())
+                    log.write(buffer);
+                // A single fsync for the whole batch
+                log.force(false);
+                logSize += size;
+                synchronized (this) {
+                    written += closing ? batch.size() - 1 : batch.size();
+                    notifyAll();
+                }
+                batch.clear();
+                if (!closing && logSize > compactionThreshold)
+                    compact();
+            }
+        } catch (IOException e) {
+            fail(e);
+        } catch (InterruptedException e) {
+            fail(new IOException("Interrupted while saving variables", e));
+        } finally {
+            try {
+                if (log != null)
+                    log.close();
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+    }
+
+    private synchronized void fail(IOException e) {
+        if (failure == null) {
+            failure = e;
+        } else {
+            failure.addSuppressed(e);
+        }
+        queue.clear();
+        notifyAll();
+    }
+
+    /*
+     * Writes the state of all variables to a new snapshot, then deletes the logs it covers. This runs on the writer
+     * thread, so that nothing is appended to the logs in the meantime.
+     */
+    private void compact() throws IOException {
+        var covered = generation;
+        // Every change that isn't in the snapshot is logged from now on, and the logs before are not needed anymore
+        openLog(generation + 1);
+        var temporary = directory.resolve(SNAPSHOT_FILE + ".tmp");
+        try (var channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            var crc = new CRC32();
+            var header = ByteBuffer.allocate(8).putInt(SNAPSHOT_MAGIC).putInt(map.getStripeCount()).flip();
+            writeFully(channel, header, crc);
+            for (var stripe = 0; stripe < map.getStripeCount(); stripe++)
+                writeFully(channel, snapshotStripe(stripe), crc);
+            writeFully(channel, ByteBuffer.allocate(4).putInt((int) crc.getValue()).flip(), null);
+            channel.force(true);
+        }
+        Files.move(temporary, directory.resolve(SNAPSHOT_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        for (var entry : findLogs().headMap(covered, true).entrySet())
+            Files.deleteIfExists(entry.getValue());
+        logSize = 0;
+    }
+
+    /*
+     * Only the variables of the stripe are locked, while they are written to memory
+     */
+    private ByteBuffer snapshotStripe(int stripe) throws IOException {
+        var output = new ByteArrayOutputStream();
+        var data = new DataOutputStream(output);
+        var entries = new ByteArrayOutputStream();
+        var entryData = new DataOutputStream(entries);
+        var count = new int[1];
+        long sequence;
+        var lock = map.getLock(stripe);
+        lock.lock();
+        try {
+            sequence = this.sequence.get();
+            map.forEach(stripe, (path, value) -> {
+                try {
+                    var encoded = ValueSerialization.encode(value);
+                    if (encoded != null) {
+                        writePath(path, entryData);
+                        entryData.write(encoded);
+                        count[0]++;
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            lock.unlock();
+        }
+        data.writeLong(sequence);
+        data.writeInt(count[0]);
+        entries.writeTo(data);
+        return ByteBuffer.wrap(output.toByteArray());
+    }
+
+    private void readSnapshot(Path snapshot, long[] sequences) throws IOException {
+        var buffer = readFile(snapshot);
+        if (buffer.limit() < 12)
+            throw new IOException("Corrupted variable snapshot " + snapshot);
+        var content = buffer.duplicate().limit(buffer.limit() - 4);
+        var crc = new CRC32();
+        crc.update(content.duplicate());
+        if ((int) crc.getValue() != buffer.getInt(buffer.limit() - 4))
+            throw new IOException("Corrupted variable snapshot " + snapshot);
+        var input = new DataInputStream(new BufferInputStream(content));
+        if (input.readInt() != SNAPSHOT_MAGIC)
+            throw new IOException(snapshot + " is not a variable snapshot");
+        if (input.readInt() != sequences.length)
+            throw new IOException(snapshot + " was written with a different amount of lock stripes");
+        for (var stripe = 0; stripe < sequences.length; stripe++) {
+            sequences[stripe] = input.readLong();
+            var count = input.readInt();
+            for (var i = 0; i < count; i++) {
+                var path = readPath(input);
+                ValueSerialization.decode(input).ifPresent(v -> map.setVariable(path, v));
+            }
+        }
+    }
+
+    /*
+     * Returns the last sequence number found in the log. A log ends at the first record that wasn't entirely written.
+     */
+    private long replay(Path file, long[] sequences) throws IOException {
+        var buffer = readFile(file);
+        var lastSequence = -1L;
+        var crc = new CRC32();
+        while (buffer.remaining() >= 8) {
+            var length = buffer.getInt();
+            var checksum = buffer.getInt();
+            if (length < 9 || length > buffer.remaining())
+                break;
+            var body = buffer.slice().limit(length);
+            crc.reset();
+            crc.update(body.duplicate());
+            if ((int) crc.getValue() != checksum)
+                break;
+            buffer.position(buffer.position() + length);
+            var input = new DataInputStream(new BufferInputStream(body));
+            var sequence = input.readLong();
+            lastSequence = Math.max(lastSequence, sequence);
+            var operation = input.readByte();
+            if (operation == CLEAR) {
+                for (var stripe = 0; stripe < sequences.length; stripe++) {
+                    if (sequence >= sequences[stripe])
+                        map.clearStripe(stripe);
+                }
+                continue;
+            }
+            var path = readPath(input);
+            if (sequence < sequences[map.getStripe(path[0])])
+                continue; // Already part of the snapshot
+            switch (operation) {
+                case SET:
+                    map.setVariable(path, ValueSerialization.decode(input).orElse(null));
+                    break;
+                case DELETE:
+                    map.setVariable(path, null);
+                    break;
+                case POLL_FIRST:
+                case POLL_LAST:
+                    map.pollSequence(path, operation == POLL_FIRST);
+                    break;
+                default:
+                    throw new IOException("Unknown operation in variable log " + file);
+            }
+        }
+        return lastSequence;
+    }
+
+    private TreeMap<Long, Path> findLogs() throws IOException {
+        var logs = new TreeMap<Long, Path>();
+        try (var files = Files.list(directory)) {
+            for (var file : (Iterable<Path>) files::iterator) {
+                var name = file.getFileName().toString();
+                if (!name.startsWith(LOG_PREFIX) || !name.endsWith(LOG_SUFFIX))
+                    continue;
+                try {
+                    logs.put(Long.parseLong(name.substring(LOG_PREFIX.length(), name.length() - LOG_SUFFIX.length())), file);
+                } catch (NumberFormatException ignored) {
+                    // Not one of our logs
+                }
+            }
+        }
+        return logs;
+    }
+
+    private void openLog(long generation) throws IOException {
+        if (log != null)
+            log.close();
+        this.generation = generation;
+        log = FileChannel.open(
+                directory.resolve(LOG_PREFIX + generation + LOG_SUFFIX),
+                StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND
+        );
+    }
+
+    private static ByteBuffer readFile(Path file) throws IOException {
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            var size = channel.size();
+            if (size > Integer.MAX_VALUE)
+                throw new IOException(file + " is too large to be read");
+            var buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) == -1)
+                    break;
+            }
+            return buffer.flip();
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, @Nullable CRC32 crc) throws IOException {
+        if (crc != null)
+            crc.update(buffer.duplicate());
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+    }
+
+    private static void writePath(String[] path, DataOutput output) throws IOException {
+        output.writeInt(path.length);
+        for (var part : path)
+            output.writeUTF(part);
+    }
+
+    private static String[] readPath(DataInput input) throws IOException {
+        var path = new String[input.readInt()];
+        for (var i = 0; i < path.length; i++)
+            path[i] = input.readUTF();
+        return path;
+    }
+
+    private static class BufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        BufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!buffer.hasRemaining())
+                return -1;
+            len = Math.min(len, buffer.remaining());
+            buffer.get(b, off, len);
+            return len;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package io.github.syst3ms.skriptparser.variables;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * The local variables of a single execution. Variables with a simple name are stored in an array, at the slot
+ * {@link Variables#getLocalSlot(String)} assigned to their name, and all other variables fall back to a
+ * {@link VariableMap}.
+ */
+class LocalFrame {
+    private static final Object[] EMPTY = new Object[0];
+
+    private Object[] slots = EMPTY;
+    @Nullable
+    private VariableMap map;
+
+    Optional<Object> get(int slot) {
+        return slot < slots.length ? Optional.ofNullable(slots[slot]) : Optional.empty();
+    }
+
+    void set(int slot, @Nullable Object value) {
+        if (slot >= slots.length) {
+            if (value == null)
+                return;
+            slots = Arrays.copyOf(slots, Math.max(slot + 1, slots.length * 2));
+        }
+        slots[slot] = value;
+    }
+
+    /**
+     * @return the map holding the variables that don't have a slot, or {@code null} if there aren't any
+     */
+    @Nullable
+    VariableMap getMap() {
+        return map;
+    }
+
+    Optional<Object> getVariable(String[] path) {
+        return map == null ? Optional.empty() : map.getVariable(path);
+    }
+
+    void setVariable(String[] path, @Nullable Object value) {
+        if (map == null) {
+            if (value == null)
+                return;
+            map = new VariableMap(1);
+        }
+        map.setVariable(path, value);
+    }
+}
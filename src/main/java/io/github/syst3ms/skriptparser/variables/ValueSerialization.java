@@ -0,0 +1,58 @@
+package io.github.syst3ms.skriptparser.variables;
+
+import io.github.syst3ms.skriptparser.types.Serializer;
+import io.github.syst3ms.skriptparser.types.TypeManager;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * Converts the values of variables to bytes and back, using the {@link Serializer} of their type. A value is
+ * preceded by the name of its type and by its size, so that it can be skipped if its type isn't registered anymore
+ * when reading it.
+ */
+class ValueSerialization {
+    private ValueSerialization() {}
+
+    /**
+     * @param value a value
+     * @return the value as bytes, or {@code null} if its type has no {@link Serializer}
+     * @throws IOException if the value couldn't be serialized
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    static byte[] encode(Object value) throws IOException {
+        var type = TypeManager.getByClass(value.getClass());
+        if (type.isEmpty() || type.get().getSerializer().isEmpty())
+            return null;
+        var serialized = new ByteArrayOutputStream();
+        ((Serializer<Object>) type.get().getSerializer().get()).serialize(value, new DataOutputStream(serialized));
+        var output = new ByteArrayOutputStream();
+        var data = new DataOutputStream(output);
+        data.writeUTF(type.get().getBaseName());
+        data.writeInt(serialized.size());
+        serialized.writeTo(data);
+        return output.toByteArray();
+    }
+
+    /**
+     * Reads a value that was {@linkplain #encode(Object) encoded}
+     * @param input where to read the value from
+     * @return the value, or an empty {@link Optional} if its type isn't registered anymore
+     * @throws IOException if the value couldn't be read
+     */
+    static Optional<Object> decode(DataInput input) throws IOException {
+        var type = TypeManager.getByExactName(input.readUTF());
+        var bytes = new byte[input.readInt()];
+        input.readFully(bytes);
+        if (type.isEmpty() || type.get().getSerializer().isEmpty())
+            return Optional.empty();
+        return Optional.of(type.get().getSerializer().get().deserialize(new DataInputStream(new ByteArrayInputStream(bytes))));
+    }
+}
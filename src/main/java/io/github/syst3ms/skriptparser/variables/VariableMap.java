@@ -2,147 +2,589 @@ package io.github.syst3ms.skriptparser.variables;
 
 import org.jetbrains.annotations.Nullable;
 
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Optional;
-import java.util.regex.Pattern;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
 
+/**
+ * A tree of variables, which can safely be used from multiple threads.
+ *
+ * Every part of a variable's name is a node in the tree, which holds the value of the variable of that name, if any,
+ * and the elements of the list of that name, sorted by index. Reading variables never requires any locking, and
+ * lists are read without being copied. Changes are guarded by one of multiple locks, chosen according to the first
+ * part of the variable's name, so that a variable and all the elements of the list of the same name share the same
+ * lock.
+ */
 class VariableMap {
-    private static final Pattern listSplitPattern = Pattern.compile(Pattern.quote(Variables.LIST_SEPARATOR));
-    private final Map<String, Object> map = new HashMap<>(); // Ordering is not important right now
+    private final ConcurrentMap<String, Node> roots = new ConcurrentHashMap<>();
+    private final ReadWriteLock[] locks;
 
-    private static String[] splitList(String name) {
-        return listSplitPattern.split(name);
+    /**
+     * @param stripes the amount of locks guarding this map
+     */
+    VariableMap(int stripes) {
+        locks = new ReadWriteLock[stripes];
+        for (var i = 0; i < stripes; i++)
+            locks[i] = new ReentrantReadWriteLock();
+    }
+
+    /**
+     * Splits the name of a variable into the parts that are separated by {@link Variables#LIST_SEPARATOR}
+     * @param name the name of the variable
+     * @return the parts of the name
+     */
+    static String[] splitPath(String name) {
+        var separator = Variables.LIST_SEPARATOR;
+        var count = 1;
+        for (var index = name.indexOf(separator); index != -1; index = name.indexOf(separator, index + separator.length()))
+            count++;
+        if (count == 1)
+            return new String[] {name};
+        var parts = new String[count];
+        var start = 0;
+        for (var i = 0; i < count - 1; i++) {
+            var index = name.indexOf(separator, start);
+            parts[i] = name.substring(start, index);
+            start = index + separator.length();
+        }
+        parts[count - 1] = name.substring(start);
+        return parts;
+    }
+
+    /**
+     * @param name a part of the name of a variable
+     * @return the number written in that part, or {@code -1} if it isn't a number written in the usual way. Such
+     *         parts are sorted before all others, in numerical order.
+     */
+    static long parseIndex(String name) {
+        return Index.parseNumber(name);
+    }
+
+    private static boolean isList(String[] path) {
+        return path[path.length - 1].equals("*");
     }
 
     /**
-     * Returns the internal value of the requested variable.
+     * @param path the parts of the name of a variable
+     * @return the lock that guards all changes to the variable, and to the list of the same name. It is reentrant.
+     */
+    Lock getLock(String[] path) {
+        return getLock(getStripe(path[0]));
+    }
+
+    /**
+     * @return the amount of locks guarding this map
+     */
+    int getStripeCount() {
+        return locks.length;
+    }
+
+    /**
+     * @param root the first part of the name of a variable
+     * @return the index of the lock guarding that variable
+     */
+    int getStripe(String root) {
+        return locks.length == 1 ? 0 : (root.hashCode() & Integer.MAX_VALUE) % locks.length;
+    }
+
+    /**
+     * @param stripe the index of a lock
+     * @return that lock
+     */
+    Lock getLock(int stripe) {
+        return locks[stripe].writeLock();
+    }
+
+    /**
+     * Returns the value of the requested variable. Lists are returned as a read-only view, reflecting the changes
+     * made to the list afterwards.
      * <p>
      * <b>Do not modify the returned value!</b>
      *
-     * @param name name of the variable
+     * @param path the parts of the name of the variable
      * @return an Object for a normal Variable or a Map<String, Object> for a list variable, or null if the variable is not set.
      */
-    @SuppressWarnings("unchecked")
-    public Optional<Object> getVariable(String name) {
-        if (!name.endsWith("*")) {
-            return Optional.ofNullable(map.get(name));
-        } else {
-            var split = splitList(name);
-            var current = map;
-            for (var i = 0; i < split.length; i++) {
-                var n = split[i];
-                if (n.equals("*")) {
-                    assert i == split.length - 1;
-                    return Optional.of(current);
-                }
-                var o = current.get(n);
-                if (o == null) {
-                    return Optional.empty();
-                }
-                if (o instanceof Map) {
-                    current = (Map<String, Object>) o;
-                    assert i != split.length - 1;
-                } else {
-                    return Optional.empty();
-                }
-            }
+    public Optional<Object> getVariable(String[] path) {
+        var list = isList(path);
+        var node = find(path, list ? path.length - 1 : path.length);
+        if (node == null)
             return Optional.empty();
+        if (list) {
+            return node.children == null ? Optional.empty() : Optional.of(new ListView(node));
+        } else {
+            return Optional.ofNullable(node.value);
         }
     }
 
+    @Nullable
+    private Node find(String[] path, int length) {
+        var node = roots.get(path[0]);
+        for (var i = 1; i < length && node != null; i++)
+            node = node.getChild(path[i]);
+        return node;
+    }
+
     /**
 	 * Sets a variable.
 	 *
-	 * @param name  The variable's name. Can be a "list variable::*" (<tt>value</tt> must be <tt>null</tt> in this case)
+	 * @param path  The parts of the variable's name. Can be a "list variable::*" (<tt>value</tt> must be <tt>null</tt> in this case)
 	 * @param value The variable's value. Use <tt>null</tt> to delete the variable.
 	 */
-    @SuppressWarnings("unchecked")
-    public void setVariable(String name, @Nullable Object value) {
-        if (!name.endsWith("*")) {
+    public void setVariable(String[] path, @Nullable Object value) {
+        var lock = getLock(path);
+        lock.lock();
+        try {
             if (value == null) {
-                map.remove(name);
+                delete(path);
             } else {
-                map.put(name, value);
-            }
-        }
-        var split = splitList(name);
-        var parent = map;
-        for (var i = 0; i < split.length; i++) {
-            var n = split[i];
-            var current = parent.get(n);
-            if (current == null) {
-                if (i == split.length - 1) {
-                    if (value != null) {
-                        parent.put(n, value);
+                assert !isList(path);
+                Node parent = null;
+                var node = roots.computeIfAbsent(path[0], n -> new Node());
+                for (var i = 1; i < path.length; i++) {
+                    var children = node.children;
+                    if (children == null) {
+                        node.children = children = new ConcurrentSkipListMap<>();
+                        if (parent != null)
+                            parent.nested++;
                     }
-                    break;
-                } else if (value != null) {
-                    parent.put(n, current = new HashMap<>());
-                    parent = (Map<String, Object>) current;
-                } else {
-                    break;
-                }
-            } else if (current instanceof Map) {
-                if (i == split.length - 1) {
-                    if (value == null) {
-                        ((Map<String, Object>) current).remove(null);
-                    } else {
-                        ((Map<String, Object>) current).put(null, value);
+                    var index = node.indexOf(path[i]);
+                    var child = children.get(index);
+                    if (child == null) {
+                        child = new Node();
+                        children.put(index, child);
+                        node.count(index, 1);
                     }
-                    break;
-                } else if (i == split.length - 2 && split[i + 1].equals("*")) {
-                    assert value == null;
-                    deleteFromHashMap(String
-                        .join(Variables.LIST_SEPARATOR, Arrays.copyOfRange(split, 0, i + 1)), (Map<String, Object>) current);
-                    var v = ((Map<String, Object>) current).get(null);
-                    if (v == null) {
-                        parent.remove(n);
-                    } else {
-                        parent.put(n, v);
-                    }
-                    break;
-                } else {
-                    parent = (Map<String, Object>) current;
+                    parent = node;
+                    node = child;
                 }
+                node.value = value;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void delete(String[] path) {
+        var list = isList(path);
+        var length = list ? path.length - 1 : path.length;
+        var nodes = new Node[length];
+        var indices = new Index[length];
+        var node = roots.get(path[0]);
+        for (var i = 0; node != null; i++) {
+            nodes[i] = node;
+            if (i == length - 1)
+                break;
+            indices[i + 1] = node.indexOf(path[i + 1]);
+            var children = node.children;
+            node = children == null ? null : children.get(indices[i + 1]);
+        }
+        if (node == null)
+            return;
+        if (list) {
+            if (node.children != null) {
+                node.clearChildren();
+                if (length > 1)
+                    nodes[length - 2].nested--;
+            }
+        } else {
+            node.value = null;
+        }
+        // Nodes that don't hold anything anymore are removed
+        for (var i = length - 1; i >= 0 && nodes[i].isEmpty(); i--) {
+            if (i == 0) {
+                roots.remove(path[0], nodes[0]);
             } else {
-                if (i == split.length - 1) {
-                    if (value == null) {
-                        parent.remove(n);
-                    } else {
-                        parent.put(n, value);
-                    }
-                    break;
-                } else if (value != null) {
-                    Map<String, Object> c = new HashMap<>();
-                    c.put(null, current);
-                    parent.put(n, c);
-                    parent = c;
-                } else {
-                    break;
+                var parent = nodes[i - 1];
+                var children = parent.children;
+                assert children != null;
+                children.remove(indices[i], nodes[i]);
+                parent.count(indices[i], -1);
+                if (children.isEmpty()) {
+                    parent.clearChildren();
+                    if (i > 1)
+                        nodes[i - 2].nested--;
                 }
             }
         }
     }
 
+    /**
+     * Finds the first index of a list that isn't used, starting from a given index. This takes constant time if the
+     * list is a {@linkplain Node#getSequenceSize() sequence}.
+     * @param path the parts of the name of the list, ending with {@code *}
+     * @param from the index to start from, which must be positive
+     * @return the first free index
+     */
+    public long getFreeIndex(String[] path, long from) {
+        assert isList(path) && from > 0;
+        var node = find(path, path.length - 1);
+        if (node == null)
+            return from;
+        var size = node.getSequenceSize();
+        if (size != -1)
+            return Math.max(from, size + 1);
+        while (node.getChild(String.valueOf(from)) != null)
+            from++;
+        return from;
+    }
+
+    /**
+     * Gets an element of a list from its position, if the list is a {@linkplain Node#getSequenceSize() sequence}.
+     * @param path the parts of the name of the list, ending with {@code *}
+     * @param position the position of the element, starting at 1. Negative positions start from the end.
+     * @return the element inside an array, an empty array if there is no element at this position, or {@code null}
+     *         if the list isn't a sequence
+     */
+    @Nullable
+    public Object[] getSequenceElement(String[] path, long position) {
+        assert isList(path);
+        var node = find(path, path.length - 1);
+        if (node == null)
+            return new Object[0];
+        var size = node.getSequenceSize();
+        if (size == -1)
+            return null;
+        if (position < 0)
+            position += size + 1;
+        if (position <= 0 || position > size)
+            return new Object[0];
+        var child = node.getChild(String.valueOf(position));
+        var value = child == null ? null : child.value;
+        return value == null ? new Object[0] : new Object[] {value};
+    }
+
+    /**
+     * Removes the first or the last element of a list, if the list is a {@linkplain Node#getSequenceSize() sequence}.
+     * When the first element is removed, the indices of all the other elements are shifted down by one, without
+     * having to move them.
+     * @param path the parts of the name of the list, ending with {@code *}
+     * @param first whether to remove the first element or the last one
+     * @return the removed element inside an array, an empty array if the list is empty, or {@code null} if the list
+     *         isn't a sequence, in which case it isn't changed
+     */
+    @Nullable
+    public Object[] pollSequence(String[] path, boolean first) {
+        assert isList(path);
+        var lock = getLock(path);
+        lock.lock();
+        try {
+            var node = find(path, path.length - 1);
+            if (node == null)
+                return new Object[0];
+            var size = node.getSequenceSize();
+            if (size == -1)
+                return null;
+            if (size == 0)
+                return new Object[0];
+            var index = String.valueOf(first ? 1 : size);
+            var child = node.getChild(index);
+            assert child != null;
+            var value = child.value;
+            assert value != null;
+            var elementPath = Arrays.copyOf(path, path.length);
+            elementPath[path.length - 1] = index;
+            delete(elementPath);
+            if (first && node.children != null)
+                node.offset++;
+            return new Object[] {value};
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Goes through all the variables guarded by the given lock, which should be held by the caller so that the
+     * variables don't change in the meantime. Lists are flattened : the action receives each of their elements, but
+     * not the lists themselves.
+     * @param stripe the index of the lock
+     * @param action the action to run on the parts of the name and the value of each variable
+     */
+    void forEach(int stripe, BiConsumer<String[], Object> action) {
+        var path = new ArrayList<String>();
+        for (var entry : roots.entrySet()) {
+            if (getStripe(entry.getKey()) != stripe)
+                continue;
+            path.add(entry.getKey());
+            forEach(entry.getValue(), path, action);
+            path.remove(path.size() - 1);
+        }
+    }
+
+    private static void forEach(Node node, List<String> path, BiConsumer<String[], Object> action) {
+        var value = node.value;
+        if (value != null)
+            action.accept(path.toArray(new String[0]), value);
+        var children = node.children;
+        if (children == null)
+            return;
+        var offset = node.offset;
+        for (var entry : children.entrySet()) {
+            path.add(node.nameOf(entry.getKey(), offset));
+            forEach(entry.getValue(), path, action);
+            path.remove(path.size() - 1);
+        }
+    }
+
+    /**
+     * Clears all the variables guarded by the given lock
+     * @param stripe the index of the lock
+     */
+    void clearStripe(int stripe) {
+        roots.keySet().removeIf(root -> getStripe(root) == stripe);
+    }
+
     /**
      * Clears all variables
      */
     public void clearVariables() {
-        map.clear();
+        roots.clear();
     }
 
-    @SuppressWarnings("unchecked")
-    private void deleteFromHashMap(String parent, Map<String, Object> current) {
-        for (var e : current.entrySet()) {
-            if (e.getKey() == null) {
-                continue;
+    private static class Node {
+        @Nullable
+        private volatile Object value;
+        @Nullable
+        private volatile ConcurrentNavigableMap<Index, Node> children;
+        /*
+         * Numerical indices are stored with this offset added to them, so that all of them can be shifted at once.
+         * It is only ever changed when the first element of a sequence is removed.
+         */
+        private volatile long offset = 0;
+        // The amount of children with a positive numerical index, and of all other children
+        private volatile int positive = 0;
+        private volatile int other = 0;
+        // The amount of children that have children themselves
+        private volatile int nested = 0;
+
+        private boolean isEmpty() {
+            var children = this.children;
+            return value == null && (children == null || children.isEmpty());
+        }
+
+        private Index indexOf(String name) {
+            var number = Index.parseNumber(name);
+            var offset = this.offset;
+            if (number == -1) {
+                return new Index(name, -1);
+            } else {
+                return new Index(offset == 0 ? name : null, number + offset);
+            }
+        }
+
+        private String nameOf(Index index, long offset) {
+            if (index.number == -1 || offset == 0 && index.name != null) {
+                assert index.name != null;
+                return index.name;
+            }
+            return String.valueOf(index.number - offset);
+        }
+
+        @Nullable
+        private Node getChild(String name) {
+            var children = this.children;
+            return children == null ? null : children.get(indexOf(name));
+        }
+
+        private void count(Index index, int change) {
+            if (index.number - offset > 0) {
+                positive += change;
+            } else {
+                other += change;
+            }
+        }
+
+        private void clearChildren() {
+            children = null;
+            offset = 0;
+            positive = 0;
+            other = 0;
+            nested = 0;
+        }
+
+        /**
+         * A list is a sequence if its indices are exactly 1 to its size, and if none of its elements are lists
+         * themselves. Changing a sequence through its list operators then doesn't require renumbering its elements.
+         * @return the size of the list if it's a sequence, or {@code -1} otherwise
+         */
+        private long getSequenceSize() {
+            var children = this.children;
+            if (children == null)
+                return 0;
+            if (other != 0 || nested != 0)
+                return -1;
+            var last = children.lastEntry();
+            if (last == null)
+                return 0;
+            var size = last.getKey().number - offset;
+            return size == positive ? size : -1;
+        }
+
+        /*
+         * Elements that are lists themselves are represented as maps, where the null key holds their own value
+         */
+        @Nullable
+        private Object asElement() {
+            var children = this.children;
+            return children == null || children.isEmpty() ? value : new ListView(this);
+        }
+    }
+
+    /**
+     * A list, as a map from indices to the elements of the list. If the list also has a value of its own, it is
+     * mapped to the {@code null} key, which comes first. An iteration over the list stops at the last index the list
+     * had when the iteration started.
+     */
+    private static class ListView extends AbstractMap<String, Object> {
+        private final Node node;
+
+        private ListView(Node node) {
+            this.node = node;
+        }
+
+        @Override
+        @Nullable
+        public Object get(@Nullable Object key) {
+            if (key == null)
+                return node.value;
+            if (!(key instanceof String))
+                return null;
+            var child = node.getChild((String) key);
+            return child == null ? null : child.asElement();
+        }
+
+        @Override
+        public boolean containsKey(@Nullable Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return !new ListIterator(node).hasNext();
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    return new ListIterator(node);
+                }
+
+                @Override
+                public int size() {
+                    var size = 0;
+                    for (var iterator = iterator(); iterator.hasNext(); iterator.next())
+                        size++;
+                    return size;
+                }
+            };
+        }
+    }
+
+    private static class ListIterator implements Iterator<Map.Entry<String, Object>> {
+        private final Node node;
+        @Nullable
+        private Object ownValue;
+        @Nullable
+        private final Iterator<Map.Entry<Index, Node>> children;
+        @Nullable
+        private Map.Entry<String, Object> next;
+
+        private ListIterator(Node node) {
+            this.node = node;
+            ownValue = node.value;
+            var children = node.children;
+            var last = children == null ? null : children.lastEntry();
+            // Elements added after the last one once the iteration started aren't iterated over
+            this.children = last == null ? null : children.headMap(last.getKey(), true).entrySet().iterator();
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next != null)
+                return true;
+            if (ownValue != null) {
+                next = new AbstractMap.SimpleImmutableEntry<>(null, ownValue);
+                ownValue = null;
+                return true;
             }
-            map.remove(parent + Variables.LIST_SEPARATOR + e.getKey());
-            var val = e.getValue();
-            if (val instanceof Map) {
-                deleteFromHashMap(parent + Variables.LIST_SEPARATOR + e.getKey(), (Map<String, Object>) val);
+            while (children != null && children.hasNext()) {
+                var child = children.next();
+                var element = child.getValue().asElement();
+                if (element != null) {
+                    next = new AbstractMap.SimpleImmutableEntry<>(node.nameOf(child.getKey(), node.offset), element);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public Map.Entry<String, Object> next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            var n = next;
+            next = null;
+            return n;
+        }
+    }
+
+    /**
+     * The index of an element inside of a list. Indices are sorted so that numerical indices come first, in
+     * numerical order.
+     */
+    private static class Index implements Comparable<Index> {
+        private static final int MAX_NUMBER_LENGTH = 18;
+
+        // null if the index is a number that isn't written the same way anymore
+        @Nullable
+        private final String name;
+        // -1 if the index isn't a number
+        private final long number;
+
+        private Index(@Nullable String name, long number) {
+            this.name = name;
+            this.number = number;
+        }
+
+        private static long parseNumber(String name) {
+            var length = name.length();
+            if (length == 0 || length > MAX_NUMBER_LENGTH || length > 1 && name.charAt(0) == '0')
+                return -1;
+            var number = 0L;
+            for (var i = 0; i < length; i++) {
+                var c = name.charAt(i);
+                if (c < '0' || c > '9')
+                    return -1;
+                number = number * 10 + c - '0';
+            }
+            return number;
+        }
+
+        @Override
+        public int compareTo(Index o) {
+            if (number != -1 && o.number != -1) {
+                return Long.compare(number, o.number);
+            } else if (number != -1 || o.number != -1) {
+                return number != -1 ? -1 : 1;
+            } else {
+                assert name != null && o.name != null;
+                return name.compareTo(o.name);
             }
         }
     }
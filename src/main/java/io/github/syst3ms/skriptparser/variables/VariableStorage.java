@@ -0,0 +1,57 @@
+package io.github.syst3ms.skriptparser.variables;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A place where global variables are saved, so that they survive restarts. A storage is installed using
+ * {@link Variables#setStorage(VariableStorage)}, which first {@linkplain #load() loads} the variables it saved
+ * previously, and then notifies it of every change made to a global variable.
+ *
+ * Changes are reported while the variable that changed is locked, in the order they happened, so a storage should
+ * record them without blocking, and save them in the background.
+ * @see FileVariableStorage
+ */
+public interface VariableStorage extends Closeable {
+    /**
+     * Restores the variables that were saved. This is called once, before the storage is installed, so it can use
+     * {@link Variables#setVariable(String[], Object, io.github.syst3ms.skriptparser.lang.TriggerContext, boolean)}
+     * without being notified of the variables it restores. {@link FileVariableStorage} writes to the map of global
+     * variables directly instead, which doesn't notify {@linkplain Variables#addChangeListener(java.util.function.Consumer) change listeners}.
+     * @throws IOException if the variables couldn't be read
+     */
+    void load() throws IOException;
+
+    /**
+     * Called after a global variable was set or deleted
+     * @param path the parts of the name of the variable, which may be a list ending with {@code *} if it was deleted
+     * @param value the new value of the variable, or {@code null} if it was deleted
+     * @throws java.io.UncheckedIOException if changes can't be saved anymore. The variable was changed in memory
+     *                                      nonetheless.
+     */
+    void variableChanged(String[] path, @Nullable Object value);
+
+    /**
+     * Called after the first or last element of a global list was removed through
+     * {@link Variables#pollList(String[], boolean, io.github.syst3ms.skriptparser.lang.TriggerContext, boolean)},
+     * which shifted the indices of the other elements if it was the first one
+     * @param path the parts of the name of the list, ending with {@code *}
+     * @param first whether the first element was removed, or the last one
+     */
+    void listPolled(String[] path, boolean first);
+
+    /**
+     * Called after all global variables were {@linkplain Variables#clearVariables() cleared}
+     */
+    void variablesCleared();
+
+    /**
+     * Saves everything that was reported so far, and releases the resources of this storage. It won't be notified
+     * of any change afterwards.
+     * @throws IOException if some changes couldn't be saved
+     */
+    @Override
+    void close() throws IOException;
+}
@@ -7,11 +7,20 @@ import io.github.syst3ms.skriptparser.lang.VariableString;
 import io.github.syst3ms.skriptparser.log.ErrorType;
 import io.github.syst3ms.skriptparser.log.SkriptLogger;
 import io.github.syst3ms.skriptparser.parsing.ParserState;
+import io.github.syst3ms.skriptparser.util.Pair;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.HashMap;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.regex.Pattern;
 
 /**
@@ -21,9 +30,23 @@ public class Variables {
     public static final String LIST_SEPARATOR = "::";
     public static final String LOCAL_VARIABLE_TOKEN = "_";
     public static final Pattern REGEX_PATTERN = Pattern.compile("\\{([^{}]|%\\{|}%)+}");
-    private static final VariableMap variableMap = new VariableMap();
-    // Yes, I know it should be trigger-specific, but I haven't got to that part yet, ok ? TODO make the change
-    private static final Map<TriggerContext, VariableMap> localVariables = new HashMap<>();
+    private static final int LOCK_STRIPES = 64;
+    private static final VariableMap variableMap = new VariableMap(LOCK_STRIPES);
+    /*
+     * Local variables belong to the context they were set with. A context can outlive the call to Statement#runAll
+     * that created it (for example when waiting), so frames are only discarded once their context isn't used anymore.
+     */
+    private static final Map<TriggerContext, LocalFrame> localFrames = Collections.synchronizedMap(new WeakHashMap<>());
+    // Most accesses are for the same context as the previous one on the same thread
+    private static final ThreadLocal<CachedFrame> lastFrame = ThreadLocal.withInitial(CachedFrame::new);
+    private static final Map<String, Integer> localSlots = new ConcurrentHashMap<>();
+    private static final AtomicInteger slotCount = new AtomicInteger();
+    @Nullable
+    private static volatile VariableStorage storage;
+    private static volatile List<Pair<Pattern, DiskVariableStore>> stores = Collections.emptyList();
+    private static final List<Consumer<String[]>> changeListeners = new CopyOnWriteArrayList<>();
+    // Changes made while changeAtomically holds a lock are only notified once it's released
+    private static final ThreadLocal<PendingChanges> pendingChanges = ThreadLocal.withInitial(PendingChanges::new);
 
     public static <T> Optional<? extends Expression<T>> parseVariable(String s, Class<? extends T> types, ParserState parserState, SkriptLogger logger) {
         s = s.strip();
@@ -83,13 +106,25 @@ public class Variables {
 	 * @return an Object for a normal Variable or a Map<String, Object> for a list variable, or null if the variable is not set.
 	 */
     public static Optional<Object> getVariable(String name, TriggerContext e, boolean local) {
+        return getVariable(splitPath(name), e, local);
+    }
+
+    /**
+     * Same as {@link #getVariable(String, TriggerContext, boolean)}, with a name that was already
+     * {@linkplain #splitPath(String) split}
+     * @param path the parts of the name of the variable
+     * @return an Object for a normal Variable or a Map<String, Object> for a list variable, or null if the variable is not set.
+     */
+    public static Optional<Object> getVariable(String[] path, TriggerContext e, boolean local) {
         if (local) {
-            var map = localVariables.get(e);
-            if (map == null)
+            var frame = getFrame(e, false);
+            if (frame == null)
                 return Optional.empty();
-            return map.getVariable(name);
+            var slot = path.length == 1 ? localSlots.get(path[0]) : null;
+            return slot != null ? frame.get(slot) : frame.getVariable(path);
         } else {
-            return variableMap.getVariable(name);
+            var store = getStore(path);
+            return store != null ? store.getVariable(path) : variableMap.getVariable(path);
         }
     }
 
@@ -100,21 +135,347 @@ public class Variables {
 	 * @param value The variable's value. Use <tt>null</tt> to delete the variable.
 	 */
     public static void setVariable(String name, @Nullable Object value, @Nullable TriggerContext e, boolean local) {
+        setVariable(splitPath(name), value, e, local);
+    }
+
+    /**
+     * Same as {@link #setVariable(String, Object, TriggerContext, boolean)}, with a name that was already
+     * {@linkplain #splitPath(String) split}
+     * @param path the parts of the name of the variable
+     * @param value the variable's value. Use {@code null} to delete the variable.
+     */
+    public static void setVariable(String[] path, @Nullable Object value, @Nullable TriggerContext e, boolean local) {
+        if (local) {
+            assert e != null : String.join(LIST_SEPARATOR, path);
+            var frame = getFrame(e, true);
+            assert frame != null;
+            var slot = path.length == 1 ? localSlots.get(path[0]) : null;
+            if (slot != null) {
+                frame.set(slot, value);
+            } else {
+                frame.setVariable(path, value);
+            }
+        } else {
+            var store = getStore(path);
+            var storage = Variables.storage;
+            if (store != null) {
+                store.setVariable(path, value);
+            } else if (storage == null) {
+                variableMap.setVariable(path, value);
+            } else {
+                // The storage must see the changes to a variable in the same order they were made
+                var lock = variableMap.getLock(path);
+                lock.lock();
+                try {
+                    variableMap.setVariable(path, value);
+                    storage.variableChanged(path, value);
+                } finally {
+                    lock.unlock();
+                }
+            }
+            notifyChange(path);
+        }
+    }
+
+    /**
+     * Finds the first index of a list that isn't used, starting from a given index
+     * @param path the parts of the name of the list, ending with {@code *}
+     * @param from the index to start from, which must be positive
+     * @param e the context
+     * @param local whether the list is local
+     * @return the first free index
+     */
+    public static long getFreeIndex(String[] path, long from, TriggerContext e, boolean local) {
+        var store = local ? null : getStore(path);
+        if (store != null)
+            return store.getFreeIndex(path, from);
+        var map = local ? getLocalMap(e) : variableMap;
+        return map == null ? from : map.getFreeIndex(path, from);
+    }
+
+    /**
+     * Gets an element of a list from its position, without going through all of its elements. This only works for
+     * lists whose indices are exactly 1 to their size, and whose elements aren't lists themselves.
+     * @param path the parts of the name of the list, ending with {@code *}
+     * @param position the position of the element, starting at 1. Negative positions start from the end.
+     * @param e the context
+     * @param local whether the list is local
+     * @return the element inside an array, an empty array if there is no element at this position, or {@code null}
+     *         if the list doesn't have the required shape or is kept in a {@link DiskVariableStore}
+     */
+    @Nullable
+    public static Object[] getListElement(String[] path, long position, TriggerContext e, boolean local) {
+        if (!local && getStore(path) != null)
+            return null;
+        var map = local ? getLocalMap(e) : variableMap;
+        return map == null ? new Object[0] : map.getSequenceElement(path, position);
+    }
+
+    /**
+     * Removes the first or the last element of a list, renumbering the other elements, without going through all of
+     * them. This only works for lists whose indices are exactly 1 to their size, and whose elements aren't lists
+     * themselves.
+     * @param path the parts of the name of the list, ending with {@code *}
+     * @param first whether to remove the first element or the last one
+     * @param e the context
+     * @param local whether the list is local
+     * @return the removed element inside an array, an empty array if the list is empty, or {@code null} if the list
+     *         doesn't have the required shape or is kept in a {@link DiskVariableStore}, in which case it isn't
+     *         changed
+     */
+    @Nullable
+    public static Object[] pollList(String[] path, boolean first, @Nullable TriggerContext e, boolean local) {
         if (local) {
-            assert e != null : name;
-            var map = localVariables.get(e);
-            if (map == null)
-                localVariables.put(e, map = new VariableMap());
-            map.setVariable(name, value);
+            assert e != null : String.join(LIST_SEPARATOR, path);
+            var map = getLocalMap(e);
+            return map == null ? new Object[0] : map.pollSequence(path, first);
+        }
+        if (getStore(path) != null)
+            return null;
+        var storage = Variables.storage;
+        Object[] element;
+        if (storage == null) {
+            element = variableMap.pollSequence(path, first);
         } else {
-            variableMap.setVariable(name, value);
+            var lock = variableMap.getLock(path);
+            lock.lock();
+            try {
+                element = variableMap.pollSequence(path, first);
+                if (element != null && element.length > 0)
+                    storage.listPolled(path, first);
+            } finally {
+                lock.unlock();
+            }
+        }
+        if (element != null && element.length > 0)
+            notifyChange(path);
+        return element;
+    }
+
+    @Nullable
+    private static VariableMap getLocalMap(TriggerContext e) {
+        var frame = getFrame(e, false);
+        return frame == null ? null : frame.getMap();
+    }
+
+    /**
+     * Splits the name of a variable into the parts separated by {@link #LIST_SEPARATOR}. Variables whose name is
+     * known in advance can be accessed using these parts, so that the name doesn't have to be split every time.
+     * @param name the name of the variable
+     * @return the parts of the name
+     */
+    public static String[] splitPath(String name) {
+        return VariableMap.splitPath(name);
+    }
+
+    /**
+     * Runs an action that reads and changes a variable, without other threads being able to change that variable
+     * or the list of the same name in the meantime. Local variables are never shared between threads, so they
+     * aren't locked at all. {@linkplain #addChangeListener(Consumer) Change listeners} are notified of the changes
+     * made by the action once it's done and the variable is unlocked.
+     * @param path the {@linkplain #splitPath(String) parts} of the name of the variable
+     * @param local whether the variable is local
+     * @param action the action
+     */
+    public static void changeAtomically(String[] path, boolean local, Runnable action) {
+        if (local) {
+            action.run();
+            return;
+        }
+        var pending = pendingChanges.get();
+        var lock = variableMap.getLock(path);
+        pending.depth++;
+        lock.lock();
+        try {
+            action.run();
+        } finally {
+            lock.unlock();
+            if (--pending.depth == 0 && !pending.paths.isEmpty()) {
+                var paths = new ArrayList<>(pending.paths);
+                pending.paths.clear();
+                for (var changed : paths)
+                    notifyChange(changed);
+            }
         }
     }
 
+    /**
+     * Assigns a slot to the name of a local variable, so that it can be accessed without going through its name
+     * every time. Only variables that aren't part of a list can have a slot.
+     * @param name the name of the local variable, without the {@linkplain #LOCAL_VARIABLE_TOKEN local token}
+     * @return the slot of that variable, or {@code -1} if it can't have one
+     * @see #getLocalVariable(int, TriggerContext)
+     * @see #setLocalVariable(int, Object, TriggerContext)
+     */
+    public static int getLocalSlot(String name) {
+        if (name.contains(LIST_SEPARATOR) || name.endsWith("*"))
+            return -1;
+        return localSlots.computeIfAbsent(name, n -> slotCount.getAndIncrement());
+    }
+
+    /**
+     * Returns the value of a local variable from its {@linkplain #getLocalSlot(String) slot}
+     * @param slot the slot of the variable
+     * @param e the context
+     * @return the value of the variable, or an empty {@link Optional} if it isn't set
+     */
+    public static Optional<Object> getLocalVariable(int slot, TriggerContext e) {
+        var frame = getFrame(e, false);
+        return frame == null ? Optional.empty() : frame.get(slot);
+    }
+
+    /**
+     * Sets a local variable from its {@linkplain #getLocalSlot(String) slot}
+     * @param slot the slot of the variable
+     * @param value the value of the variable. Use {@code null} to delete the variable.
+     * @param e the context
+     */
+    public static void setLocalVariable(int slot, @Nullable Object value, TriggerContext e) {
+        var frame = getFrame(e, true);
+        assert frame != null;
+        frame.set(slot, value);
+    }
+
+    @Nullable
+    private static LocalFrame getFrame(TriggerContext e, boolean create) {
+        var cached = lastFrame.get();
+        if (cached.context == e)
+            return cached.frame;
+        var frame = create ? localFrames.computeIfAbsent(e, c -> new LocalFrame()) : localFrames.get(e);
+        if (frame != null) {
+            cached.context = e;
+            cached.frame = frame;
+        }
+        return frame;
+    }
+
     /**
      * Clears all variables.
      */
     public static void clearVariables() {
-        variableMap.clearVariables();
+        for (var store : stores)
+            store.getSecond().clear();
+        var storage = Variables.storage;
+        if (storage == null) {
+            variableMap.clearVariables();
+        } else {
+            var stripes = variableMap.getStripeCount();
+            for (var i = 0; i < stripes; i++)
+                variableMap.getLock(i).lock();
+            try {
+                variableMap.clearVariables();
+                storage.variablesCleared();
+            } finally {
+                for (var i = stripes - 1; i >= 0; i--)
+                    variableMap.getLock(i).unlock();
+            }
+        }
+        notifyChange(new String[] {"*"});
+    }
+
+    /**
+     * Adds a listener notified after a global variable changed, from the thread that changed it and once the
+     * variable isn't locked anymore : the changes made by an action passed to
+     * {@link #changeAtomically(String[], boolean, Runnable)} are notified once the action is done. It receives the parts of the name of the variable, which is a list ending with
+     * {@code *} if the whole list was deleted or its elements were renumbered, or just {@code *} if all variables
+     * were {@linkplain #clearVariables() cleared}. Listeners should be quick, as they delay the code that
+     * changed the variable.
+     * @param listener the listener
+     */
+    public static void addChangeListener(Consumer<String[]> listener) {
+        changeListeners.add(listener);
+    }
+
+    /**
+     * @param listener a listener previously {@linkplain #addChangeListener(Consumer) added}
+     */
+    public static void removeChangeListener(Consumer<String[]> listener) {
+        changeListeners.remove(listener);
+    }
+
+    private static void notifyChange(String[] path) {
+        if (changeListeners.isEmpty())
+            return;
+        var pending = pendingChanges.get();
+        if (pending.depth > 0) {
+            pending.paths.add(path);
+            return;
+        }
+        for (var listener : changeListeners)
+            listener.accept(path);
+    }
+
+    /**
+     * Sets where global variables are saved. The variables saved in the new storage are loaded on top of the
+     * current ones, and every change to a global variable is then reported to it. The previous storage, if any, is
+     * closed.
+     * @param storage the new storage, or {@code null} if global variables shouldn't be saved anymore
+     * @throws IOException if the previous storage couldn't be closed, or the new one couldn't be loaded
+     */
+    public static synchronized void setStorage(@Nullable VariableStorage storage) throws IOException {
+        var previous = Variables.storage;
+        Variables.storage = null;
+        if (previous != null)
+            previous.close();
+        if (storage != null) {
+            storage.load();
+            Variables.storage = storage;
+        }
+    }
+
+    /**
+     * Keeps some global variables in a {@link DiskVariableStore} instead of memory. Variables already set in memory
+     * under these names are hidden until the store is {@linkplain #removeStore(DiskVariableStore) removed}.
+     * @param names the names of the variables to keep in the store. This is matched against the part of the name
+     *              of a variable before the first {@linkplain #LIST_SEPARATOR list separator}, so that the elements
+     *              of a list are all kept in the same place.
+     * @param store the store
+     */
+    public static synchronized void addStore(Pattern names, DiskVariableStore store) {
+        var stores = new ArrayList<>(Variables.stores);
+        stores.add(new Pair<>(names, store));
+        Variables.stores = stores;
+    }
+
+    /**
+     * Stops keeping variables in a {@link DiskVariableStore}. The store isn't closed.
+     * @param store the store
+     */
+    public static synchronized void removeStore(DiskVariableStore store) {
+        var stores = new ArrayList<>(Variables.stores);
+        stores.removeIf(p -> p.getSecond() == store);
+        Variables.stores = stores;
+    }
+
+    @Nullable
+    private static DiskVariableStore getStore(String[] path) {
+        var stores = Variables.stores;
+        if (stores.isEmpty())
+            return null;
+        for (var store : stores) {
+            if (store.getFirst().matcher(path[0]).matches())
+                return store.getSecond();
+        }
+        return null;
+    }
+
+    /**
+     * @return the map holding all global variables
+     */
+    static VariableMap getGlobalMap() {
+        return variableMap;
+    }
+
+    private static class CachedFrame {
+        @Nullable
+        private TriggerContext context;
+        @Nullable
+        private LocalFrame frame;
+    }
+
+    private static class PendingChanges {
+        // How many calls to changeAtomically are running on this thread
+        private int depth;
+        private final List<String[]> paths = new ArrayList<>();
     }
 }
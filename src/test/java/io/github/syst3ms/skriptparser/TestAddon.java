@@ -3,16 +3,22 @@ package io.github.syst3ms.skriptparser;
 import io.github.syst3ms.skriptparser.lang.SkriptEvent;
 import io.github.syst3ms.skriptparser.lang.Statement;
 import io.github.syst3ms.skriptparser.lang.Trigger;
-import io.github.syst3ms.skriptparser.registration.SkriptAddon;
 import io.github.syst3ms.skriptparser.syntax.EvtTest;
 import io.github.syst3ms.skriptparser.syntax.TestContext;
 
 import java.util.ArrayList;
 import java.util.List;
 
-public class TestAddon extends SkriptAddon {
+/**
+ * Runs the test triggers, and handles Skript's own events like Skript does
+ */
+public class TestAddon extends Skript {
     private final List<Trigger> testTriggers = new ArrayList<>();
 
+    public TestAddon() {
+        super(new String[0]);
+    }
+
     @Override
     public void handleTrigger(Trigger trigger) {
         SkriptEvent event = trigger.getEvent();
@@ -22,11 +28,20 @@ public class TestAddon extends SkriptAddon {
 
         if (event instanceof EvtTest) {
             testTriggers.add(trigger);
+        } else {
+            super.handleTrigger(trigger);
         }
     }
 
+    @Override
+    public void unloadTrigger(Trigger trigger) {
+        super.unloadTrigger(trigger);
+        testTriggers.remove(trigger);
+    }
+
     @Override
     public void finishedLoading() {
+        super.finishedLoading();
         for (Trigger trigger : testTriggers) {
             Statement.runAll(trigger, new TestContext());
         }
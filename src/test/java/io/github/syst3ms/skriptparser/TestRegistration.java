@@ -26,6 +26,7 @@ public class TestRegistration {
 				Path.of("build/classes/java/main"),
 				"io.github.syst3ms.skriptparser",
 				"effects",
+				"event",
 				"expressions",
 				"lang",
 				"sections",
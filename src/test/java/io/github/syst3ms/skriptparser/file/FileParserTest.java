@@ -101,6 +101,14 @@ public class FileParserTest {
             Collections.singletonList(simpleFileLine("code # not comment", 0, 1)),
             parseLines(parser, Collections.singletonList("code ## not comment"))
         );
+        assertEquals(
+            Collections.singletonList(simpleFileLine("code #", 0, 1)),
+            parseLines(parser, Collections.singletonList("code ### comment"))
+        );
+        assertEquals(
+            Collections.singletonList(new VoidElement("unit-tests", 1, 0)),
+            parseLines(parser, Collections.singletonList("\t## # comment"))
+        );
     }
 
     @Test
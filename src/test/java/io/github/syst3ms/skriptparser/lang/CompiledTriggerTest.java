@@ -0,0 +1,104 @@
+package io.github.syst3ms.skriptparser.lang;
+
+import io.github.syst3ms.skriptparser.TestRegistration;
+import io.github.syst3ms.skriptparser.log.LogType;
+import io.github.syst3ms.skriptparser.parsing.ScriptLoader;
+import io.github.syst3ms.skriptparser.syntax.TestContext;
+import io.github.syst3ms.skriptparser.variables.Variables;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class CompiledTriggerTest {
+    static {
+        TestRegistration.register();
+    }
+
+    private static final int RUNS = 30;
+    private static final String SCRIPT = String.join("\n",
+            "test:",
+            "\tadd 1 to {runs}",
+            "\tset {_run} to {runs}",
+            "\tset {_total} to 0",
+            "\tset {_i} to 0",
+            "\twhile {_i} < 6:",
+            "\t\tadd 1 to {_i}",
+            "\t\tif {_i} is divisible by 2:",
+            "\t\t\tadd 1 to {_total}",
+            "\t\telse:",
+            "\t\t\tadd {_i} to {_total}",
+            "\tloop 3 times:",
+            "\t\tif {_run} is divisible by 3:",
+            "\t\t\tadd loop-value to {_total}",
+            "\t\telse if {_run} is divisible by 2:",
+            "\t\t\tadd 10 to {_total}",
+            "\t\telse:",
+            "\t\t\tremove 1 from {_total}",
+            "\tset {result::%{_run}%} to {_total}",
+            "\twait 1 millisecond",
+            "\tif {_run} is divisible by 5:",
+            "\t\tadd 100 to {_total}",
+            "\tset {resumed::%{_run}%} to {_total}",
+            ""
+    );
+
+    @Test
+    public void testFlatMatchesTree() throws Exception {
+        var walked = runScript("walked", false);
+        var flat = runScript("flat", true);
+        assertEquals("1: 9, 9", walked.get(0));
+        assertEquals("5: 9, 109", walked.get(4));
+        assertEquals("6: 18, 18", walked.get(5));
+        assertEquals(walked, flat);
+    }
+
+    /*
+     * Runs the test script RUNS times and returns what each run computed, before and after waiting. The trigger is
+     * either run from its instruction array, or by walking its statements one after the other. Execution resumes
+     * from the instruction array after the wait either way.
+     */
+    private List<String> runScript(String name, boolean flat) throws Exception {
+        Variables.clearVariables();
+        var file = Files.createTempDirectory("skript").resolve(name + ".txt");
+        Files.writeString(file, SCRIPT);
+        var logs = ScriptLoader.loadScript(file, false);
+        logs.removeIf(log -> log.getType() != LogType.ERROR);
+        assertTrue(logs.toString(), logs.isEmpty());
+        var trigger = ScriptLoader.getTriggerMap().get(name).get(0);
+        assertNotNull(trigger.getProgram());
+        try {
+            for (var i = 0; i < RUNS; i++) {
+                if (flat) {
+                    assertTrue(Statement.runAll(trigger, new TestContext()));
+                } else {
+                    var ctx = new TestContext();
+                    Statement item = trigger;
+                    while (item != null)
+                        item = item.proceed(ctx);
+                }
+            }
+
+            List<String> results = new ArrayList<>();
+            var deadline = System.currentTimeMillis() + 10_000;
+            for (var i = 1; i <= RUNS; i++) {
+                var result = Variables.getVariable("result::" + i, null, false).orElse(null);
+                var resumed = Variables.getVariable("resumed::" + i, null, false);
+                while (resumed.isEmpty() && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(10);
+                    resumed = Variables.getVariable("resumed::" + i, null, false);
+                }
+                results.add(i + ": " + result + ", " + resumed.orElse(null));
+            }
+            return results;
+        } finally {
+            ScriptLoader.unloadScript(name);
+            Variables.clearVariables();
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package io.github.syst3ms.skriptparser.lang;
+
+import io.github.syst3ms.skriptparser.TestRegistration;
+import io.github.syst3ms.skriptparser.parsing.ParseContext;
+import io.github.syst3ms.skriptparser.sections.SecLoop;
+import io.github.syst3ms.skriptparser.syntax.TestContext;
+import org.jetbrains.annotations.Nullable;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class StatementTest {
+    static {
+        TestRegistration.register();
+    }
+
+    @Test
+    public void testWalkCallingSuper() {
+        List<String> ran = new ArrayList<>();
+        var first = new Walking("first", ran);
+        var second = new Walking("second", ran);
+        first.setNext(second);
+
+        assertTrue(Statement.runAll(first, new TestContext()));
+        assertEquals(List.of("walk first", "first", "walk second", "second"), ran);
+
+        ran.clear();
+        assertSame(second, first.walk(new TestContext()).orElse(null));
+        assertSame(second, first.step(new TestContext()));
+        assertEquals(List.of("walk first", "first", "walk first", "first"), ran);
+    }
+
+    /*
+     * Calling super.walk from a subclass of a built-in section used to skip the section's step and fail
+     */
+    @Test
+    public void testWalkOnBuiltInSection() {
+        List<String> ran = new ArrayList<>();
+        var loop = new WalkingLoop(ran);
+        loop.init(new Expression[] {new SimpleLiteral<>(String.class, "a", "b")}, 1, null);
+        loop.setBody(new Walking("body", ran));
+        loop.setNext(new Walking("after", ran));
+
+        assertTrue(Statement.runAll(loop, new TestContext()));
+        assertEquals(
+                List.of("walk loop", "walk body", "body", "walk loop", "walk body", "body", "walk loop", "walk after", "after"),
+                ran
+        );
+
+        ran.clear();
+        assertSame(loop, Statement.runStep(loop, new TestContext()));
+        assertSame(loop, loop.walk(new TestContext()).orElse(null));
+        assertEquals(List.of("walk loop", "walk body", "body", "walk loop", "walk body", "body"), ran);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testSectionWithoutStep() {
+        new CodeSection() {
+            @Override
+            public boolean init(Expression<?>[] expressions, int matchedPattern, ParseContext parseContext) {
+                return true;
+            }
+
+            @Override
+            public String toString(@Nullable TriggerContext ctx, boolean debug) {
+                return "broken section";
+            }
+        };
+    }
+
+    private static class Walking extends Effect {
+        private final String name;
+        private final List<String> ran;
+
+        Walking(String name, List<String> ran) {
+            this.name = name;
+            this.ran = ran;
+        }
+
+        @Override
+        public Optional<? extends Statement> walk(TriggerContext ctx) {
+            ran.add("walk " + name);
+            return super.walk(ctx);
+        }
+
+        @Override
+        protected void execute(TriggerContext ctx) {
+            ran.add(name);
+        }
+
+        @Override
+        public boolean init(Expression<?>[] expressions, int matchedPattern, ParseContext parseContext) {
+            return true;
+        }
+
+        @Override
+        public String toString(@Nullable TriggerContext ctx, boolean debug) {
+            return name;
+        }
+    }
+
+    private static class WalkingLoop extends SecLoop {
+        private final List<String> ran;
+
+        WalkingLoop(List<String> ran) {
+            this.ran = ran;
+        }
+
+        // Like loadSection does, the contents of the loop don't lead back to it
+        void setBody(Statement body) {
+            items = List.of(body);
+            first = body;
+            last = body;
+        }
+
+        @Override
+        public Optional<? extends Statement> walk(TriggerContext ctx) {
+            ran.add("walk loop");
+            return super.walk(ctx);
+        }
+    }
+}
@@ -0,0 +1,345 @@
+package io.github.syst3ms.skriptparser.parsing;
+
+import io.github.syst3ms.skriptparser.TestRegistration;
+import io.github.syst3ms.skriptparser.lang.CodeSection;
+import io.github.syst3ms.skriptparser.lang.Statement;
+import io.github.syst3ms.skriptparser.log.LogEntry;
+import io.github.syst3ms.skriptparser.log.LogType;
+import io.github.syst3ms.skriptparser.registration.SkriptAddon;
+import io.github.syst3ms.skriptparser.variables.Variables;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static io.github.syst3ms.skriptparser.lang.TriggerContext.DUMMY;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ScriptLoaderTest {
+    static {
+        TestRegistration.register();
+    }
+
+    private static final long PERIOD = 100;
+    private static final Pattern CACHE_STATISTICS = Pattern.compile("Script cache: (\\d+) results read, (\\d+) results total");
+
+    /*
+     * Reloaded periodical triggers used to never run again, as they were only started when loading first finished
+     */
+    @Test
+    public void testReloadPeriodical() throws Exception {
+        var file = Files.createTempDirectory("skript").resolve("periodical.txt");
+        Files.writeString(file, String.join("\n",
+                "every " + PERIOD + " milliseconds:",
+                "\tadd 1 to {periodical runs}",
+                ""
+        ));
+        assertNoErrors(ScriptLoader.loadScript(file, false));
+        try {
+            SkriptAddon.getAddons().forEach(SkriptAddon::finishedLoading);
+            awaitUntil(() -> getCount("periodical runs") > 0);
+
+            Files.writeString(file, String.join("\n",
+                    "every " + PERIOD + " milliseconds:",
+                    "\tadd 1 to {periodical runs}",
+                    "\tset {periodical reloaded} to true",
+                    ""
+            ));
+            assertNoErrors(ScriptLoader.reloadScript(file, false));
+            awaitUntil(() -> Variables.getVariable("periodical reloaded", DUMMY, false).isPresent());
+            assertRunsOncePerPeriod("periodical runs");
+        } finally {
+            ScriptLoader.unloadScript("periodical");
+        }
+        // Unloading stops the trigger
+        Thread.sleep(PERIOD);
+        var count = getCount("periodical runs");
+        Thread.sleep(3 * PERIOD);
+        assertEquals(count, getCount("periodical runs"));
+        Variables.setVariable("periodical runs", null, null, false);
+        Variables.setVariable("periodical reloaded", null, null, false);
+    }
+
+    @Test
+    public void testIncrementalReload() throws Exception {
+        var file = Files.createTempDirectory("skript").resolve("incremental.txt");
+        Files.writeString(file, String.join("\n",
+                "every 1 hour:",
+                "\tset {incremental kept} to true",
+                "when {incremental flag} is set:",
+                "\tset {incremental when} to 1",
+                "every " + PERIOD + " milliseconds:",
+                "\tadd 1 to {incremental removed}",
+                ""
+        ));
+        assertNoErrors(ScriptLoader.loadScript(file, false));
+        try {
+            SkriptAddon.getAddons().forEach(SkriptAddon::finishedLoading);
+            var before = List.copyOf(ScriptLoader.getTriggerMap().get("incremental"));
+            awaitUntil(() -> getCount("incremental removed") > 0);
+
+            // The first trigger only moved, the second changed, the third was replaced by a new one
+            Files.writeString(file, String.join("\n",
+                    "",
+                    "every 1 hour:",
+                    "\tset {incremental kept} to true",
+                    "",
+                    "when {incremental flag} is set:",
+                    "\tset {incremental when} to 2",
+                    "every 2 hours:",
+                    "\tset {incremental added} to true",
+                    ""
+            ));
+            assertNoErrors(ScriptLoader.reloadScript(file, false));
+            var after = ScriptLoader.getTriggerMap().get("incremental");
+            assertEquals(3, after.size());
+            assertSame(before.get(0), after.get(0));
+            assertNotSame(before.get(1), after.get(1));
+            assertFalse(after.contains(before.get(2)));
+            assertFalse(before.contains(after.get(2)));
+
+            // The removed trigger stopped, and the changed one replaced the old one
+            Thread.sleep(PERIOD);
+            var count = getCount("incremental removed");
+            Thread.sleep(3 * PERIOD);
+            assertEquals(count, getCount("incremental removed"));
+            Variables.setVariable("incremental flag", true, null, false);
+            awaitUntil(() -> Variables.getVariable("incremental when", DUMMY, false).isPresent());
+            Thread.sleep(3 * PERIOD);
+            assertEquals(2L, getCount("incremental when"));
+        } finally {
+            ScriptLoader.unloadScript("incremental");
+            Variables.setVariable("incremental flag", null, null, false);
+            Variables.setVariable("incremental when", null, null, false);
+            Variables.setVariable("incremental removed", null, null, false);
+        }
+    }
+
+    /*
+     * Other triggers may depend on those with a loading priority, so the whole script is loaded again when they change
+     */
+    @Test
+    public void testReloadWithPriority() throws Exception {
+        var file = Files.createTempDirectory("skript").resolve("prioritized.txt");
+        Files.writeString(file, String.join("\n",
+                "prioritized test:",
+                "\tset {_a} to 1",
+                "every 1 hour:",
+                "\tset {_b} to 1",
+                ""
+        ));
+        assertNoErrors(ScriptLoader.loadScript(file, false));
+        try {
+            var before = List.copyOf(ScriptLoader.getTriggerMap().get("prioritized"));
+            // Changing another trigger is done incrementally
+            Files.writeString(file, String.join("\n",
+                    "prioritized test:",
+                    "\tset {_a} to 1",
+                    "every 1 hour:",
+                    "\tset {_b} to 2",
+                    ""
+            ));
+            assertNoErrors(ScriptLoader.reloadScript(file, false));
+            var after = List.copyOf(ScriptLoader.getTriggerMap().get("prioritized"));
+            assertSame(before.get(0), after.get(0));
+            assertNotSame(before.get(1), after.get(1));
+
+            Files.writeString(file, String.join("\n",
+                    "prioritized test:",
+                    "\tset {_a} to 2",
+                    "every 1 hour:",
+                    "\tset {_b} to 2",
+                    ""
+            ));
+            assertNoErrors(ScriptLoader.reloadScript(file, false));
+            var reloaded = ScriptLoader.getTriggerMap().get("prioritized");
+            assertEquals(2, reloaded.size());
+            assertFalse(reloaded.contains(after.get(0)));
+            assertFalse(reloaded.contains(after.get(1)));
+
+            // So is removing it
+            Files.writeString(file, String.join("\n",
+                    "every 1 hour:",
+                    "\tset {_b} to 2",
+                    ""
+            ));
+            var last = List.copyOf(reloaded);
+            assertNoErrors(ScriptLoader.reloadScript(file, false));
+            reloaded = ScriptLoader.getTriggerMap().get("prioritized");
+            assertEquals(1, reloaded.size());
+            assertNotSame(last.get(1), reloaded.get(0));
+        } finally {
+            ScriptLoader.unloadScript("prioritized");
+        }
+    }
+
+    @Test
+    public void testParallelLoading() throws Exception {
+        var file = Files.createTempDirectory("skript").resolve("parallel.txt");
+        List<String> lines = new ArrayList<>();
+        for (var i = 1; i <= 20; i++) {
+            lines.add("every " + i + " hours:");
+            lines.add("\tset {_value} to " + i + " * 2");
+            lines.add("\tif {_value} is greater than 10:");
+            lines.add("\t\tset {parallel::%{_value}%} to \"%{_value}%\"");
+            if (i % 5 == 0)
+                lines.add("\tthis line can't be parsed " + i);
+            if (i % 7 == 0) {
+                lines.add("prioritized test:");
+                lines.add("\tadd " + i + " to {_sum}");
+            }
+        }
+        lines.add("set {_outside} to 1");
+        Files.write(file, lines);
+
+        var sequentialLogs = describeLogs(ScriptLoader.loadScript(file, false, false));
+        var sequential = describeTriggers("parallel");
+        ScriptLoader.unloadScript("parallel");
+        var parallelLogs = describeLogs(ScriptLoader.loadScript(file, false, true));
+        var parallel = describeTriggers("parallel");
+        ScriptLoader.unloadScript("parallel");
+
+        assertEquals(5, sequentialLogs.size());
+        assertEquals(sequentialLogs, parallelLogs);
+        assertEquals(22, sequential.size());
+        assertEquals(sequential, parallel);
+    }
+
+    @Test
+    public void testCache() throws Exception {
+        var directory = Files.createTempDirectory("skript");
+        var cacheDirectory = directory.resolve("cache");
+        var file = directory.resolve("cached.txt");
+        List<String> lines = new ArrayList<>();
+        for (var i = 1; i <= 5; i++) {
+            lines.add("every " + i + " hours:");
+            lines.add("\tset {_value} to " + i + " * 2");
+            lines.add("\tset {cached::%{_value}%} to \"%{_value}%\"");
+        }
+        Files.write(file, lines);
+        ScriptLoader.setCacheDirectory(cacheDirectory);
+        try {
+            // Nothing to read at first, but the results are saved
+            var first = loadCached(file);
+            assertEquals(0, first[0]);
+            assertTrue(first[1] > 0);
+            var triggers = describeTriggers("cached");
+            ScriptLoader.unloadScript("cached");
+            Path cacheFile;
+            try (var files = Files.list(cacheDirectory)) {
+                cacheFile = files.collect(Collectors.toList()).get(0);
+            }
+
+            // Everything is read back, and gives the same triggers
+            assertArrayEquals(new int[] {first[1], first[1]}, loadCached(file));
+            assertEquals(triggers, describeTriggers("cached"));
+            ScriptLoader.unloadScript("cached");
+
+            // A changed script doesn't use results from before
+            lines.set(1, "\tset {_value} to 3");
+            Files.write(file, lines);
+            var changed = loadCached(file);
+            assertEquals(0, changed[0]);
+            ScriptLoader.unloadScript("cached");
+            assertArrayEquals(new int[] {changed[1], changed[1]}, loadCached(file));
+            ScriptLoader.unloadScript("cached");
+
+            // A corrupt cache is replaced, be it invalid or cut short
+            var content = Files.readAllBytes(cacheFile);
+            Files.write(cacheFile, "Not a cache".getBytes(StandardCharsets.UTF_8));
+            assertArrayEquals(new int[] {0, changed[1]}, loadCached(file));
+            ScriptLoader.unloadScript("cached");
+            Files.write(cacheFile, Arrays.copyOf(content, content.length / 2));
+            assertArrayEquals(new int[] {0, changed[1]}, loadCached(file));
+            ScriptLoader.unloadScript("cached");
+            assertArrayEquals(new int[] {changed[1], changed[1]}, loadCached(file));
+        } finally {
+            ScriptLoader.setCacheDirectory(null);
+            ScriptLoader.unloadScript("cached");
+        }
+    }
+
+    /*
+     * How many results were read from the cache, and how many it contains after loading
+     */
+    private static int[] loadCached(Path file) {
+        var logs = ScriptLoader.loadScript(file, true);
+        var stats = logs.stream()
+                .map(log -> CACHE_STATISTICS.matcher(log.getMessage()))
+                .filter(Matcher::matches)
+                .findFirst()
+                .orElseThrow(AssertionError::new);
+        assertNoErrors(logs);
+        return new int[] {Integer.parseInt(stats.group(1)), Integer.parseInt(stats.group(2))};
+    }
+
+    static void assertNoErrors(List<LogEntry> logs) {
+        logs.removeIf(log -> log.getType() != LogType.ERROR);
+        assertTrue(logs.toString(), logs.isEmpty());
+    }
+
+    static long getCount(String variable) {
+        return Variables.getVariable(variable, DUMMY, false)
+                .map(v -> ((BigInteger) v).longValue())
+                .orElse(0L);
+    }
+
+    /*
+     * Running twice as often would mean the trigger runs alongside the one it replaced
+     */
+    static void assertRunsOncePerPeriod(String variable) throws InterruptedException {
+        Variables.setVariable(variable, BigInteger.ZERO, null, false);
+        Thread.sleep(10 * PERIOD);
+        var count = getCount(variable);
+        assertTrue("Ran " + count + " times in 10 periods", count >= 7 && count <= 11);
+    }
+
+    static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+        var deadline = System.currentTimeMillis() + 2000;
+        while (!condition.getAsBoolean()) {
+            assertTrue("Timed out", System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    private static List<String> describeLogs(List<LogEntry> logs) {
+        return logs.stream()
+                .map(log -> log.getType() + " at line " + log.getLine() + " : " + log.getMessage())
+                .collect(Collectors.toList());
+    }
+
+    /*
+     * The triggers of a script, in the order they were registered in, along with everything they contain
+     */
+    private static List<String> describeTriggers(String scriptName) {
+        return ScriptLoader.getTriggerMap().get(scriptName).stream()
+                .map(t -> {
+                    var sb = new StringBuilder(t.getEvent().toString(null, true));
+                    describe(sb, t.getItems(), "\n\t");
+                    return sb.toString();
+                })
+                .collect(Collectors.toList());
+    }
+
+    private static void describe(StringBuilder sb, List<Statement> items, String indent) {
+        for (var item : items) {
+            sb.append(indent).append(item.toString(null, true));
+            if (item instanceof CodeSection)
+                describe(sb, ((CodeSection) item).getItems(), indent + '\t');
+        }
+    }
+}
@@ -8,14 +8,29 @@ import io.github.syst3ms.skriptparser.lang.Statement;
 import io.github.syst3ms.skriptparser.log.SkriptLogger;
 import io.github.syst3ms.skriptparser.types.PatternType;
 import io.github.syst3ms.skriptparser.types.TypeManager;
+import io.github.syst3ms.skriptparser.variables.FileVariableStorage;
+import io.github.syst3ms.skriptparser.variables.Variables;
 import org.junit.Test;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
 
 import static io.github.syst3ms.skriptparser.lang.TriggerContext.DUMMY;
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.fail;
 
 @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
@@ -73,4 +88,139 @@ public class VariablesTest {
 				SyntaxParser.parseExpression("{number}", numberType, parserState, logger)
 		);
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void testConcurrentChanges() throws Exception {
+		SkriptLogger logger = new SkriptLogger();
+		ParserState parserState = new ParserState();
+		var threads = 8;
+		var iterations = 500;
+		var effects = List.of(
+				SyntaxParser.parseEffect("add 1 to {concurrent counter}", parserState, logger).orElseThrow(AssertionError::new),
+				SyntaxParser.parseEffect("add \"value\" to {concurrent list::*}", parserState, logger).orElseThrow(AssertionError::new),
+				SyntaxParser.parseEffect("remove 1 from {concurrent difference}", parserState, logger).orElseThrow(AssertionError::new)
+		);
+		var executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Callable<Void>> tasks = new ArrayList<>();
+			for (var i = 0; i < threads; i++) {
+				tasks.add(() -> {
+					for (var j = 0; j < iterations; j++) {
+						for (var effect : effects)
+							Statement.runAll(effect, DUMMY);
+					}
+					return null;
+				});
+			}
+			for (var future : executor.invokeAll(tasks))
+				future.get();
+		} finally {
+			executor.shutdown();
+		}
+		var total = threads * iterations;
+		assertEquals(
+				BigInteger.valueOf(total),
+				Variables.getVariable("concurrent counter", DUMMY, false).orElseThrow(AssertionError::new)
+		);
+		assertEquals(
+				BigInteger.valueOf(-total),
+				Variables.getVariable("concurrent difference", DUMMY, false).orElseThrow(AssertionError::new)
+		);
+		var list = (Map<?, ?>) Variables.getVariable("concurrent list::*", DUMMY, false).orElseThrow(AssertionError::new);
+		assertEquals(total, list.size());
+	}
+
+	@Test
+	public void testStorage() throws Exception {
+		SkriptLogger logger = new SkriptLogger();
+		ParserState parserState = new ParserState();
+		var directory = Files.createTempDirectory("variables");
+		try {
+			// A tiny compaction threshold, so that snapshots are taken along the way
+			Variables.setStorage(new FileVariableStorage(directory, 256));
+			run(SyntaxParser.parseEffect("set {stored number} to 5.25", parserState, logger));
+			run(SyntaxParser.parseEffect("set {stored string} to \"text\"", parserState, logger));
+			run(SyntaxParser.parseEffect("set {stored deleted} to 3", parserState, logger));
+			run(SyntaxParser.parseEffect("delete {stored deleted}", parserState, logger));
+			var add = SyntaxParser.parseEffect("add 1 to {stored counter}", parserState, logger);
+			var append = SyntaxParser.parseEffect("add {stored counter} to {stored list::*}", parserState, logger);
+			for (var i = 0; i < 50; i++) {
+				run(add);
+				run(append);
+			}
+			run(SyntaxParser.parseEffect("set {stored first} to shift {stored list::*}", parserState, logger));
+			run(SyntaxParser.parseEffect("set {stored last} to pop {stored list::*}", parserState, logger));
+			Variables.setStorage(null);
+
+			for (var name : List.of("stored number", "stored string", "stored counter", "stored first", "stored last", "stored list::*"))
+				Variables.setVariable(name, null, null, false);
+			Variables.setStorage(new FileVariableStorage(directory, 256));
+			assertEquals(new BigDecimal("5.25"), Variables.getVariable("stored number", DUMMY, false).orElse(null));
+			assertEquals("text", Variables.getVariable("stored string", DUMMY, false).orElse(null));
+			assertEquals(Optional.empty(), Variables.getVariable("stored deleted", DUMMY, false));
+			assertEquals(BigInteger.valueOf(50), Variables.getVariable("stored counter", DUMMY, false).orElse(null));
+			assertEquals(BigInteger.ONE, Variables.getVariable("stored first", DUMMY, false).orElse(null));
+			assertEquals(BigInteger.valueOf(50), Variables.getVariable("stored last", DUMMY, false).orElse(null));
+			var list = (Map<?, ?>) Variables.getVariable("stored list::*", DUMMY, false).orElseThrow(AssertionError::new);
+			assertEquals(48, list.size());
+			assertEquals(BigInteger.TWO, list.get("1"));
+			assertEquals(BigInteger.valueOf(49), list.get("48"));
+
+			// A change that was only partially written is ignored
+			run(SyntaxParser.parseEffect("set {stored string} to \"changed\"", parserState, logger));
+			Variables.setStorage(null);
+			try (var logs = Files.list(directory)) {
+				var log = logs.filter(f -> f.toString().endsWith(".log"))
+						.max(Comparator.comparing(Path::toString))
+						.orElseThrow(AssertionError::new);
+				Files.write(log, new byte[] {0, 0, 0, 42, 1, 2}, StandardOpenOption.APPEND);
+			}
+			Variables.setStorage(new FileVariableStorage(directory, 256));
+			assertEquals("changed", Variables.getVariable("stored string", DUMMY, false).orElse(null));
+			Variables.setStorage(null);
+		} finally {
+			Variables.setStorage(null);
+			try (var files = Files.walk(directory)) {
+				files.sorted(Comparator.reverseOrder()).forEach(f -> f.toFile().delete());
+			}
+		}
+	}
+
+	@Test
+	public void testStorageFailure() throws Exception {
+		var directory = Files.createTempDirectory("variables");
+		var storage = new FileVariableStorage(directory, 256);
+		Variables.setStorage(storage);
+		try {
+			// Compacting the logs opens a new log, which fails once the directory is gone
+			Files.delete(directory.resolve("variables.0.log"));
+			Files.delete(directory);
+			UncheckedIOException failure = null;
+			var last = -1;
+			var deadline = System.currentTimeMillis() + 10_000;
+			while (failure == null && System.currentTimeMillis() < deadline) {
+				try {
+					Variables.setVariable("failing storage", BigInteger.valueOf(++last), null, false);
+					Thread.sleep(1);
+				} catch (UncheckedIOException e) {
+					failure = e;
+				}
+			}
+			assertNotNull(failure);
+			// The change is still made in memory
+			assertEquals(BigInteger.valueOf(last), Variables.getVariable("failing storage", DUMMY, false).orElse(null));
+			try {
+				storage.flush();
+				fail("Flushing a failed storage should throw");
+			} catch (IOException ignored) {
+			}
+		} finally {
+			try {
+				Variables.setStorage(null);
+			} catch (IOException ignored) {
+				// The storage reports its failure when closed as well
+			}
+			Variables.setVariable("failing storage", null, null, false);
+		}
+	}
+}
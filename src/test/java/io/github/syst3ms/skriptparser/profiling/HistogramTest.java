@@ -0,0 +1,38 @@
+package io.github.syst3ms.skriptparser.profiling;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HistogramTest {
+    @Test
+    public void testBuckets() {
+        for (long value : new long[] {0, 1, 63, 64, 65, 1000, 123_456_789, Long.MAX_VALUE}) {
+            var highest = Histogram.highestValueOf(Histogram.bucketOf(value));
+            assertTrue(highest >= value);
+            // Every value is known within about 3%
+            assertTrue(highest - value <= value / 32);
+        }
+        for (var bucket = 1; bucket <= Histogram.bucketOf(Long.MAX_VALUE); bucket++)
+            assertEquals(bucket, Histogram.bucketOf(Histogram.highestValueOf(bucket - 1) + 1));
+    }
+
+    @Test
+    public void testPercentiles() {
+        var histogram = new Histogram();
+        assertEquals(0, histogram.getValueAtPercentile(50));
+        for (var i = 1; i <= 1000; i++)
+            histogram.record(i * 1000L);
+        assertEquals(1000, histogram.getCount());
+        assertEquals(500_500_000, histogram.getTotal());
+        assertEquals(1_000_000, histogram.getMax());
+        var median = histogram.getValueAtPercentile(50);
+        assertTrue(median >= 500_000 && median <= 500_000 * 33 / 32);
+        var p99 = histogram.getValueAtPercentile(99);
+        assertTrue(p99 >= 990_000 && p99 <= 990_000 * 33 / 32);
+        assertEquals(1_000_000, histogram.getValueAtPercentile(100));
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+    }
+}
@@ -0,0 +1,112 @@
+package io.github.syst3ms.skriptparser.profiling;
+
+import io.github.syst3ms.skriptparser.TestRegistration;
+import io.github.syst3ms.skriptparser.lang.Statement;
+import io.github.syst3ms.skriptparser.log.LogType;
+import io.github.syst3ms.skriptparser.parsing.ScriptLoader;
+import io.github.syst3ms.skriptparser.registration.SkriptAddon;
+import io.github.syst3ms.skriptparser.syntax.TestContext;
+import io.github.syst3ms.skriptparser.variables.Variables;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ProfilerTest {
+    static {
+        TestRegistration.register();
+    }
+
+    private static final int RUNS = 3;
+    private static final String SCRIPT = String.join("\n",
+            "test:",
+            "\tset {profiled counter} to 0",
+            "\tloop 20 times:",
+            "\t\tadd 1 to {profiled counter}",
+            "\t\tset {_text} to \"%{profiled counter}%\"",
+            "\tset {_character} to first character of \"\"",
+            "\tset {profiled end} to true",
+            ""
+    );
+
+    @Test
+    public void testScript() throws Exception {
+        var file = Files.createTempDirectory("skript").resolve("profiled.txt");
+        Files.writeString(file, SCRIPT);
+        var logs = ScriptLoader.loadScript(file, false);
+        logs.removeIf(log -> log.getType() != LogType.ERROR);
+        assertTrue(logs.toString(), logs.isEmpty());
+        var trigger = ScriptLoader.getTriggerMap().get("profiled").get(0);
+        Profiler.reset();
+        Profiler.setEnabled(true);
+        // The exception thrown by the trigger is printed, which shouldn't end up in the output of the tests
+        var err = System.err;
+        var errors = new ByteArrayOutputStream();
+        System.setErr(new PrintStream(errors, true));
+        try {
+            // This runs the trigger for the first time
+            SkriptAddon.getAddons().forEach(SkriptAddon::finishedLoading);
+            for (var i = 1; i < RUNS; i++)
+                Statement.runAll(trigger, new TestContext());
+        } finally {
+            System.setErr(err);
+            Profiler.setEnabled(false);
+            ScriptLoader.unloadScript("profiled");
+            Variables.setVariable("profiled counter", null, null, false);
+        }
+
+        Map<Integer, ExecutionMetrics> lines = Profiler.getMetrics().stream()
+                .filter(m -> m.getScriptName().equals("profiled") && m.getInvocations() > 0)
+                .collect(Collectors.toMap(ExecutionMetrics::getLine, m -> m));
+        assertEquals(RUNS, lines.get(1).getInvocations());
+        assertEquals(RUNS, lines.get(2).getInvocations());
+        // The loop is stepped into once per iteration, and once more to find out it's done
+        assertEquals(21 * RUNS, lines.get(3).getInvocations());
+        assertEquals(20 * RUNS, lines.get(4).getInvocations());
+        assertEquals(20 * RUNS, lines.get(5).getInvocations());
+        assertEquals(RUNS, lines.get(6).getInvocations());
+        // The trigger stops at the exception
+        assertFalse(lines.containsKey(7));
+        assertEquals(RUNS, errors.toString().split("An exception occurred", -1).length - 1);
+
+        // The exception is counted by the line that threw it and by the trigger, but not by the lines before
+        assertEquals(RUNS, lines.get(6).getExceptions());
+        assertEquals(RUNS, lines.get(1).getExceptions());
+        assertEquals(0, lines.get(3).getExceptions());
+
+        // The time spent in the loop includes the time spent in its contents, which isn't its own
+        var loop = lines.get(3);
+        assertTrue(loop.getSelfTime() < loop.getTotalTime());
+        assertEquals(
+                lines.get(4).getTotalTime() + lines.get(5).getTotalTime(),
+                loop.getTotalTime() - loop.getSelfTime()
+        );
+        for (var line = 4; line <= 6; line++)
+            assertEquals(lines.get(line).getTotalTime(), lines.get(line).getSelfTime());
+
+        var stacks = new StringWriter();
+        Profiler.writeFoldedStacks(stacks);
+        var folded = stacks.toString().lines()
+                .filter(l -> l.startsWith("test (profiled:1);"))
+                .collect(Collectors.toMap(l -> l.substring(0, l.lastIndexOf(' ')), l -> l.substring(l.lastIndexOf(' ') + 1)));
+        assertEquals(
+                String.valueOf(loop.getSelfTime() / 1000),
+                folded.get("test (profiled:1);loop 20 times (profiled:3)")
+        );
+        assertEquals(
+                String.valueOf(lines.get(4).getSelfTime() / 1000),
+                folded.get("test (profiled:1);loop 20 times (profiled:3);add 1 to {profiled counter} (profiled:4)")
+        );
+        assertTrue(folded.containsKey(
+                "test (profiled:1);set {_character} to first character of \"\" (profiled:6)"
+        ));
+    }
+}
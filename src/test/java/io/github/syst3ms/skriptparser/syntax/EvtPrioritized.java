@@ -0,0 +1,46 @@
+package io.github.syst3ms.skriptparser.syntax;
+
+import io.github.syst3ms.skriptparser.Parser;
+import io.github.syst3ms.skriptparser.lang.Expression;
+import io.github.syst3ms.skriptparser.lang.SkriptEvent;
+import io.github.syst3ms.skriptparser.lang.TriggerContext;
+import io.github.syst3ms.skriptparser.parsing.ParseContext;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * An event that is loaded before the others, like functions would be.
+ * Cannot be used outside of tests.
+ *
+ * @name Prioritized Test
+ * @type EVENT
+ * @pattern prioritized test
+ * @since ALPHA
+ */
+public class EvtPrioritized extends SkriptEvent {
+	static {
+		Parser.getMainRegistration()
+			.newEvent(EvtPrioritized.class, "*prioritized test")
+			.setHandledContexts(TestContext.class)
+			.register();
+	}
+
+	@Override
+	public boolean init(Expression<?>[] expressions, int matchedPattern, ParseContext parseContext) {
+		return true;
+	}
+
+	@Override
+	public boolean check(TriggerContext ctx) {
+		return ctx instanceof TestContext;
+	}
+
+	@Override
+	public int getLoadingPriority() {
+		return 1;
+	}
+
+	@Override
+	public String toString(@Nullable TriggerContext ctx, boolean debug) {
+		return "prioritized test";
+	}
+}
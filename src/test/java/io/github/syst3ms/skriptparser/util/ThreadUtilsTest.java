@@ -0,0 +1,96 @@
+package io.github.syst3ms.skriptparser.util;
+
+import io.github.syst3ms.skriptparser.TestRegistration;
+import io.github.syst3ms.skriptparser.event.PeriodicalContext;
+import io.github.syst3ms.skriptparser.lang.Statement;
+import io.github.syst3ms.skriptparser.log.LogType;
+import io.github.syst3ms.skriptparser.parsing.ScriptLoader;
+import io.github.syst3ms.skriptparser.registration.SkriptAddon;
+import io.github.syst3ms.skriptparser.variables.Variables;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static io.github.syst3ms.skriptparser.lang.TriggerContext.DUMMY;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ThreadUtilsTest {
+    static {
+        TestRegistration.register();
+    }
+
+    private static final long PERIOD = 100;
+
+    @Test
+    public void testUnsupportedVirtualThreads() {
+        Assume.assumeFalse(ThreadUtils.supportsVirtualThreads());
+        try {
+            ThreadUtils.setVirtualThreads(true);
+            fail("Virtual threads shouldn't be available");
+        } catch (UnsupportedOperationException ignored) {
+        }
+        assertFalse(ThreadUtils.isVirtualThread());
+        // Turning them off is always possible
+        ThreadUtils.setVirtualThreads(false);
+    }
+
+    @Test
+    public void testVirtualThreads() throws Exception {
+        Assume.assumeTrue(ThreadUtils.supportsVirtualThreads());
+        var file = Files.createTempDirectory("skript").resolve("virtual.txt");
+        Files.writeString(file, String.join("\n",
+                "every " + PERIOD + " milliseconds:",
+                "\tadd 1 to {virtual starts}",
+                "\twait " + 3 * PERIOD + " milliseconds",
+                "\tadd 1 to {virtual ends}",
+                "every 1 hour:",
+                "\tset {virtual waited} to false",
+                "\twait " + PERIOD + " milliseconds",
+                "\tset {virtual waited} to true",
+                ""
+        ));
+        ThreadUtils.setVirtualThreads(true);
+        try {
+            var logs = ScriptLoader.loadScript(file, false);
+            logs.removeIf(log -> log.getType() != LogType.ERROR);
+            assertTrue(logs.toString(), logs.isEmpty());
+            var triggers = ScriptLoader.getTriggerMap().get("virtual");
+
+            // Waiting on a virtual thread blocks it, and the trigger is done once the wait is over
+            var waited = new CompletableFuture<Boolean>();
+            ThreadUtils.runAsync(() -> {
+                if (!ThreadUtils.isVirtualThread())
+                    waited.completeExceptionally(new AssertionError("Asynchronous code isn't run on a virtual thread"));
+                Statement.runAll(triggers.get(1), new PeriodicalContext());
+                waited.complete(Variables.getVariable("virtual waited", DUMMY, false).map(Boolean.TRUE::equals).orElse(false));
+            });
+            assertTrue(waited.get(10, TimeUnit.SECONDS));
+
+            // Each run of a periodical trigger gets its own thread, so that waiting doesn't delay the next runs
+            SkriptAddon.getAddons().forEach(SkriptAddon::finishedLoading);
+            Thread.sleep(10 * PERIOD);
+            var starts = getCount("virtual starts");
+            assertTrue("Only " + starts + " runs started", starts >= 5);
+            assertTrue(getCount("virtual ends") < starts);
+        } finally {
+            ScriptLoader.unloadScript("virtual");
+            ThreadUtils.setVirtualThreads(false);
+            Variables.setVariable("virtual starts", null, null, false);
+            Variables.setVariable("virtual ends", null, null, false);
+            Variables.setVariable("virtual waited", null, null, false);
+        }
+        assertFalse(ThreadUtils.isVirtualThread());
+    }
+
+    private static int getCount(String variable) {
+        return Variables.getVariable(variable, DUMMY, false)
+                .map(v -> ((BigInteger) v).intValue())
+                .orElse(0);
+    }
+}
@@ -0,0 +1,247 @@
+package io.github.syst3ms.skriptparser.variables;
+
+import io.github.syst3ms.skriptparser.TestRegistration;
+import io.github.syst3ms.skriptparser.lang.Expression;
+import io.github.syst3ms.skriptparser.log.LogType;
+import io.github.syst3ms.skriptparser.log.SkriptLogger;
+import io.github.syst3ms.skriptparser.parsing.ParserState;
+import io.github.syst3ms.skriptparser.parsing.ScriptLoader;
+import io.github.syst3ms.skriptparser.parsing.SyntaxParser;
+import io.github.syst3ms.skriptparser.registration.SkriptAddon;
+import io.github.syst3ms.skriptparser.util.TimeUtils;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+import static io.github.syst3ms.skriptparser.lang.TriggerContext.DUMMY;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ConditionWatcherTest {
+    static {
+        TestRegistration.register();
+    }
+
+    private static final long TICK = TimeUtils.TICK.toMillis();
+
+    @Test
+    public void testDependencies() {
+        assertEquals(Optional.of(Set.of("a")), ConditionWatcher.findDependencies(parseCondition("{a} > 5")));
+        assertEquals(
+                Optional.of(Set.of("a", "b")),
+                ConditionWatcher.findDependencies(parseCondition("{a::1} is set or length of {b} > 2"))
+        );
+        // The list element can be any variable, whose name depends on another one
+        assertEquals(
+                Optional.of(Set.of(ConditionWatcher.ANY_VARIABLE, "b")),
+                ConditionWatcher.findDependencies(parseCondition("{%{b}%} is set"))
+        );
+        // Local variables can change without notice
+        assertEquals(Optional.empty(), ConditionWatcher.findDependencies(parseCondition("{a} > 5 and {_b} is set")));
+    }
+
+    @Test
+    public void testListenersRunUnlocked() {
+        var path = Variables.splitPath("locked variable");
+        var lock = (ReentrantReadWriteLock.WriteLock) Variables.getGlobalMap().getLock(path);
+        List<String> events = Collections.synchronizedList(new ArrayList<>());
+        Consumer<String[]> listener = p -> {
+            if (p[0].equals("locked variable"))
+                events.add("notified, locked : " + lock.isHeldByCurrentThread());
+        };
+        Variables.addChangeListener(listener);
+        try {
+            Variables.setVariable(path, BigInteger.ZERO, null, false);
+            Variables.changeAtomically(path, false, () -> {
+                Variables.setVariable(path, BigInteger.ONE, null, false);
+                Variables.setVariable(path, BigInteger.TWO, null, false);
+                events.add("changed");
+            });
+            assertEquals(
+                    List.of("notified, locked : false", "changed", "notified, locked : false", "notified, locked : false"),
+                    events
+            );
+        } finally {
+            Variables.removeChangeListener(listener);
+            Variables.setVariable(path, null, null, false);
+        }
+    }
+
+    @Test
+    public void testRecheckedAfterChange() throws Exception {
+        var condition = parseCondition("{watched counter} > 2");
+        var dependencies = ConditionWatcher.findDependencies(condition);
+        assertEquals(Optional.of(Set.of("watched counter")), dependencies);
+        var checks = new AtomicInteger();
+        var met = new CountDownLatch(1);
+        var watch = ConditionWatcher.watch(dependencies, w -> {
+            checks.incrementAndGet();
+            if (condition.getSingle(DUMMY).filter(b -> b).isPresent() && w.cancel())
+                met.countDown();
+        });
+        try {
+            // The condition is checked once at first, then only after its variable changed
+            awaitUntil(() -> checks.get() == 1);
+            Thread.sleep(5 * TICK);
+            assertEquals(1, checks.get());
+            Variables.setVariable("unwatched counter", BigInteger.ONE, null, false);
+            Thread.sleep(5 * TICK);
+            assertEquals(1, checks.get());
+
+            Variables.setVariable("watched counter", BigInteger.ONE, null, false);
+            awaitUntil(() -> checks.get() == 2);
+            Variables.setVariable("watched counter", BigInteger.valueOf(3), null, false);
+            assertTrue(met.await(1, TimeUnit.SECONDS));
+            assertEquals(3, checks.get());
+        } finally {
+            watch.cancel();
+            Variables.setVariable("watched counter", null, null, false);
+            Variables.setVariable("unwatched counter", null, null, false);
+        }
+    }
+
+    @Test
+    public void testChangeChecksOnNextTick() throws Exception {
+        var checked = new CountDownLatch(1);
+        var met = new CountDownLatch(1);
+        var watch = ConditionWatcher.watch(Optional.of(Set.of("changed flag")), w -> {
+            checked.countDown();
+            if (Variables.getVariable("changed flag", DUMMY, false).isPresent() && w.cancel())
+                met.countDown();
+        });
+        try {
+            assertTrue(checked.await(1, TimeUnit.SECONDS));
+            var start = System.nanoTime();
+            Variables.setVariable("changed flag", true, null, false);
+            assertTrue(met.await(1, TimeUnit.SECONDS));
+            // Up to a tick until the next one, plus some leeway for slow machines
+            assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(4 * TICK));
+        } finally {
+            watch.cancel();
+            Variables.setVariable("changed flag", null, null, false);
+        }
+    }
+
+    @Test
+    public void testLimit() throws Exception {
+        var checks = new AtomicInteger();
+        var limits = new AtomicInteger();
+        var watch = ConditionWatcher.watch(
+                Optional.empty(),
+                w -> checks.incrementAndGet(),
+                Duration.ofMillis(3 * TICK),
+                limits::incrementAndGet
+        );
+        awaitUntil(() -> limits.get() == 1);
+        assertTrue(watch.isDone());
+        assertFalse(watch.cancel());
+        var checksAtLimit = checks.get();
+        assertTrue(checksAtLimit > 0);
+        Thread.sleep(5 * TICK);
+        assertEquals(1, limits.get());
+        assertEquals(checksAtLimit, checks.get());
+    }
+
+    @Test
+    public void testCancelRacingLimit() throws Exception {
+        var count = 200;
+        var resumed = new AtomicIntegerArray(count);
+        List<ConditionWatcher.Watch> watches = new ArrayList<>();
+        for (var i = 0; i < count; i++) {
+            var index = i;
+            watches.add(ConditionWatcher.watch(
+                    Optional.empty(),
+                    w -> {},
+                    Duration.ofMillis(TICK),
+                    () -> resumed.incrementAndGet(index)
+            ));
+        }
+        // Cancelling while the timer reaches the limits of the same watches
+        var deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TICK);
+        while (System.nanoTime() < deadline)
+            Thread.onSpinWait();
+        for (var i = 0; i < count; i++) {
+            if (watches.get(i).cancel())
+                resumed.incrementAndGet(i);
+        }
+        Thread.sleep(3 * TICK);
+        for (var i = 0; i < count; i++)
+            assertEquals("Watch " + i, 1, resumed.get(i));
+        assertTrue(watches.stream().allMatch(ConditionWatcher.Watch::isDone));
+    }
+
+    @Test
+    public void testTimerStops() throws Exception {
+        var first = ConditionWatcher.watch(Optional.empty(), w -> {});
+        var second = ConditionWatcher.watch(Optional.of(Set.of("timer flag")), w -> {});
+        assertTrue(ConditionWatcher.isTicking());
+        first.cancel();
+        Thread.sleep(3 * TICK);
+        assertTrue(ConditionWatcher.isTicking());
+        second.cancel();
+        awaitUntil(() -> !ConditionWatcher.isTicking());
+        assertEquals(0, ConditionWatcher.getWatchCount());
+    }
+
+    /*
+     * The condition of a wait used to be evaluated only once, before waiting, so that later changes were never seen
+     */
+    @Test
+    public void testWaitUntil() throws Exception {
+        var file = Files.createTempDirectory("skript").resolve("waiting.txt");
+        Files.writeString(file, String.join("\n",
+                "test:",
+                "\twait until {wait flag} is set",
+                "\tset {wait result} to {wait flag}",
+                ""
+        ));
+        var logs = ScriptLoader.loadScript(file, false);
+        logs.removeIf(log -> log.getType() != LogType.ERROR);
+        assertTrue(logs.toString(), logs.isEmpty());
+        try {
+            SkriptAddon.getAddons().forEach(SkriptAddon::finishedLoading);
+            Thread.sleep(3 * TICK);
+            assertEquals(Optional.empty(), Variables.getVariable("wait result", DUMMY, false));
+            Variables.setVariable("wait flag", "done", null, false);
+            awaitUntil(() -> Variables.getVariable("wait result", DUMMY, false).isPresent());
+            assertEquals(Optional.of("done"), Variables.getVariable("wait result", DUMMY, false));
+        } finally {
+            ScriptLoader.unloadScript("waiting");
+            Variables.setVariable("wait flag", null, null, false);
+            Variables.setVariable("wait result", null, null, false);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Expression<Boolean> parseCondition(String condition) {
+        return (Expression<Boolean>) SyntaxParser.parseBooleanExpression(
+                condition,
+                SyntaxParser.MAYBE_CONDITIONAL,
+                new ParserState(),
+                new SkriptLogger()
+        ).orElseThrow(AssertionError::new);
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+        var deadline = System.currentTimeMillis() + 2000;
+        while (!condition.getAsBoolean()) {
+            assertTrue("Timed out", System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+    }
+}
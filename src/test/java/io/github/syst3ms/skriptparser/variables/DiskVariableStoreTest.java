@@ -0,0 +1,241 @@
+package io.github.syst3ms.skriptparser.variables;
+
+import io.github.syst3ms.skriptparser.TestRegistration;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class DiskVariableStoreTest {
+    static {
+        TestRegistration.register();
+    }
+
+    private static final int CACHED_PAGES = 16;
+
+    @Test
+    public void testCacheStaysBounded() throws Exception {
+        var file = Files.createTempFile("variables", ".db");
+        try {
+            var store = new DiskVariableStore(file, CACHED_PAGES);
+            // Far more leaves than the cache can hold
+            var value = "x".repeat(200);
+            for (var i = 1; i <= 2000; i++)
+                store.setVariable(new String[] {"big", String.valueOf(i)}, value);
+            store.close();
+
+            store = new DiskVariableStore(file, CACHED_PAGES);
+            var list = (Map<?, ?>) store.getVariable(new String[] {"big", "*"}).orElseThrow(AssertionError::new);
+            var count = 0;
+            for (var entry : list.entrySet()) {
+                assertEquals(value, entry.getValue());
+                assertTrue(store.getCachedPageCount() <= CACHED_PAGES);
+                count++;
+            }
+            assertEquals(2000, count);
+            for (var i = 2000; i >= 1; i -= 7) {
+                assertEquals(value, list.get(String.valueOf(i)));
+                assertEquals(Optional.of(value), store.getVariable(new String[] {"big", String.valueOf(i)}));
+                assertTrue(store.getCachedPageCount() <= CACHED_PAGES);
+            }
+            assertEquals(2001, store.getFreeIndex(new String[] {"big", "*"}, 1));
+            assertTrue(store.getCachedPageCount() <= CACHED_PAGES);
+
+            store.setVariable(new String[] {"big", "*"}, null);
+            assertTrue(store.getCachedPageCount() <= CACHED_PAGES);
+            assertEquals(Optional.empty(), store.getVariable(new String[] {"big", "*"}));
+            store.close();
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testFreeIndex() throws Exception {
+        var file = Files.createTempFile("variables", ".db");
+        try (var store = new DiskVariableStore(file, CACHED_PAGES)) {
+            var list = new String[] {"sequence", "*"};
+            assertEquals(1, store.getFreeIndex(list, 1));
+            for (var i = 1; i <= 100; i++)
+                store.setVariable(new String[] {"sequence", String.valueOf(i)}, (long) i);
+            assertEquals(101, store.getFreeIndex(list, 1));
+            assertEquals(150, store.getFreeIndex(list, 150));
+            store.setVariable(new String[] {"sequence", "101"}, 101L);
+            assertEquals(102, store.getFreeIndex(list, 1));
+
+            // Removing an element leaves a gap
+            store.setVariable(new String[] {"sequence", "50"}, null);
+            assertEquals(50, store.getFreeIndex(list, 1));
+            assertEquals(102, store.getFreeIndex(list, 51));
+            // An index holding a list is used as well
+            store.setVariable(new String[] {"sequence", "50", "inner"}, 0L);
+            assertEquals(102, store.getFreeIndex(list, 1));
+            store.setVariable(new String[] {"sequence", "50", "*"}, null);
+            assertEquals(50, store.getFreeIndex(list, 1));
+
+            store.setVariable(list, null);
+            assertEquals(1, store.getFreeIndex(list, 1));
+            assertEquals(Optional.empty(), store.getVariable(list));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testIterationStopsAtLastElement() throws Exception {
+        var file = Files.createTempFile("variables", ".db");
+        try (var store = new DiskVariableStore(file, CACHED_PAGES)) {
+            var list = new String[] {"growing", "*"};
+            var value = "x".repeat(200);
+            for (var i = 1; i <= 500; i++)
+                store.setVariable(new String[] {"growing", String.valueOf(i)}, value);
+            // The last element is a list, and the leaves after it are emptied
+            store.setVariable(new String[] {"growing", "501", "inner"}, value);
+            store.setVariable(new String[] {"other"}, value);
+            for (var i = 502; i <= 600; i++)
+                store.setVariable(new String[] {"growing", String.valueOf(i)}, value);
+            for (var i = 502; i <= 600; i++)
+                store.setVariable(new String[] {"growing", String.valueOf(i)}, null);
+
+            var count = 0;
+            var iterator = ((Map<?, ?>) store.getVariable(list).orElseThrow(AssertionError::new)).entrySet().iterator();
+            while (iterator.hasNext()) {
+                iterator.next();
+                count++;
+                store.setVariable(new String[] {"growing", String.valueOf(store.getFreeIndex(list, 1))}, value);
+            }
+            assertEquals(501, count);
+            assertEquals(1003, store.getFreeIndex(list, 1));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testHeader() throws Exception {
+        var file = Files.createTempFile("variables", ".db");
+        try {
+            // An empty file becomes a new store
+            try (var store = new DiskVariableStore(file, CACHED_PAGES)) {
+                store.setVariable(new String[] {"kept"}, "value");
+            }
+            try (var store = new DiskVariableStore(file, CACHED_PAGES)) {
+                assertEquals(Optional.of("value"), store.getVariable(new String[] {"kept"}));
+            }
+
+            // A store that wasn't closed properly can't be opened without its journal
+            setChangingFlag(file, (byte) 1);
+            assertNotOpened(file);
+            setChangingFlag(file, (byte) 0);
+            try (var store = new DiskVariableStore(file, CACHED_PAGES)) {
+                assertEquals(Optional.of("value"), store.getVariable(new String[] {"kept"}));
+            }
+
+            // As is a file that isn't a store
+            Files.writeString(file, "Some file that was there before");
+            assertNotOpened(file);
+            assertEquals("Some file that was there before", Files.readString(file));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testRecovery() throws Exception {
+        var directory = Files.createTempDirectory("variables");
+        var file = directory.resolve("variables.db");
+        var copy = directory.resolve("copy.db");
+        var value = "x".repeat(200);
+        try {
+            try (var store = new DiskVariableStore(file, CACHED_PAGES)) {
+                for (var i = 1; i <= 1000; i++)
+                    store.setVariable(new String[] {"kept", String.valueOf(i)}, value);
+            }
+
+            try (var store = new DiskVariableStore(file, CACHED_PAGES)) {
+                // Enough changes for most of the pages to be written to the file before the store is flushed
+                store.setVariable(new String[] {"kept", "*"}, null);
+                for (var i = 1; i <= 1000; i++)
+                    store.setVariable(new String[] {"lost", String.valueOf(i)}, "y".repeat(1000));
+                assertTrue(Files.exists(directory.resolve("variables.db-journal")));
+                // The files as they would be if the program stopped now
+                Files.copy(file, copy);
+                Files.copy(directory.resolve("variables.db-journal"), directory.resolve("copy.db-journal"));
+            }
+
+            try (var store = new DiskVariableStore(copy, CACHED_PAGES)) {
+                assertEquals(Optional.empty(), store.getVariable(new String[] {"lost", "*"}));
+                var list = (Map<?, ?>) store.getVariable(new String[] {"kept", "*"}).orElseThrow(AssertionError::new);
+                assertEquals(1000, list.size());
+                for (var element : list.values())
+                    assertEquals(value, element);
+            }
+            assertFalse(Files.exists(directory.resolve("copy.db-journal")));
+            try (var store = new DiskVariableStore(file, CACHED_PAGES)) {
+                assertEquals(Optional.empty(), store.getVariable(new String[] {"kept", "*"}));
+                assertEquals(1000, ((Map<?, ?>) store.getVariable(new String[] {"lost", "*"}).orElseThrow(AssertionError::new)).size());
+            }
+        } finally {
+            for (var name : new String[] {"variables.db", "variables.db-journal", "copy.db", "copy.db-journal"})
+                Files.deleteIfExists(directory.resolve(name));
+            Files.delete(directory);
+        }
+    }
+
+    @Test
+    public void testPagesAreReused() throws Exception {
+        var file = Files.createTempFile("variables", ".db");
+        try (var store = new DiskVariableStore(file, CACHED_PAGES)) {
+            var small = "x".repeat(200);
+            // Too large to fit in a leaf
+            var large = "y".repeat(10000);
+            long size = -1;
+            for (var round = 0; round < 5; round++) {
+                // New indices every time, which don't fall in the leaves of the previous elements
+                var first = round * 1000 + 1;
+                for (var i = first; i < first + 1000; i++)
+                    store.setVariable(new String[] {"churn", String.valueOf(i)}, i % 100 == 0 ? large : small);
+                store.setVariable(new String[] {"churn", "nested", "inner"}, large);
+                store.flush();
+                if (size == -1) {
+                    size = Files.size(file);
+                } else {
+                    assertTrue(Files.size(file) + " > " + size, Files.size(file) <= size);
+                }
+                assertEquals(large, store.getVariable(new String[] {"churn", String.valueOf(first + 99)}).orElse(null));
+                // Half of the elements one by one, the rest all at once
+                for (var i = first; i < first + 1000; i += 2)
+                    store.setVariable(new String[] {"churn", String.valueOf(i)}, null);
+                store.setVariable(new String[] {"churn", "*"}, null);
+                assertEquals(Optional.empty(), store.getVariable(new String[] {"churn", "*"}));
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static void setChangingFlag(Path file, byte flag) throws IOException {
+        try (var channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {flag}), 4);
+        }
+    }
+
+    private static void assertNotOpened(Path file) {
+        try {
+            new DiskVariableStore(file, CACHED_PAGES).close();
+            fail(file + " shouldn't have been opened");
+        } catch (IOException ignored) {
+        }
+    }
+}